@@ -0,0 +1,16 @@
+package com.example.veronica.minesweeper;
+
+import android.util.Log;
+
+import com.example.veronica.minesweeper.model.GameLog;
+
+/**
+ * Forwards the game core's debug log to logcat.
+ */
+
+public class AndroidLogger implements GameLog.Logger {
+    @Override
+    public void log(String tag, String message) {
+        Log.d(tag, message);
+    }
+}
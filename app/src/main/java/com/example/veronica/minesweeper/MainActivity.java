@@ -1,6 +1,7 @@
 package com.example.veronica.minesweeper;
 
 import android.os.SystemClock;
+import android.util.Log;
 import android.support.v7.app.AppCompatActivity;
 import android.os.Bundle;
 
@@ -11,10 +12,21 @@ import android.view.View;
 import android.widget.Button;
 import android.widget.CompoundButton;
 import android.widget.LinearLayout;
+import android.widget.ProgressBar;
 import android.widget.ToggleButton;
 import android.widget.Chronometer;
 
-import com.example.veronica.minesweeper.view.MineSweeperView;
+import com.example.veronica.minesweeper.model.BoardPrefetcher;
+import com.example.veronica.minesweeper.model.BoardSnapshot;
+import com.example.veronica.minesweeper.model.GameLog;
+import com.example.veronica.minesweeper.model.Metrics;
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+import com.example.veronica.minesweeper.model.MoveJournal;
+import com.example.veronica.minesweeper.view.GameBoardView;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 
 /**
  * Created by Veronica Child on 9/27/16.
@@ -26,10 +38,50 @@ import com.example.veronica.minesweeper.view.MineSweeperView;
 
 
 public class MainActivity extends AppCompatActivity {
+    private static final String KEY_SNAPSHOT = "snapshot";
+    private static final String KEY_SNAPSHOT_IN_FILE = "snapshotInFile";
+    private static final String KEY_ELAPSED = "elapsed";
+    private static final String SNAPSHOT_FILE = "board.snapshot";
+    //Moves of the current game, kept for reproducing bugs
+    private static final String JOURNAL_FILE = "game.journal";
+
+    //Larger snapshots go to a file to stay well inside the Binder transaction limit
+    private static final int MAX_BUNDLE_SNAPSHOT_BYTES = 64 * 1024;
+
+    //Builds the next board in the background while a game is played, kept across rotations
+    private static BoardPrefetcher prefetcher = null;
 
     private LinearLayout layoutContent;
-    private MineSweeperView gameView;
+    private GameBoardView gameView;
     private Chronometer timer;
+    private Button btnRestart;
+    private ProgressBar progressGenerating;
+
+    //Swaps in a board that was still being generated when restart was pressed
+    private final BoardPrefetcher.Listener boardListener = new BoardPrefetcher.Listener() {
+        @Override
+        public void onBoardReady(final MineSweeperModel model) {
+            runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    startGame(model);
+                }
+            });
+        }
+
+        @Override
+        public void onBoardFailed(final Throwable error) {
+            runOnUiThread(new Runnable() {
+                @Override
+                public void run() {
+                    generationFailed(error);
+                }
+            });
+        }
+    };
+
+    //Time played when the timer was stopped, -1 while it is running
+    private long stoppedElapsed = -1;
 
     public boolean inFlagMode = false;
 
@@ -38,10 +90,25 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
+        //Only debug builds pay for building the game core's log messages and recording metrics
+        if (BuildConfig.DEBUG) {
+            GameLog.setLogger(new AndroidLogger());
+            Metrics.setEnabled(true);
+        }
+
+        //Restores the game if the process was killed, the shared model survives rotation alone
+        long elapsed = 0;
+        if (savedInstanceState != null) {
+            elapsed = savedInstanceState.getLong(KEY_ELAPSED);
+            if (!MineSweeperModel.hasInstance()) {
+                restoreGame(savedInstanceState);
+            }
+        }
+
         //layout
         layoutContent = (LinearLayout) findViewById(R.id.layoutContent);
 
-        gameView = (MineSweeperView) findViewById(R.id.gameView);
+        gameView = (GameBoardView) findViewById(R.id.gameView);
 
         //Toggle button: alternates between try (disabled) and flag mode (isChecked)
         ToggleButton btnToggle = (ToggleButton) findViewById(R.id.btnToggle);
@@ -62,17 +129,180 @@ public class MainActivity extends AppCompatActivity {
         //Chronometer: times the user's play round
         timer = (Chronometer) findViewById(R.id.timer);
         timer.setFormat(getResources().getString(R.string.text_timer));
-        timer.start();
+        timer.setBase(SystemClock.elapsedRealtime() - elapsed);
+        if (MineSweeperModel.getInstance().getGameState() == 0) {
+            timer.start();
+        } else {
+            stoppedElapsed = elapsed;
+        }
 
-        //Restart button: resets game view
-        Button btnRestart = (Button) findViewById(R.id.btnRestart);
+        //Undo and redo buttons: step back and forward through the moves of this round
+        Button btnUndo = (Button) findViewById(R.id.btnUndo);
+        btnUndo.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                gameView.undoMove();
+                if (MineSweeperModel.getInstance().getGameState() == 0) {
+                    resumeTimer();
+                }
+            }
+        });
+        Button btnRedo = (Button) findViewById(R.id.btnRedo);
+        btnRedo.setOnClickListener(new View.OnClickListener() {
+            @Override
+            public void onClick(View view) {
+                gameView.redoMove();
+            }
+        });
+
+        //Restart button: swaps in the prefetched board, or waits for it without blocking
+        progressGenerating = (ProgressBar) findViewById(R.id.progressGenerating);
+        btnRestart = (Button) findViewById(R.id.btnRestart);
         btnRestart.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                gameView.restartGame();
-                resetTimer();
+                MineSweeperModel model;
+                try {
+                    model = getPrefetcher().take(boardListener);
+                } catch (IllegalStateException e) {
+                    generationFailed(e.getCause());
+                    return;
+                }
+                if (model != null) {
+                    startGame(model);
+                } else {
+                    btnRestart.setEnabled(false);
+                    progressGenerating.setVisibility(View.VISIBLE);
+                }
             }
         });
+        //starts on the first board right away
+        getPrefetcher();
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        //a board still being generated is kept for the next restart
+        getPrefetcher().cancel(boardListener);
+    }
+
+    /**
+     * Returns the prefetcher, creating it for boards the size of the current game
+     */
+    private static BoardPrefetcher getPrefetcher() {
+        if (prefetcher == null) {
+            MineSweeperModel model = MineSweeperModel.getInstance();
+            prefetcher = new BoardPrefetcher(model.getBoardWidth(), model.getBoardHeight(),
+                    model.getNumberOfMines());
+        }
+        return prefetcher;
+    }
+
+    /**
+     * Makes a freshly generated board the current game
+     *
+     * @param model the new board
+     */
+    private void startGame(MineSweeperModel model) {
+        MineSweeperModel.setInstance(model);
+        gameView.showNewGame();
+        resetTimer();
+        progressGenerating.setVisibility(View.GONE);
+        btnRestart.setEnabled(true);
+    }
+
+    /**
+     * Lets the current game go on after the next board could not be generated; restart tries
+     * again
+     *
+     * @param error what generation threw
+     */
+    private void generationFailed(Throwable error) {
+        Log.w(getString(R.string.tag_generation), error);
+        progressGenerating.setVisibility(View.GONE);
+        btnRestart.setEnabled(true);
+        showSimpleSnackbarMessage(getString(R.string.text_generation_failed));
+    }
+
+    /**
+     * Appends the moves made since the last pause to the journal file, starting the file afresh
+     * for a new game
+     */
+    @Override
+    protected void onPause() {
+        super.onPause();
+        MoveJournal journal = MineSweeperModel.getInstance().getJournal();
+        if (journal == null) {
+            return;
+        }
+        try {
+            FileOutputStream out = new FileOutputStream(new File(getFilesDir(), JOURNAL_FILE),
+                    journal.hasFlushed());
+            try {
+                journal.flushTo(out);
+            } finally {
+                out.close();
+            }
+        } catch (IOException e) {
+            Log.w(getString(R.string.tag_snapshot), e);
+        }
+    }
+
+    /**
+     * Saves the game as a snapshot, in the Bundle for small boards or a file for large ones
+     */
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        long elapsed = getElapsedMillis();
+        outState.putLong(KEY_ELAPSED, elapsed);
+        BoardSnapshot snapshot = new BoardSnapshot(MineSweeperModel.getInstance(), elapsed);
+        if (snapshot.sizeInBytes() <= MAX_BUNDLE_SNAPSHOT_BYTES) {
+            outState.putByteArray(KEY_SNAPSHOT, snapshot.toBytes());
+        } else {
+            try {
+                snapshot.writeTo(new File(getFilesDir(), SNAPSHOT_FILE));
+                outState.putBoolean(KEY_SNAPSHOT_IN_FILE, true);
+            } catch (IOException e) {
+                Log.w(getString(R.string.tag_snapshot), e);
+            }
+        }
+    }
+
+    /**
+     * Replaces the shared model with the snapshot saved by onSaveInstanceState, if there is one
+     *
+     * @param savedInstanceState state passed to onCreate
+     */
+    private void restoreGame(Bundle savedInstanceState) {
+        try {
+            BoardSnapshot snapshot = null;
+            byte[] bytes = savedInstanceState.getByteArray(KEY_SNAPSHOT);
+            if (bytes != null) {
+                snapshot = BoardSnapshot.fromBytes(bytes);
+            } else if (savedInstanceState.getBoolean(KEY_SNAPSHOT_IN_FILE)) {
+                snapshot = BoardSnapshot.readFrom(new File(getFilesDir(), SNAPSHOT_FILE));
+            }
+            if (snapshot != null) {
+                MineSweeperModel.setInstance(snapshot.getModel());
+            }
+        } catch (IOException e) {
+            //a fresh game is started instead
+            Log.w(getString(R.string.tag_snapshot), e);
+        } catch (IllegalArgumentException e) {
+            Log.w(getString(R.string.tag_snapshot), e);
+        }
+    }
+
+    /**
+     * Returns the time played this round
+     */
+    private long getElapsedMillis() {
+        if (stoppedElapsed >= 0) {
+            return stoppedElapsed;
+        }
+        return SystemClock.elapsedRealtime() - timer.getBase();
     }
 
     /**
@@ -99,13 +329,28 @@ public class MainActivity extends AppCompatActivity {
     private void resetTimer() {
         timer.setBase(SystemClock.elapsedRealtime());
         timer.start();
+        stoppedElapsed = -1;
 
     }
 
+    /**
+     * Restarts a stopped timer from where it stopped
+     */
+    private void resumeTimer() {
+        if (stoppedElapsed >= 0) {
+            timer.setBase(SystemClock.elapsedRealtime() - stoppedElapsed);
+            timer.start();
+            stoppedElapsed = -1;
+        }
+    }
+
     /**
      * Pauses the timer
      */
     public void stopTimer() {
+        if (stoppedElapsed < 0) {
+            stoppedElapsed = getElapsedMillis();
+        }
         timer.stop();
     }
 }
@@ -0,0 +1,169 @@
+package com.example.veronica.minesweeper.view;
+
+/**
+ * Which part of the board is on screen: the size of a square in pixels and the board pixel
+ * shown at the view's top left corner. Kept apart from the views so a render thread can draw
+ * from its own copy while the UI thread pans and zooms.
+ */
+
+class BoardCamera {
+    //Fewest squares visible across the view when fully zoomed in
+    private static final int MIN_VISIBLE_CELLS = 5;
+
+    private int viewWidth;
+    private int viewHeight;
+    private int boardWidth = 1;
+    private int boardHeight = 1;
+
+    private float scale = 1;
+    private float offsetX;
+    private float offsetY;
+
+    /**
+     * Copies another camera, including its view and board size
+     *
+     * @param other the camera to copy
+     */
+    void set(BoardCamera other) {
+        viewWidth = other.viewWidth;
+        viewHeight = other.viewHeight;
+        boardWidth = other.boardWidth;
+        boardHeight = other.boardHeight;
+        scale = other.scale;
+        offsetX = other.offsetX;
+        offsetY = other.offsetY;
+    }
+
+    /**
+     * Sets the sizes of the view and board and zooms out to show the whole board
+     *
+     * @param viewWidth   view width in pixels
+     * @param viewHeight  view height in pixels
+     * @param boardWidth  number of columns
+     * @param boardHeight number of rows
+     */
+    void reset(int viewWidth, int viewHeight, int boardWidth, int boardHeight) {
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        scale = fitScale();
+        offsetX = 0;
+        offsetY = 0;
+        clamp();
+    }
+
+    /**
+     * Zooms while keeping the board point under the focus still
+     */
+    void zoomBy(float factor, float focusX, float focusY) {
+        float oldScale = scale;
+        scale *= factor;
+        clamp();
+        float applied = scale / oldScale;
+        offsetX = (offsetX + focusX) * applied - focusX;
+        offsetY = (offsetY + focusY) * applied - focusY;
+        clamp();
+    }
+
+    void panBy(float distanceX, float distanceY) {
+        offsetX += distanceX;
+        offsetY += distanceY;
+        clamp();
+    }
+
+    /**
+     * Returns the square size that fits the whole board in the view
+     */
+    private float fitScale() {
+        return Math.min(viewWidth / (float) boardWidth, viewHeight / (float) boardHeight);
+    }
+
+    /**
+     * Keeps the zoom within limits and the board on screen, centring it when it is smaller
+     */
+    private void clamp() {
+        float minScale = fitScale();
+        float maxScale = Math.max(minScale, Math.min(viewWidth, viewHeight) /
+                (float) MIN_VISIBLE_CELLS);
+        scale = Math.max(minScale, Math.min(maxScale, scale));
+        float boardPixelsX = boardWidth * scale;
+        float boardPixelsY = boardHeight * scale;
+        offsetX = boardPixelsX <= viewWidth ? (boardPixelsX - viewWidth) / 2 :
+                Math.max(0, Math.min(boardPixelsX - viewWidth, offsetX));
+        offsetY = boardPixelsY <= viewHeight ? (boardPixelsY - viewHeight) / 2 :
+                Math.max(0, Math.min(boardPixelsY - viewHeight, offsetY));
+    }
+
+    float getScale() {
+        return scale;
+    }
+
+    float getOffsetX() {
+        return offsetX;
+    }
+
+    float getOffsetY() {
+        return offsetY;
+    }
+
+    int getViewWidth() {
+        return viewWidth;
+    }
+
+    int getViewHeight() {
+        return viewHeight;
+    }
+
+    int getBoardWidth() {
+        return boardWidth;
+    }
+
+    int getBoardHeight() {
+        return boardHeight;
+    }
+
+    /**
+     * Returns the on-screen x coordinate of a column's left edge
+     */
+    float cellLeft(int i) {
+        return i * scale - offsetX;
+    }
+
+    /**
+     * Returns the on-screen y coordinate of a row's top edge
+     */
+    float cellTop(int j) {
+        return j * scale - offsetY;
+    }
+
+    /**
+     * Returns the column under a point on screen, which may be off the board
+     */
+    int columnAt(float screenX) {
+        return (int) Math.floor((screenX + offsetX) / scale);
+    }
+
+    /**
+     * Returns the row under a point on screen, which may be off the board
+     */
+    int rowAt(float screenY) {
+        return (int) Math.floor((screenY + offsetY) / scale);
+    }
+
+    int firstVisibleColumn() {
+        return Math.max(0, (int) (offsetX / scale));
+    }
+
+    int lastVisibleColumn() {
+        return Math.min(boardWidth - 1, (int) ((offsetX + viewWidth) / scale));
+    }
+
+    int firstVisibleRow() {
+        return Math.max(0, (int) (offsetY / scale));
+    }
+
+    int lastVisibleRow() {
+        return Math.min(boardHeight - 1, (int) ((offsetY + viewHeight) / scale));
+    }
+}
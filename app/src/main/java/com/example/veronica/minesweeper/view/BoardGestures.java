@@ -0,0 +1,146 @@
+package com.example.veronica.minesweeper.view;
+
+import android.os.SystemClock;
+import android.view.GestureDetector;
+import android.view.HapticFeedbackConstants;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+import com.example.veronica.minesweeper.model.Metrics;
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+/**
+ * Turns touches on a board view into camera moves and plays: drag pans, pinch zooms, a tap tries
+ * or flags a square or chords a number, and a long press flags or unflags a square.
+ * Each MotionEvent is handled once however many historical samples were batched into it, so a
+ * fast drag moves the camera once per event rather than once per sample. Runs on the UI thread.
+ */
+
+final class BoardGestures {
+
+    /**
+     * Told what the gestures did, with when the touch behind it was delivered (0 when metrics are
+     * off) so the view can time touch to frame
+     */
+    interface Callback {
+        void onCameraMoved(long touchNanos);
+
+        void onPlayed(long touchNanos);
+    }
+
+    private final View view;
+    private final BoardCamera camera;
+    private final Callback callback;
+    private final GestureDetector gestureDetector;
+    private final ScaleGestureDetector scaleDetector;
+
+    //When the latest touch was delivered, 0 when metrics are off
+    private long touchNanos;
+
+    BoardGestures(View view, BoardCamera camera, Callback callback) {
+        this.view = view;
+        this.camera = camera;
+        this.callback = callback;
+        gestureDetector = new GestureDetector(view.getContext(), new BoardGestureListener());
+        scaleDetector = new ScaleGestureDetector(view.getContext(), new BoardScaleListener());
+    }
+
+    boolean onTouchEvent(MotionEvent event) {
+        if (Metrics.isEnabled()) {
+            //back-dates to the oldest sample batched into the event, which has waited longest
+            long eventTime = event.getHistorySize() > 0 ? event.getHistoricalEventTime(0) :
+                    event.getEventTime();
+            touchNanos = System.nanoTime() - (SystemClock.uptimeMillis() - eventTime) * 1000000L;
+        } else {
+            touchNanos = 0;
+        }
+        scaleDetector.onTouchEvent(event);
+        gestureDetector.onTouchEvent(event);
+        return true;
+    }
+
+    /**
+     * Plays a tap: chords a number, places a flag or tries the square under the finger
+     *
+     * @param screenX tap position in view pixels
+     * @param screenY tap position in view pixels
+     */
+    private void onTap(float screenX, float screenY) {
+        if (MineSweeperModel.getInstance().getGameState() != 0) {
+            return;
+        }
+        if (BoardPainter.isOverview(camera)) {
+            //squares are too small to hit, zoom in around the tap instead
+            camera.zoomBy(4, screenX, screenY);
+            callback.onCameraMoved(touchNanos);
+            return;
+        }
+        // Maps the touch through the camera to the square under it
+        if (GameActions.playTap(view.getContext(), camera.columnAt(screenX),
+                camera.rowAt(screenY))) {
+            callback.onPlayed(touchNanos);
+        }
+    }
+
+    /**
+     * Flags or unflags the square under a long press
+     *
+     * @param screenX press position in view pixels
+     * @param screenY press position in view pixels
+     */
+    private void onLongPress(float screenX, float screenY) {
+        if (MineSweeperModel.getInstance().getGameState() != 0 ||
+                BoardPainter.isOverview(camera) || scaleDetector.isInProgress()) {
+            return;
+        }
+        if (GameActions.playLongPress(view.getContext(), camera.columnAt(screenX),
+                camera.rowAt(screenY))) {
+            view.performHapticFeedback(HapticFeedbackConstants.LONG_PRESS);
+            //the press is recognised after a timeout, so time the frame from now, not the touch
+            callback.onPlayed(Metrics.isEnabled() ? System.nanoTime() : 0);
+        }
+    }
+
+    /**
+     * Pans the camera on drag and plays taps and long presses
+     */
+    private class BoardGestureListener extends GestureDetector.SimpleOnGestureListener {
+        @Override
+        public boolean onDown(MotionEvent e) {
+            return true;
+        }
+
+        @Override
+        public boolean onSingleTapUp(MotionEvent e) {
+            onTap(e.getX(), e.getY());
+            return true;
+        }
+
+        @Override
+        public void onLongPress(MotionEvent e) {
+            BoardGestures.this.onLongPress(e.getX(), e.getY());
+        }
+
+        @Override
+        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX,
+                                float distanceY) {
+            //the distance covers every sample since the last event
+            camera.panBy(distanceX, distanceY);
+            callback.onCameraMoved(touchNanos);
+            return true;
+        }
+    }
+
+    /**
+     * Zooms the camera on pinch
+     */
+    private class BoardScaleListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
+        @Override
+        public boolean onScale(ScaleGestureDetector detector) {
+            camera.zoomBy(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+            callback.onCameraMoved(touchNanos);
+            return true;
+        }
+    }
+}
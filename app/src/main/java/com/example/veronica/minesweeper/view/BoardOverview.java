@@ -0,0 +1,117 @@
+package com.example.veronica.minesweeper.view;
+
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+/**
+ * Per-block summaries of how much of the board has been revealed, used to draw the board when
+ * zoomed out too far to draw squares one at a time.
+ * Each level groups 4x4 blocks of the level below, so the level chosen for a zoom always has
+ * blocks between one and four times the minimum on-screen size and a frame draws about the same
+ * number of blocks whatever the board size. Counts are updated per square as the game changes.
+ */
+
+class BoardOverview {
+    //Each level's blocks are 1 << (LEVEL_SHIFT * (level + 1)) squares wide
+    static final int LEVEL_SHIFT = 2;
+
+    private final int boardWidth;
+    private final int boardHeight;
+
+    //Number of uncovered or flagged squares in each block, row by row, per level
+    private final int[][] revealed;
+    private final int[] blocksWide;
+
+    /**
+     * Summarises a board on which nothing has been revealed yet, without scanning it
+     *
+     * @param boardWidth  number of columns
+     * @param boardHeight number of rows
+     */
+    BoardOverview(int boardWidth, int boardHeight) {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        int levels = 0;
+        while ((boardWidth > 1 << (LEVEL_SHIFT * levels) ||
+                boardHeight > 1 << (LEVEL_SHIFT * levels)) && levels < 15) {
+            levels++;
+        }
+        levels = Math.max(levels, 1);
+        revealed = new int[levels][];
+        blocksWide = new int[levels];
+        for (int level = 0; level < levels; level++) {
+            int shift = shift(level);
+            blocksWide[level] = ((boardWidth - 1) >> shift) + 1;
+            revealed[level] = new int[blocksWide[level] * (((boardHeight - 1) >> shift) + 1)];
+        }
+    }
+
+    /**
+     * Summarises a game in progress, counting every revealed square
+     *
+     * @param boardWidth  number of columns
+     * @param boardHeight number of rows
+     * @param covers      the game's cover states
+     */
+    BoardOverview(int boardWidth, int boardHeight, CoverReader covers) {
+        this(boardWidth, boardHeight);
+        for (int y = 0; y < boardHeight; y++) {
+            for (int x = 0; x < boardWidth; x++) {
+                if (covers.getCoverContent(x, y) != MineSweeperModel.COVERED) {
+                    add(x, y, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds another summary's counts of the same board, such as the changes collected while this
+     * one was being counted
+     *
+     * @param changes summary of the same size, whose counts may be negative
+     */
+    void add(BoardOverview changes) {
+        for (int level = 0; level < revealed.length; level++) {
+            for (int block = 0; block < revealed[level].length; block++) {
+                revealed[level][block] += changes.revealed[level][block];
+            }
+        }
+    }
+
+    int levels() {
+        return revealed.length;
+    }
+
+    static int shift(int level) {
+        return LEVEL_SHIFT * (level + 1);
+    }
+
+    /**
+     * Records a change to one square
+     *
+     * @param x     square's column
+     * @param y     square's row
+     * @param delta 1 when a covered square is revealed or flagged, -1 when it is covered again
+     */
+    void add(int x, int y, int delta) {
+        for (int level = 0; level < revealed.length; level++) {
+            int shift = shift(level);
+            revealed[level][(y >> shift) * blocksWide[level] + (x >> shift)] += delta;
+        }
+    }
+
+    /**
+     * Returns the fraction of a block's squares that are revealed
+     *
+     * @param level summary level
+     * @param bx    block column
+     * @param by    block row
+     */
+    float revealedFraction(int level, int bx, int by) {
+        int shift = shift(level);
+        int width = Math.min(1 << shift, boardWidth - (bx << shift));
+        int height = Math.min(1 << shift, boardHeight - (by << shift));
+        //a summary of changes alone can count squares covered again below zero
+        return Math.max(0, revealed[level][by * blocksWide[level] + bx]) /
+                (float) (width * height);
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.veronica.minesweeper.view;
+
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+
+import com.example.veronica.minesweeper.model.BoardChange;
+import com.example.veronica.minesweeper.model.IntList;
+import com.example.veronica.minesweeper.model.Metrics;
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+/**
+ * Draws the board through a camera: squares copied from the tile atlas when zoomed in, shaded
+ * overview blocks when zoomed out. Holds the paints, atlas and overview, so each renderer owns
+ * one and only uses it from the thread that draws.
+ */
+
+class BoardPainter {
+    //Squares smaller than this many pixels are drawn as overview blocks
+    static final float OVERVIEW_CELL_PIXELS = 6;
+
+    //Squares smaller than this many pixels are drawn without grid lines
+    private static final float GRID_CELL_PIXELS = 16;
+
+    private final Paint paintBg;
+    private final Paint paintLine;
+    private final Paint paintCovered;
+    private final Paint paintFlag;
+    private final Paint paintMine;
+    private final Paint paintNumber;
+    private final Paint paintOverview;
+    private final Paint paintTile;
+    private final Paint paintMetrics;
+
+    //Pre-drawn square pictures for the current square size, and the square being copied to
+    private TileAtlas atlas;
+    private final RectF cellRect = new RectF();
+
+    private BoardOverview overview;
+
+    BoardPainter() {
+        //light grey field
+        paintBg = new Paint();
+        paintBg.setColor(Color.LTGRAY);
+
+        //dark grey covered squares
+        paintCovered = new Paint();
+        paintCovered.setColor(Color.DKGRAY);
+
+        //white grid lines
+        paintLine = new Paint();
+        paintLine.setColor(Color.WHITE);
+        paintLine.setStyle(Paint.Style.STROKE);
+        paintLine.setStrokeWidth(10);
+
+        //black mines
+        paintMine = new Paint();
+        paintMine.setColor(Color.BLACK);
+        paintMine.setStyle(Paint.Style.FILL_AND_STROKE);
+        paintMine.setStrokeWidth(10);
+
+        //red flag
+        paintFlag = new Paint();
+        paintFlag.setColor(Color.RED);
+        paintFlag.setStyle(Paint.Style.FILL_AND_STROKE);
+        paintFlag.setStrokeWidth(10);
+
+        //Cyan numbers
+        paintNumber = new Paint();
+        paintNumber.setColor(Color.CYAN);
+        paintNumber.setStyle(Paint.Style.STROKE);
+        paintNumber.setTextSize(95);
+        paintNumber.setStrokeWidth(8);
+
+        //overview blocks, coloured per block
+        paintOverview = new Paint();
+
+        //smooths tiles scaled down from the atlas
+        paintTile = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+        //debug metrics overlay
+        paintMetrics = new Paint();
+        paintMetrics.setColor(Color.MAGENTA);
+        paintMetrics.setTextSize(28);
+    }
+
+    static boolean isOverview(BoardCamera camera) {
+        return camera.getScale() < OVERVIEW_CELL_PIXELS;
+    }
+
+    /**
+     * Starts a new overview, for a new board or one that changed too much to follow
+     *
+     * @param overview summary of the board's revealed squares
+     */
+    void setOverview(BoardOverview overview) {
+        this.overview = overview;
+    }
+
+    boolean hasOverview() {
+        return overview != null;
+    }
+
+    /**
+     * Brings the overview up to date with squares that were revealed or covered again
+     *
+     * @param change     the changed squares
+     * @param boardWidth number of columns
+     */
+    void applyChange(BoardChange change, int boardWidth) {
+        for (int k = 0; k < change.size(); k++) {
+            //squares flip between covered and flagged or uncovered, undo covers them again
+            int revealed = (change.getNewCover(k) == MineSweeperModel.COVERED ? 0 : 1) -
+                    (change.getOldCover(k) == MineSweeperModel.COVERED ? 0 : 1);
+            if (revealed != 0) {
+                overview.add(change.getCell(k) % boardWidth, change.getCell(k) / boardWidth,
+                        revealed);
+            }
+        }
+    }
+
+    /**
+     * Draws every visible square, or the overview when zoomed out
+     *
+     * @param canvas Object where board is drawn
+     * @param camera part of the board on screen
+     * @param model  the game, read for numbers and mines only
+     * @param covers the squares' cover states
+     */
+    void drawBoard(Canvas canvas, BoardCamera camera, MineSweeperModel model, CoverReader covers) {
+        updatePaintSizes(camera.getScale());
+        canvas.drawRect(0, 0, camera.getViewWidth(), camera.getViewHeight(), paintBg);
+        if (isOverview(camera)) {
+            drawOverview(canvas, camera);
+            return;
+        }
+        drawGrid(canvas, camera);
+        for (int i = camera.firstVisibleColumn(); i <= camera.lastVisibleColumn(); i++) {
+            for (int j = camera.firstVisibleRow(); j <= camera.lastVisibleRow(); j++) {
+                drawCell(canvas, camera, model, i, j, covers.getCoverContent(i, j));
+            }
+        }
+    }
+
+    /**
+     * Redraws only the squares that changed, clipped to each square
+     *
+     * @param canvas     cached board canvas
+     * @param camera     part of the board on screen
+     * @param model      the game, read for numbers and mines only
+     * @param cells      indices of the changed squares
+     * @param cellCovers the squares' new cover states, in the same order
+     */
+    void drawCells(Canvas canvas, BoardCamera camera, MineSweeperModel model, IntList cells,
+                   IntList cellCovers) {
+        updatePaintSizes(camera.getScale());
+        float scale = camera.getScale();
+        int boardWidth = camera.getBoardWidth();
+        for (int k = 0; k < cells.size(); k++) {
+            int i = cells.get(k) % boardWidth;
+            int j = cells.get(k) / boardWidth;
+            float left = camera.cellLeft(i);
+            float top = camera.cellTop(j);
+            float right = left + scale;
+            float bottom = top + scale;
+            canvas.save();
+            canvas.clipRect(left, top, right, bottom);
+            canvas.drawRect(left, top, right, bottom, paintBg);
+            if (scale >= GRID_CELL_PIXELS) {
+                canvas.drawLine(left, top, right, top, paintLine);
+                canvas.drawLine(left, bottom, right, bottom, paintLine);
+                canvas.drawLine(left, top, left, bottom, paintLine);
+                canvas.drawLine(right, top, right, bottom, paintLine);
+            }
+            drawCell(canvas, camera, model, i, j, (short) cellCovers.get(k));
+            canvas.restore();
+        }
+    }
+
+    /**
+     * Draws the metrics dump over the top left of the board
+     *
+     * @param canvas Object where the overlay is drawn
+     */
+    void drawMetrics(Canvas canvas) {
+        float y = paintMetrics.getTextSize();
+        for (String line : Metrics.dump().split("\n")) {
+            canvas.drawText(line, 4, y, paintMetrics);
+            y += paintMetrics.getTextSize() * 1.2f;
+        }
+    }
+
+    /**
+     * Draws the board zoomed out, one shaded block per group of squares.
+     * Lighter blocks have more of their squares revealed.
+     *
+     * @param canvas Object where board is drawn
+     * @param camera part of the board on screen
+     */
+    private void drawOverview(Canvas canvas, BoardCamera camera) {
+        float scale = camera.getScale();
+        int level = 0;
+        while (level < overview.levels() - 1 &&
+                (1 << BoardOverview.shift(level)) * scale < OVERVIEW_CELL_PIXELS) {
+            level++;
+        }
+        int shift = BoardOverview.shift(level);
+        float blockSize = (1 << shift) * scale;
+        int boardWidth = camera.getBoardWidth();
+        int boardHeight = camera.getBoardHeight();
+        int lastBx = camera.lastVisibleColumn() >> shift;
+        int lastBy = camera.lastVisibleRow() >> shift;
+        for (int bx = camera.firstVisibleColumn() >> shift; bx <= lastBx; bx++) {
+            for (int by = camera.firstVisibleRow() >> shift; by <= lastBy; by++) {
+                float fraction = overview.revealedFraction(level, bx, by);
+                int shade = (int) (Color.red(Color.DKGRAY) +
+                        fraction * (Color.red(Color.LTGRAY) - Color.red(Color.DKGRAY)));
+                paintOverview.setColor(Color.rgb(shade, shade, shade));
+                float left = bx * blockSize - camera.getOffsetX();
+                float top = by * blockSize - camera.getOffsetY();
+                canvas.drawRect(left, top,
+                        Math.min(left + blockSize, camera.cellLeft(boardWidth)),
+                        Math.min(top + blockSize, camera.cellTop(boardHeight)), paintOverview);
+            }
+        }
+    }
+
+    /**
+     * Copies the covered square, flag, mine or number tile for the square's state
+     *
+     * @param canvas Object where the square is drawn
+     * @param camera part of the board on screen
+     * @param model  the game being drawn
+     * @param i      the row of the square
+     * @param j      the column of the square
+     * @param cover  the square's cover state
+     */
+    private void drawCell(Canvas canvas, BoardCamera camera, MineSweeperModel model, int i, int j,
+                          short cover) {
+        int tile;
+        if (cover == MineSweeperModel.COVERED) {
+            tile = TileAtlas.COVERED_TILE;
+        } else if (cover == MineSweeperModel.FLAGGED) {
+            tile = TileAtlas.FLAG_TILE;
+        } else {
+            //Uncovered: the field content (a number or MINE) is the tile number
+            tile = model.getFieldContent(i, j);
+        }
+        cellRect.set(camera.cellLeft(i), camera.cellTop(j), camera.cellLeft(i + 1),
+                camera.cellTop(j + 1));
+        atlas.draw(canvas, tile, cellRect, paintTile);
+        Metrics.CELLS_DRAWN.add(1);
+    }
+
+    /**
+     * Draws grid layout for the visible part of the board
+     *
+     * @param canvas Object to display board
+     * @param camera part of the board on screen
+     */
+    private void drawGrid(Canvas canvas, BoardCamera camera) {
+        if (camera.getScale() < GRID_CELL_PIXELS) {
+            return;
+        }
+        float left = Math.max(0, camera.cellLeft(0));
+        float top = Math.max(0, camera.cellTop(0));
+        float right = Math.min(camera.getViewWidth(), camera.cellLeft(camera.getBoardWidth()));
+        float bottom = Math.min(camera.getViewHeight(), camera.cellTop(camera.getBoardHeight()));
+        // horizontal lines, including the border
+        for (int j = camera.firstVisibleRow(); j <= camera.lastVisibleRow() + 1; j++) {
+            canvas.drawLine(left, camera.cellTop(j), right, camera.cellTop(j), paintLine);
+        }
+        // vertical lines, including the border
+        for (int i = camera.firstVisibleColumn(); i <= camera.lastVisibleColumn() + 1; i++) {
+            canvas.drawLine(camera.cellLeft(i), top, camera.cellLeft(i), bottom, paintLine);
+        }
+    }
+
+    /**
+     * Sizes grid lines to the current square size, redrawing the tile atlas only when the
+     * square size crosses into a different tile size
+     */
+    private void updatePaintSizes(float scale) {
+        paintLine.setStrokeWidth(Math.min(10, scale / 20));
+        if (scale < OVERVIEW_CELL_PIXELS) {
+            //overview blocks do not use tiles
+            return;
+        }
+        if (atlas == null || atlas.getTileSize() != TileAtlas.tileSizeFor(scale)) {
+            if (atlas != null) {
+                atlas.recycle();
+            }
+            atlas = new TileAtlas(scale, paintCovered, paintFlag, paintMine, paintNumber);
+        }
+    }
+
+    /**
+     * Frees the atlas bitmap; the next draw makes a new one
+     */
+    void recycle() {
+        if (atlas != null) {
+            atlas.recycle();
+            atlas = null;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.veronica.minesweeper.view;
+
+/**
+ * Where the painter reads squares' cover states from: the model itself on the UI thread, or a
+ * BoardCovers copy on a render thread.
+ */
+
+interface CoverReader {
+    /**
+     * Returns COVERED, UNCOVERED or FLAGGED
+     *
+     * @param x square's column
+     * @param y square's row
+     */
+    short getCoverContent(int x, int y);
+}
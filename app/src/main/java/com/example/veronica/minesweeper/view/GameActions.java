@@ -0,0 +1,123 @@
+package com.example.veronica.minesweeper.view;
+
+import android.content.Context;
+
+import com.example.veronica.minesweeper.MainActivity;
+import com.example.veronica.minesweeper.R;
+import com.example.veronica.minesweeper.model.GameLog;
+import com.example.veronica.minesweeper.model.Metrics;
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+/**
+ * Plays taps on the shared model and shows the end of a game, for both board views.
+ * Runs on the UI thread; the views redraw from the changes the model publishes.
+ */
+
+final class GameActions {
+    private GameActions() {
+    }
+
+    /**
+     * Plays a tap on a square: chords a revealed number, otherwise places a flag or tries the
+     * square, depending on the mode
+     *
+     * @param context the activity
+     * @param tX      square's column, which may be off the board
+     * @param tY      square's row, which may be off the board
+     * @return true if the tap changed the board
+     */
+    static boolean playTap(Context context, int tX, int tY) {
+        MineSweeperModel model = MineSweeperModel.getInstance();
+        boolean inFlagMode = ((MainActivity) context).getFlagMode();
+        boolean onBoard = tX >= 0 && tY >= 0 &&
+                tX < model.getBoardWidth() && tY < model.getBoardHeight();
+        if (GameLog.isEnabled()) {
+            GameLog.log(context.getString(R.string.tag_touch),
+                    context.getString(R.string.log_touched, tX, tY));
+        }
+
+        boolean moved = false;
+        if (onBoard && model.getCoverContent(tX, tY) == MineSweeperModel.UNCOVERED) {
+            //Opens the number's other neighbours once its flags are all placed, as one move
+            int opened = model.chord(tX, tY).size();
+            if (opened > 0 && GameLog.isEnabled()) {
+                GameLog.log(context.getString(R.string.tag_touch),
+                        context.getString(R.string.log_chorded, tX, tY, opened));
+            }
+            moved = opened > 0;
+        } else if (onBoard && inFlagMode) {
+            //Flag mode on:
+            if (model.getCoverContent(tX, tY) == MineSweeperModel.COVERED) {
+                //Places a flag on a covered square
+                if (GameLog.isEnabled()) {
+                    GameLog.log(context.getString(R.string.tag_touch),
+                            context.getString(R.string.log_flagged, tX, tY));
+                }
+                model.setCoverContent(tX, tY, MineSweeperModel.FLAGGED);
+                Metrics.MOVES.add(1);
+                moved = true;
+            }
+        } else if (onBoard && !inFlagMode) {
+            //If flagged mode off, in try mode:
+            if (model.getCoverContent(tX, tY) == MineSweeperModel.COVERED) {
+                //Uncovers the square, cascading through empty regions as one change
+                model.uncover(tX, tY);
+                moved = true;
+            }
+        }
+        //any end of game reaches the view as a game state change
+        model.checkGameState();
+        return moved;
+    }
+
+    /**
+     * Plays a long press on a square: places or removes a flag, whatever the mode
+     *
+     * @param context the activity
+     * @param tX      square's column, which may be off the board
+     * @param tY      square's row, which may be off the board
+     * @return true if the press changed the board
+     */
+    static boolean playLongPress(Context context, int tX, int tY) {
+        MineSweeperModel model = MineSweeperModel.getInstance();
+        if (tX < 0 || tY < 0 || tX >= model.getBoardWidth() || tY >= model.getBoardHeight()) {
+            return false;
+        }
+        short cover = model.getCoverContent(tX, tY);
+        if (cover == MineSweeperModel.UNCOVERED) {
+            return false;
+        }
+        boolean flag = cover == MineSweeperModel.COVERED;
+        if (GameLog.isEnabled()) {
+            GameLog.log(context.getString(R.string.tag_touch), context.getString(
+                    flag ? R.string.log_flagged : R.string.log_unflagged, tX, tY));
+        }
+        model.setCoverContent(tX, tY, flag ? MineSweeperModel.FLAGGED : MineSweeperModel.COVERED);
+        Metrics.MOVES.add(1);
+        model.checkGameState();
+        return true;
+    }
+
+    /**
+     * Shows endgame message upon loss or win
+     *
+     * @param context   the activity
+     * @param gameState the state the game has moved to
+     */
+    static void showEndGame(Context context, short gameState) {
+        MainActivity activity = (MainActivity) context;
+        if (gameState == MineSweeperModel.WIN) {
+            activity.showSimpleSnackbarMessage(context.getString(R.string.text_win));
+            activity.stopTimer();
+        } else if (gameState == MineSweeperModel.mineLoss) {
+            //one move, so a single undo hides them again
+            MineSweeperModel.getInstance().revealMines();
+            activity.showSimpleSnackbarMessage(context.getString(R.string.text_mine_loss));
+            activity.stopTimer();
+        } else if (gameState == MineSweeperModel.flagLoss) {
+            MineSweeperModel.getInstance().revealMines();
+            activity.showSimpleSnackbarMessage(context.getString(R.string.text_flag_loss));
+            activity.stopTimer();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.veronica.minesweeper.view;
+
+/**
+ * What the activity needs from a board view, so MineSweeperView and MineSweeperSurfaceView can
+ * be swapped in activity_main without code changes.
+ */
+
+public interface GameBoardView {
+    /**
+     * Takes back the last move
+     */
+    void undoMove();
+
+    /**
+     * Makes the last undone move again
+     */
+    void redoMove();
+
+    /**
+     * Shows the shared model as a new game, after a fresh board has been swapped in
+     */
+    void showNewGame();
+}
@@ -0,0 +1,462 @@
+package com.example.veronica.minesweeper.view;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+
+import com.example.veronica.minesweeper.model.BoardChange;
+import com.example.veronica.minesweeper.model.BoardCovers;
+import com.example.veronica.minesweeper.model.BoardListener;
+import com.example.veronica.minesweeper.model.ChangeBatcher;
+import com.example.veronica.minesweeper.model.CoverSnapshot;
+import com.example.veronica.minesweeper.model.IntList;
+import com.example.veronica.minesweeper.model.Metrics;
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+/**
+ * The game board drawn on its own render thread, a drop-in replacement for MineSweeperView in
+ * activity_main. The UI thread only plays moves and moves the camera; their changes are batched
+ * and handed to the render thread, which draws at most once per display frame, paced by its own
+ * Choreographer, and only when something changed. The render thread never reads the model's
+ * cover states, which belong to the UI thread, but keeps a BoardCovers copy up to date from the
+ * batched changes; numbers and mines do not change during a game and are read directly. A new
+ * board is handed over as a CoverSnapshot, and the render thread makes the copy from it, so the
+ * UI thread never copies a whole board.
+ */
+
+public class MineSweeperSurfaceView extends SurfaceView implements GameBoardView,
+        SurfaceHolder.Callback {
+
+    //Drops changes made to a board that has been replaced
+    private static final BoardListener IGNORE_CHANGES = new BoardListener() {
+        @Override
+        public void onCellsChanged(BoardChange change) {
+        }
+
+        @Override
+        public void onGameStateChanged(short oldState, short newState) {
+        }
+
+        @Override
+        public void onBoardReset() {
+        }
+    };
+
+    //UI thread: the camera gestures move, and the model being listened to
+    private final BoardCamera camera = new BoardCamera();
+    private final BoardGestures gestures;
+    private final BoardListener modelListener = new ModelListener();
+    private MineSweeperModel listening;
+
+    //Everything handed from the UI thread to the render thread, guarded by lock
+    private final Object lock = new Object();
+    private final ChangeBatcher changes = new ChangeBatcher(new Runnable() {
+        @Override
+        public void run() {
+            requestFrame();
+        }
+    });
+    private final BoardCamera requestedCamera = new BoardCamera();
+    private boolean cameraChanged;
+    private MineSweeperModel pendingModel;
+    private CoverSnapshot pendingCovers;
+    private long pendingTouchNanos;
+    private Renderer renderer;
+
+    //Held while drawing to the surface, so surfaceDestroyed can wait for the frame to finish
+    private final Object surfaceLock = new Object();
+    private boolean surfaceValid;
+
+    public MineSweeperSurfaceView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        getHolder().addCallback(this);
+        gestures = new BoardGestures(this, camera, new BoardGestures.Callback() {
+            @Override
+            public void onCameraMoved(long touchNanos) {
+                synchronized (lock) {
+                    showTouch(touchNanos);
+                }
+                publishCamera();
+            }
+
+            @Override
+            public void onPlayed(long touchNanos) {
+                synchronized (lock) {
+                    showTouch(touchNanos);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void surfaceCreated(SurfaceHolder holder) {
+        synchronized (surfaceLock) {
+            surfaceValid = true;
+        }
+        Renderer started = new Renderer(holder);
+        started.start();
+        started.handler = new Handler(started.getLooper());
+        synchronized (lock) {
+            renderer = started;
+            //the new renderer starts from a fresh copy of the board
+            handOverBoard(MineSweeperModel.getInstance());
+            requestFrame();
+        }
+    }
+
+    @Override
+    public void surfaceChanged(SurfaceHolder holder, int format, int width, int height) {
+        MineSweeperModel model = MineSweeperModel.getInstance();
+        camera.reset(width, height, model.getBoardWidth(), model.getBoardHeight());
+        publishCamera();
+    }
+
+    @Override
+    public void surfaceDestroyed(SurfaceHolder holder) {
+        //waits for a frame being drawn, after which no more are
+        synchronized (surfaceLock) {
+            surfaceValid = false;
+        }
+        Renderer stopped;
+        synchronized (lock) {
+            stopped = renderer;
+            renderer = null;
+        }
+        if (stopped != null) {
+            stopped.quit();
+        }
+    }
+
+    /**
+     * Hands the render thread a model and a snapshot of its covers, which the render thread
+     * copies. Called holding lock.
+     */
+    private void handOverBoard(MineSweeperModel model) {
+        pendingModel = model;
+        pendingCovers = model.getCoverSnapshot();
+        //changes already queued are part of the snapshot, later ones are applied to its copy
+        changes.flushTo(IGNORE_CHANGES);
+        requestedCamera.set(camera);
+        cameraChanged = true;
+    }
+
+    /**
+     * Schedules a frame on the render thread if there is one and none is scheduled.
+     * Called holding lock.
+     */
+    private void requestFrame() {
+        if (renderer != null) {
+            renderer.requestFrame();
+        }
+    }
+
+    /**
+     * Passes the UI thread's camera to the render thread for the next frame
+     */
+    private void publishCamera() {
+        synchronized (lock) {
+            requestedCamera.set(camera);
+            cameraChanged = true;
+            requestFrame();
+        }
+    }
+
+    //Handles whether or not touch has been detected
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        return gestures.onTouchEvent(event);
+    }
+
+    /**
+     * Times the next frame from a touch, keeping the oldest touch not yet shown.
+     * Called holding lock.
+     *
+     * @param touchNanos when the touch was delivered, 0 when metrics are off
+     */
+    private void showTouch(long touchNanos) {
+        if (pendingTouchNanos == 0) {
+            pendingTouchNanos = touchNanos;
+        }
+    }
+
+    /**
+     * Keeps the board square, as MineSweeperView does
+     **/
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int w = MeasureSpec.getSize(widthMeasureSpec);
+        int h = MeasureSpec.getSize(heightMeasureSpec);
+        int d = w == 0 ? h : h == 0 ? w : w < h ? w : h;
+        setMeasuredDimension(d, d);
+    }
+
+    @Override
+    public void undoMove() {
+        MineSweeperModel.getInstance().undo();
+    }
+
+    @Override
+    public void redoMove() {
+        MineSweeperModel.getInstance().redo();
+    }
+
+    @Override
+    public void showNewGame() {
+        listenToModel();
+        MineSweeperModel model = MineSweeperModel.getInstance();
+        camera.reset(camera.getViewWidth(), camera.getViewHeight(), model.getBoardWidth(),
+                model.getBoardHeight());
+        synchronized (lock) {
+            handOverBoard(model);
+            requestFrame();
+        }
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        listenToModel();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        //the shared model outlives this view, so it must not keep a reference to it
+        if (listening != null) {
+            listening.removeBoardListener(modelListener);
+            listening = null;
+        }
+    }
+
+    /**
+     * Moves the listener onto the shared model if it was swapped for another one
+     */
+    private void listenToModel() {
+        MineSweeperModel model = MineSweeperModel.getInstance();
+        if (listening != model) {
+            if (listening != null) {
+                listening.removeBoardListener(modelListener);
+            }
+            model.addBoardListener(modelListener);
+            listening = model;
+        }
+    }
+
+    /**
+     * Runs on the UI thread as moves are made: queues square changes for the render thread and
+     * shows the end of a game once the move has finished
+     */
+    private class ModelListener implements BoardListener {
+        @Override
+        public void onCellsChanged(BoardChange change) {
+            synchronized (lock) {
+                changes.onCellsChanged(change);
+            }
+        }
+
+        @Override
+        public void onGameStateChanged(short oldState, final short newState) {
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    GameActions.showEndGame(getContext(), newState);
+                }
+            });
+        }
+
+        @Override
+        public void onBoardReset() {
+            synchronized (lock) {
+                handOverBoard(MineSweeperModel.getInstance());
+                requestFrame();
+            }
+        }
+    }
+
+    /**
+     * Draws frames on its own thread. Changed squares are patched into a cached picture of the
+     * board, which is then copied to the surface whole, since the surface's buffers do not keep
+     * the previous frame.
+     */
+    private final class Renderer extends HandlerThread implements Choreographer.FrameCallback {
+        private final SurfaceHolder holder;
+        private Handler handler;
+
+        //Guarded by lock
+        private boolean frameScheduled;
+
+        //Render thread only
+        private final BoardPainter painter = new BoardPainter();
+        private final BoardCamera renderCamera = new BoardCamera();
+        private MineSweeperModel model;
+        private BoardCovers covers;
+        private Bitmap boardBitmap;
+        private Canvas boardCanvas;
+        private boolean boardStale = true;
+        private final IntList dirtyCells = new IntList();
+        private final IntList dirtyCovers = new IntList();
+
+        private final CoverReader coverReader = new CoverReader() {
+            @Override
+            public short getCoverContent(int x, int y) {
+                return covers.getCoverContent(x, y);
+            }
+        };
+
+        //Applies batched changes while lock is held
+        private final BoardListener frameListener = new BoardListener() {
+            @Override
+            public void onCellsChanged(BoardChange change) {
+                covers.apply(change);
+                painter.applyChange(change, covers.getBoardWidth());
+                for (int k = 0; k < change.size(); k++) {
+                    dirtyCells.add(change.getCell(k));
+                    dirtyCovers.add(change.getNewCover(k));
+                }
+            }
+
+            @Override
+            public void onGameStateChanged(short oldState, short newState) {
+            }
+
+            @Override
+            public void onBoardReset() {
+            }
+        };
+
+        private final Runnable scheduleFrame = new Runnable() {
+            @Override
+            public void run() {
+                Choreographer.getInstance().postFrameCallback(Renderer.this);
+            }
+        };
+
+        Renderer(SurfaceHolder holder) {
+            super("BoardRenderer", Process.THREAD_PRIORITY_DISPLAY);
+            this.holder = holder;
+        }
+
+        /**
+         * Asks for a frame at the next vsync. Called holding lock.
+         */
+        void requestFrame() {
+            if (!frameScheduled) {
+                frameScheduled = true;
+                handler.post(scheduleFrame);
+            }
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            CoverSnapshot snapshot;
+            synchronized (lock) {
+                frameScheduled = false;
+                snapshot = pendingCovers;
+                if (snapshot != null) {
+                    model = pendingModel;
+                    pendingModel = null;
+                    pendingCovers = null;
+                }
+            }
+            if (snapshot != null) {
+                //copied and counted outside lock, so moves and pans are not held up
+                covers = new BoardCovers(snapshot);
+                painter.setOverview(new BoardOverview(covers.getBoardWidth(),
+                        covers.getBoardHeight(), coverReader));
+                boardStale = true;
+            }
+
+            long touch;
+            synchronized (lock) {
+                if (pendingCovers != null) {
+                    //another board was handed over meanwhile, and the queued changes are its
+                    requestFrame();
+                    return;
+                }
+                if (cameraChanged) {
+                    renderCamera.set(requestedCamera);
+                    cameraChanged = false;
+                    boardStale = true;
+                }
+                if (covers != null) {
+                    changes.flushTo(frameListener);
+                }
+                touch = pendingTouchNanos;
+                pendingTouchNanos = 0;
+            }
+            if (model == null || renderCamera.getViewWidth() <= 0 ||
+                    renderCamera.getViewHeight() <= 0) {
+                return;
+            }
+
+            long start = Metrics.start();
+            if (boardBitmap == null || boardBitmap.getWidth() != renderCamera.getViewWidth() ||
+                    boardBitmap.getHeight() != renderCamera.getViewHeight()) {
+                if (boardBitmap != null) {
+                    boardBitmap.recycle();
+                }
+                boardBitmap = Bitmap.createBitmap(renderCamera.getViewWidth(),
+                        renderCamera.getViewHeight(), Bitmap.Config.ARGB_8888);
+                boardCanvas = new Canvas(boardBitmap);
+                boardStale = true;
+            }
+            if (boardStale || BoardPainter.isOverview(renderCamera)) {
+                //overview blocks summarise many squares, so redraw the (flat cost) overview
+                painter.drawBoard(boardCanvas, renderCamera, model, coverReader);
+                boardStale = false;
+            } else if (!dirtyCells.isEmpty()) {
+                painter.drawCells(boardCanvas, renderCamera, model, dirtyCells, dirtyCovers);
+            }
+            dirtyCells.clear();
+            dirtyCovers.clear();
+
+            synchronized (surfaceLock) {
+                if (!surfaceValid) {
+                    return;
+                }
+                Canvas canvas = holder.lockCanvas();
+                if (canvas == null) {
+                    return;
+                }
+                try {
+                    canvas.drawBitmap(boardBitmap, 0, 0, null);
+                    if (Metrics.isEnabled()) {
+                        painter.drawMetrics(canvas);
+                    }
+                } finally {
+                    holder.unlockCanvasAndPost(canvas);
+                }
+            }
+            Metrics.DRAW.recordSince(start);
+            Metrics.FRAMES.add(1);
+            if (touch != 0) {
+                Metrics.TOUCH_TO_FRAME.recordSince(touch);
+            }
+        }
+
+        @Override
+        public boolean quit() {
+            //frees the bitmaps on the render thread once it has finished its last frame
+            handler.post(new Runnable() {
+                @Override
+                public void run() {
+                    Choreographer.getInstance().removeFrameCallback(Renderer.this);
+                    painter.recycle();
+                    if (boardBitmap != null) {
+                        boardBitmap.recycle();
+                    }
+                    Renderer.super.quit();
+                }
+            });
+            return true;
+        }
+    }
+}
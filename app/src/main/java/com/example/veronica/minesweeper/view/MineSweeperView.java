@@ -2,67 +2,110 @@ package com.example.veronica.minesweeper.view;
 
 import android.content.Context;
 import android.util.AttributeSet;
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Color;
-import android.graphics.Paint;
-import android.util.Log;
+import android.graphics.Rect;
 import android.view.MotionEvent;
 import android.view.View;
 
 
-import com.example.veronica.minesweeper.MainActivity;
-import com.example.veronica.minesweeper.R;
+import com.example.veronica.minesweeper.model.BoardChange;
+import com.example.veronica.minesweeper.model.BoardCovers;
+import com.example.veronica.minesweeper.model.BoardListener;
+import com.example.veronica.minesweeper.model.ChangeBatcher;
+import com.example.veronica.minesweeper.model.CoverSnapshot;
+import com.example.veronica.minesweeper.model.IntList;
+import com.example.veronica.minesweeper.model.Metrics;
 import com.example.veronica.minesweeper.model.MineSweeperModel;
+import com.example.veronica.minesweeper.model.MoveJournal;
 
 /**
  * Created by Veronica on 9/27/16.
  * Contains the gameboard and notifications for the Mine Sweeper game
  */
 
-public class MineSweeperView extends View {
+public class MineSweeperView extends View implements GameBoardView {
 
-    private Paint paintBg;
-    private Paint paintLine;
-    private Paint paintCovered;
-    private Paint paintFlag;
-    private Paint paintMine;
-    private Paint paintNumber;
+    //Drops changes made to a board that has been replaced
+    private static final BoardListener IGNORE_CHANGES = new BoardListener() {
+        @Override
+        public void onCellsChanged(BoardChange change) {
+        }
+
+        @Override
+        public void onGameStateChanged(short oldState, short newState) {
+        }
+
+        @Override
+        public void onBoardReset() {
+        }
+    };
+
+    //Reads cover states straight from the shared model, which lives on this thread
+    private static final CoverReader MODEL_COVERS = new CoverReader() {
+        @Override
+        public short getCoverContent(int x, int y) {
+            return MineSweeperModel.getInstance().getCoverContent(x, y);
+        }
+    };
+
+    private final BoardPainter painter = new BoardPainter();
+    private final BoardCamera camera = new BoardCamera();
+
+    //When the touch being shown was delivered, for touch-to-frame latency; 0 when none is pending
+    private long pendingTouchNanos;
+
+    //Cached picture of the visible board, patched square by square as the model changes
+    private Bitmap boardBitmap;
+    private Canvas boardCanvas;
+    private boolean boardStale = true;
+
+    //Squares changed since the last frame and the screen area they cover
+    private final IntList dirtyCells = new IntList();
+    private final IntList dirtyCovers = new IntList();
+    private final Rect dirtyRect = new Rect();
+
+    private final BoardGestures gestures;
+
+    //Collects changes while the overview is counted off the UI thread, null when none is
+    private BoardOverview overviewChanges;
+
+    //Model changes since the last frame, merged and handed to frameListener once per frame
+    private final ChangeBatcher changes = new ChangeBatcher(new Runnable() {
+        @Override
+        public void run() {
+            postOnAnimation(flushChanges);
+        }
+    });
+    private final Runnable flushChanges = new Runnable() {
+        @Override
+        public void run() {
+            changes.flushTo(frameListener);
+            boardReset = false;
+        }
+    };
+    //Set while a flush delivers a reset, whose summary and redraw cover the changes after it
+    private boolean boardReset;
+    private final BoardListener frameListener = new FrameListener();
+
+    //Model the batcher is registered with, null while detached
+    private MineSweeperModel listening;
 
     public MineSweeperView(Context context, AttributeSet attrs) {
         super(context, attrs);
+        gestures = new BoardGestures(this, camera, new BoardGestures.Callback() {
+            @Override
+            public void onCameraMoved(long touchNanos) {
+                showTouch(touchNanos);
+                invalidateBoard();
+            }
 
-        //light grey field
-        paintBg = new Paint();
-        paintBg.setColor(Color.LTGRAY);
-
-        //dark grey covered squares
-        paintCovered = new Paint();
-        paintCovered.setColor(Color.DKGRAY);
-
-        //white grid lines
-        paintLine = new Paint();
-        paintLine.setColor(Color.WHITE);
-        paintLine.setStyle(Paint.Style.STROKE);
-        paintLine.setStrokeWidth(10);
-
-        //black mines
-        paintMine = new Paint();
-        paintMine.setColor(Color.BLACK);
-        paintMine.setStyle(Paint.Style.FILL_AND_STROKE);
-        paintMine.setStrokeWidth(10);
-
-        //red flag
-        paintFlag = new Paint();
-        paintFlag.setColor(Color.RED);
-        paintFlag.setStyle(Paint.Style.FILL_AND_STROKE);
-        paintFlag.setStrokeWidth(10);
-
-        //Cyan numbers
-        paintNumber = new Paint();
-        paintNumber.setColor(Color.CYAN);
-        paintNumber.setStyle(Paint.Style.STROKE);
-        paintNumber.setTextSize(95);
-        paintNumber.setStrokeWidth(8);
+            @Override
+            public void onPlayed(long touchNanos) {
+                //the changes arrive in the next frame through frameListener
+                showTouch(touchNanos);
+            }
+        });
     }
 
     /**
@@ -73,202 +116,166 @@ public class MineSweeperView extends View {
     @Override
     protected void onDraw(Canvas canvas) {
         super.onDraw(canvas);
-
-        canvas.drawRect(0, 0, getWidth(), getHeight(), paintBg);
-
-        drawBoard(canvas);
-        drawGameField(canvas);
+        if (boardBitmap == null) {
+            return;
+        }
+        long start = Metrics.start();
+
+        if (boardStale) {
+            painter.drawBoard(boardCanvas, camera, MineSweeperModel.getInstance(), MODEL_COVERS);
+            boardStale = false;
+        } else {
+            painter.drawCells(boardCanvas, camera, MineSweeperModel.getInstance(), dirtyCells,
+                    dirtyCovers);
+        }
+        dirtyCells.clear();
+        dirtyCovers.clear();
+        canvas.drawBitmap(boardBitmap, 0, 0, null);
+
+        Metrics.DRAW.recordSince(start);
+        Metrics.FRAMES.add(1);
+        if (pendingTouchNanos != 0) {
+            Metrics.TOUCH_TO_FRAME.recordSince(pendingTouchNanos);
+            pendingTouchNanos = 0;
+        }
+        if (Metrics.isEnabled()) {
+            painter.drawMetrics(canvas);
+        }
     }
 
     /**
-     * Iterates over board, drawing numbers, flags, or mines on uncovered squares
+     * Queues squares to be redrawn and invalidates only the visible area they cover
      *
-     * @param canvas Object where board is drawn
+     * @param change the squares changed since the last frame, with their new covers
      */
-    private void drawGameField(Canvas canvas) {
-        for (int i = 0; i < 5; i++) {
-            for (int j = 0; j < 5; j++) {
-                if (MineSweeperModel.getInstance().getCoverContent(i, j) ==
-                        MineSweeperModel.COVERED) {
-                    //Covered - draws a grey square;
-                    drawCoveredSquare(i, j, canvas);
-                } else if (MineSweeperModel.getInstance().getCoverContent(i, j) ==
-                        MineSweeperModel.FLAGGED) {
-                    // draws a circle at the center of the square
-                    drawFlag(i, j, canvas);
-                } else if (MineSweeperModel.getInstance().getCoverContent(i, j) ==
-                        MineSweeperModel.UNCOVERED) {
-                    //Board has been uncovered
-                    if (MineSweeperModel.getInstance().getFieldContent(i, j) ==
-                            MineSweeperModel.MINE) {
-                        //If mine uncovered, draws a mine
-                        drawMine(i, j, canvas);
-                    } else {
-                        //Draws a number
-                        Log.d("TAG_DRAW", "Drawing number at: " + i + ", " + j);
-                        drawNumber(i, j, canvas);
-                    }
-                }
+    private void invalidateCells(BoardChange change) {
+        painter.applyChange(change, camera.getBoardWidth());
+        if (BoardPainter.isOverview(camera)) {
+            //overview blocks summarise many squares, so redraw the (flat cost) overview
+            invalidateBoard();
+            return;
+        }
+        float scale = camera.getScale();
+        dirtyRect.setEmpty();
+        for (int k = 0; k < change.size(); k++) {
+            int i = change.getCell(k) % camera.getBoardWidth();
+            int j = change.getCell(k) / camera.getBoardWidth();
+            int left = (int) camera.cellLeft(i);
+            int top = (int) camera.cellTop(j);
+            if (left + scale < 0 || top + scale < 0 || left > getWidth() || top > getHeight()) {
+                //off screen squares are drawn when they scroll into view
+                continue;
             }
+            dirtyCells.add(change.getCell(k));
+            dirtyCovers.add(change.getNewCover(k));
+            dirtyRect.union(left, top, (int) Math.ceil(left + scale), (int) Math.ceil(top + scale));
+        }
+        if (!dirtyRect.isEmpty()) {
+            invalidate(dirtyRect);
         }
     }
 
     /**
-     * Draws the number showing how many adjacent tiles have a mine
-     *
-     * @param i      the row of the square
-     * @param j      the column of the square
-     * @param canvas Canvas object that the number is drawn upon
+     * Throws away the cached board so the next frame redraws every visible square
      */
-    private void drawNumber(int i, int j, Canvas canvas) {
-        short value = MineSweeperModel.getInstance().getFieldContent(i, j);
-        String num = Short.toString(value);
-        float centerX = i * getWidth() / 5 + getWidth() / 13;
-        float centerY = j * getHeight() / 5 + getHeight() / 7;
-        canvas.drawText(num, centerX, centerY, paintNumber);
+    private void invalidateBoard() {
+        boardStale = true;
+        dirtyCells.clear();
+        dirtyCovers.clear();
+        invalidate();
     }
 
     /**
-     * Draws a red flag on specified covered square
-     *
-     * @param i      the row of the square
-     * @param j      the column of the square
-     * @param canvas Canvas object that the flag is drawn upon
+     * Starts a new overview of the shared model. A board nothing has been played on is all
+     * covered and needs no counting; any other is counted from a snapshot on a background
+     * thread, while the painter's overview collects the changes made since, which are added on
+     * once the count is in.
      */
-    private void drawFlag(int i, int j, Canvas canvas) {
-        drawCoveredSquare(i, j, canvas);
-        // X coordinate: left side of the square + half width of the square
-        float centerX = i * getWidth() / 5 + getWidth() / 10;
-        float centerY = j * getHeight() / 5 + getHeight() / 10;
-        int radius = getHeight() / 20;
-
-        canvas.drawCircle(centerX, centerY, radius, paintFlag);
-    }
-
-    //Generates a square based on coordinates
-    private void drawCoveredSquare(int x, int y, Canvas canvas) {
-        int leftX = (x * getWidth() / 5) + 10;
-        int topY = (y * getHeight() / 5) + 10;
-        int rightX = leftX + (getWidth() / 6) + 10;
-        int bottomY = topY + (getHeight() / 6) + 10;
-
-        canvas.drawRect(leftX, topY, rightX, bottomY, paintCovered);
+    private void summariseBoard() {
+        MineSweeperModel model = MineSweeperModel.getInstance();
+        final int boardWidth = model.getBoardWidth();
+        final int boardHeight = model.getBoardHeight();
+        final BoardOverview changes = new BoardOverview(boardWidth, boardHeight);
+        painter.setOverview(changes);
+        MoveJournal journal = model.getJournal();
+        if (journal != null && journal.getMoveCount() == 0) {
+            overviewChanges = null;
+            return;
+        }
+        overviewChanges = changes;
+        final CoverSnapshot snapshot = model.getCoverSnapshot();
+        Thread counter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                final BoardCovers covers = new BoardCovers(snapshot);
+                final BoardOverview counted = new BoardOverview(boardWidth, boardHeight,
+                        new CoverReader() {
+                            @Override
+                            public short getCoverContent(int x, int y) {
+                                return covers.getCoverContent(x, y);
+                            }
+                        });
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        //dropped if another board was summarised meanwhile
+                        if (overviewChanges == changes) {
+                            counted.add(changes);
+                            painter.setOverview(counted);
+                            overviewChanges = null;
+                            invalidateBoard();
+                        }
+                    }
+                });
+            }
+        }, "BoardOverview");
+        counter.setPriority(Thread.MIN_PRIORITY);
+        counter.start();
     }
 
     /**
-     * Draws a six-line mine at the specified square
-     *
-     * @param i      the row of the square
-     * @param j      the column of the square
-     * @param canvas object which the mine is drawn upon
+     * Zooms out to show the whole board
      */
-    private void drawMine(int i, int j, Canvas canvas) {
-        canvas.drawLine((i * getWidth() / 5) + 40, (j * getHeight() / 5) + 40,
-                ((i + 1) * getWidth() / 5) - 40,
-                ((j + 1) * getHeight() / 5) - 40, paintMine);
-        canvas.drawLine(((i + 1) * getWidth() / 5) - 40, (j * getHeight() / 5) + 40,
-                (i * getWidth() / 5) + 40, ((j + 1) * getHeight() / 5) - 40, paintMine);
-        canvas.drawLine((i * getWidth() / 5) + 35, (j * getHeight() / 5) + 98,
-                ((i + 1) * getWidth() / 5) - 35,
-                ((j + 1) * getHeight() / 5) - 96, paintMine);
-        canvas.drawLine((i * getWidth() / 5) + 98, (j * getHeight() / 5) + 35,
-                ((i + 1) * getWidth() / 5) - 96,
-                ((j + 1) * getHeight() / 5) - 35, paintMine);
-        float centerX = i * getWidth() / 5 + getWidth() / 10;
-        float centerY = j * getHeight() / 5 + getHeight() / 10;
-
-        canvas.drawCircle(centerX, centerY, 35, paintMine);
-        canvas.drawCircle(centerX + 1, centerY, 10, paintFlag);
+    private void resetCamera() {
+        MineSweeperModel model = MineSweeperModel.getInstance();
+        camera.reset(getWidth(), getHeight(), model.getBoardWidth(), model.getBoardHeight());
     }
 
     /**
-     * Draws grid layout for MineSweeper
-     *
-     * @param canvas Object to display board
+     * Scales text and line widths to the current square size
      */
-    private void drawBoard(Canvas canvas) {
-        // border
-        canvas.drawRect(0, 0, getWidth(), getHeight(), paintLine);
-        // four horizontal lines
-        canvas.drawLine(0, getHeight() / 5, getWidth(), getHeight() / 5,
-                paintLine);
-        canvas.drawLine(0, 2 * getHeight() / 5, getWidth(),
-                2 * getHeight() / 5, paintLine);
-        canvas.drawLine(0, 3 * getHeight() / 5, getWidth(),
-                3 * getHeight() / 5, paintLine);
-        canvas.drawLine(0, 4 * getHeight() / 5, getWidth(),
-                4 * getHeight() / 5, paintLine);
-
-        // four vertical lines
-        canvas.drawLine(getWidth() / 5, 0, getWidth() / 5, getHeight(),
-                paintLine);
-        canvas.drawLine(2 * getWidth() / 5, 0, 2 * getWidth() / 5, getHeight(),
-                paintLine);
-        canvas.drawLine(3 * getWidth() / 5, 0, 3 * getWidth() / 5, getHeight(),
-                paintLine);
-        canvas.drawLine(4 * getWidth() / 5, 0, 4 * getWidth() / 5, getHeight(),
-                paintLine);
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+        if (!painter.hasOverview()) {
+            summariseBoard();
+        }
+        resetCamera();
+        if (boardBitmap != null) {
+            boardBitmap.recycle();
+            boardBitmap = null;
+        }
+        if (w > 0 && h > 0) {
+            boardBitmap = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+            boardCanvas = new Canvas(boardBitmap);
+        }
+        boardStale = true;
     }
 
     //Handles whether or not touch has been detected
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        boolean inFlagMode = ((MainActivity) getContext()).getFlagMode();
-
-        // if statement prevents drag motion to create a stream of circles by focusing on the one
-        // down motion
-        if (event.getAction() == MotionEvent.ACTION_DOWN &&
-                MineSweeperModel.getInstance().getGameState() == 0) {
-            // Equation that makes it easy for the touched area to be assigned to a certain square;
-            int tX = ((int) event.getX()) / (getWidth() / 5);
-            int tY = ((int) event.getY()) / (getHeight() / 5);
-            Log.d(getContext().getString(R.string.tag_touch),
-                    getContext().getString(R.string.log_touched, tX, tY));
-
-            if (tX < 5 && tY < 5 && inFlagMode) {
-                //Flag mode on:
-                if (MineSweeperModel.getInstance().getCoverContent(tX, tY) ==
-                        MineSweeperModel.COVERED) {
-                    //Places a flag on a covered square
-                    Log.d(getContext().getString(R.string.tag_touch),
-                            getContext().getString(R.string.log_flagged, tX, tY));
-                    MineSweeperModel.getInstance().setCoverContent(tX, tY,
-                            MineSweeperModel.FLAGGED);
-                }
-                invalidate();
-            } else if (tX < 5 && tY < 5 && !inFlagMode) {
-                //If flagged mode off, in try mode:
-                if (MineSweeperModel.getInstance().getCoverContent(tX, tY) ==
-                        MineSweeperModel.COVERED) {
-                    //Sets touch to current player's mark
-                    MineSweeperModel.getInstance().setCoverContent(tX, tY,
-                            MineSweeperModel.UNCOVERED);
-                    //redraws the View
-                    invalidate();
-                }
-            }
-            showEndGame();
-            invalidate();
-        }
-        return true;
+        return gestures.onTouchEvent(event);
     }
 
     /**
-     * Shows endgame message upon loss or win
+     * Times the next frame from a touch, keeping the oldest touch not yet shown
+     *
+     * @param touchNanos when the touch was delivered, 0 when metrics are off
      */
-    private void showEndGame() {
-        MineSweeperModel.getInstance().checkGameState();
-        if (MineSweeperModel.getInstance().getGameState() == MineSweeperModel.WIN) {
-            showWinnerMessage();
-            ((MainActivity) getContext()).stopTimer();
-        } else if (MineSweeperModel.getInstance().getGameState() == MineSweeperModel.mineLoss) {
-            showCoveredMines();
-            showMineLossMessage();
-            ((MainActivity) getContext()).stopTimer();
-        } else if (MineSweeperModel.getInstance().getGameState() == MineSweeperModel.flagLoss) {
-            showCoveredMines();
-            showFlagLossMessage();
-            ((MainActivity) getContext()).stopTimer();
+    private void showTouch(long touchNanos) {
+        if (pendingTouchNanos == 0) {
+            pendingTouchNanos = touchNanos;
         }
     }
 
@@ -284,50 +291,91 @@ public class MineSweeperView extends View {
     }
 
     /**
-     * Resets board view
+     * Takes back the last move; the squares it changed are redrawn in the next frame
      */
-    public void restartGame() {
-        MineSweeperModel.getInstance().resetModel();
-        invalidate();
+    @Override
+    public void undoMove() {
+        MineSweeperModel.getInstance().undo();
     }
 
     /**
-     * Shows a snackbar message upon winning the game
+     * Makes the last undone move again
      */
-    private void showWinnerMessage() {
-        ((MainActivity) getContext()).showSimpleSnackbarMessage(
-                getResources().getString(R.string.text_win));
+    @Override
+    public void redoMove() {
+        MineSweeperModel.getInstance().redo();
     }
 
     /**
-     * Shows a snackbar message upon losing the game
+     * Shows the shared model as a new game, after a fresh board has been swapped in
      */
-    private void showMineLossMessage() {
-        ((MainActivity) getContext()).showSimpleSnackbarMessage(
-                getResources().getString(R.string.text_mine_loss));
+    @Override
+    public void showNewGame() {
+        MineSweeperModel model = MineSweeperModel.getInstance();
+        //changes still queued belong to the old board
+        removeCallbacks(flushChanges);
+        changes.flushTo(IGNORE_CHANGES);
+        listenToModel();
+        overviewChanges = null;
+        painter.setOverview(new BoardOverview(model.getBoardWidth(), model.getBoardHeight()));
+        resetCamera();
+        invalidateBoard();
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        listenToModel();
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        //the shared model outlives this view, so it must not keep a reference to it
+        if (listening != null) {
+            listening.removeBoardListener(changes);
+            listening = null;
+        }
+        removeCallbacks(flushChanges);
+        painter.recycle();
     }
 
     /**
-     * Shows a snackbar message upon losing the game
+     * Moves the batcher onto the shared model if it was swapped for another one
      */
-    private void showFlagLossMessage() {
-        ((MainActivity) getContext()).showSimpleSnackbarMessage(
-                getResources().getString(R.string.text_flag_loss));
+    private void listenToModel() {
+        MineSweeperModel model = MineSweeperModel.getInstance();
+        if (listening != model) {
+            if (listening != null) {
+                listening.removeBoardListener(changes);
+            }
+            model.addBoardListener(changes);
+            listening = model;
+        }
     }
 
     /**
-     * Reveals all covered mine locations
+     * Applies the changes batched since the last frame: redraws changed squares and reacts to
+     * the end of a game
      */
-    private void showCoveredMines() {
-        for (int i = 0; i < 5; i++) {
-            for (int j = 0; j < 5; j++) {
-                if (MineSweeperModel.getInstance().getFieldContent(i, j) ==
-                        MineSweeperModel.MINE &&
-                        MineSweeperModel.getInstance().getCoverContent(i, j) ==
-                                MineSweeperModel.COVERED) {
-                    MineSweeperModel.getInstance().setCoverContent(i, j, MineSweeperModel.UNCOVERED);
-                }
+    private class FrameListener implements BoardListener {
+        @Override
+        public void onCellsChanged(BoardChange change) {
+            if (!boardReset) {
+                invalidateCells(change);
             }
         }
+
+        @Override
+        public void onGameStateChanged(short oldState, short newState) {
+            GameActions.showEndGame(getContext(), newState);
+        }
+
+        @Override
+        public void onBoardReset() {
+            boardReset = true;
+            summariseBoard();
+            invalidateBoard();
+        }
     }
 }
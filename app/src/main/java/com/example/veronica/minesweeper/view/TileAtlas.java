@@ -0,0 +1,133 @@
+package com.example.veronica.minesweeper.view;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+/**
+ * Every square picture the board uses (numbers 0 to 8, mine, flag and covered square), drawn
+ * once into a single bitmap so that frames copy tiles instead of laying out text and paths.
+ * Tiles are drawn at the next power of two at or above the on-screen square size and scaled
+ * down when copied, so pinch zooming only rebuilds the atlas when the size crosses a power of two.
+ */
+
+class TileAtlas {
+    //Tiles 0 to 8 are the numbers and tile 9 is the mine, matching the model's field content
+    static final int MINE_TILE = MineSweeperModel.MINE;
+    static final int FLAG_TILE = MINE_TILE + 1;
+    static final int COVERED_TILE = FLAG_TILE + 1;
+    private static final int TILE_COUNT = COVERED_TILE + 1;
+    private static final int TILES_PER_ROW = 4;
+
+    //Largest tile drawn, larger squares are scaled up from it
+    private static final int MAX_TILE_SIZE = 512;
+
+    private final int tileSize;
+    private final Bitmap bitmap;
+    private final Rect[] sources = new Rect[TILE_COUNT];
+
+    /**
+     * Draws all tiles for squares of about the given size
+     *
+     * @param cellSize     on-screen square size in pixels
+     * @param paintCovered paint for covered squares
+     * @param paintFlag    paint for flags
+     * @param paintMine    paint for mines
+     * @param paintNumber  paint for numbers
+     */
+    TileAtlas(float cellSize, Paint paintCovered, Paint paintFlag, Paint paintMine,
+              Paint paintNumber) {
+        tileSize = tileSizeFor(cellSize);
+        int rows = (TILE_COUNT + TILES_PER_ROW - 1) / TILES_PER_ROW;
+        bitmap = Bitmap.createBitmap(TILES_PER_ROW * tileSize, rows * tileSize,
+                Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+
+        float size = tileSize;
+        Paint covered = new Paint(paintCovered);
+        Paint flag = new Paint(paintFlag);
+        flag.setStrokeWidth(Math.min(10, size / 20));
+        Paint mine = new Paint(paintMine);
+        mine.setStrokeWidth(Math.min(10, size / 20));
+        Paint number = new Paint(paintNumber);
+        number.setStrokeWidth(Math.min(8, size / 25));
+        number.setTextSize(size * 9 / 20);
+
+        for (int tile = 0; tile < TILE_COUNT; tile++) {
+            int left = (tile % TILES_PER_ROW) * tileSize;
+            int top = (tile / TILES_PER_ROW) * tileSize;
+            sources[tile] = new Rect(left, top, left + tileSize, top + tileSize);
+            if (tile == COVERED_TILE) {
+                drawCovered(canvas, left, top, size, covered);
+            } else if (tile == FLAG_TILE) {
+                drawCovered(canvas, left, top, size, covered);
+                canvas.drawCircle(left + size / 2, top + size / 2, size / 4, flag);
+            } else if (tile == MINE_TILE) {
+                drawMine(canvas, left, top, size, mine, flag);
+            } else {
+                canvas.drawText(Integer.toString(tile), left + size * 5 / 13,
+                        top + size * 5 / 7, number);
+            }
+        }
+    }
+
+    /**
+     * Returns the tile size used for squares of the given on-screen size
+     *
+     * @param cellSize on-screen square size in pixels
+     */
+    static int tileSizeFor(float cellSize) {
+        int size = 1;
+        while (size < cellSize && size < MAX_TILE_SIZE) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * Copies a tile onto a square
+     *
+     * @param canvas Object where the square is drawn
+     * @param tile   tile number, a number 0 to 8 or one of the *_TILE constants
+     * @param dst    on-screen square
+     * @param paint  paint used for the copy, normally with bitmap filtering on
+     */
+    void draw(Canvas canvas, int tile, RectF dst, Paint paint) {
+        canvas.drawBitmap(bitmap, sources[tile], dst, paint);
+    }
+
+    void recycle() {
+        bitmap.recycle();
+    }
+
+    private static void drawCovered(Canvas canvas, float left, float top, float size,
+                                    Paint paint) {
+        canvas.drawRect(left + size / 20, top + size / 20, left + size - size / 20,
+                top + size - size / 20, paint);
+    }
+
+    //Six-line mine with a red centre
+    private static void drawMine(Canvas canvas, float left, float top, float size, Paint paint,
+                                 Paint centre) {
+        float right = left + size;
+        float bottom = top + size;
+        float inset = size / 5;
+        canvas.drawLine(left + inset, top + inset, right - inset, bottom - inset, paint);
+        canvas.drawLine(right - inset, top + inset, left + inset, bottom - inset, paint);
+        canvas.drawLine(left + size / 6, top + size / 2, right - size / 6, top + size / 2, paint);
+        canvas.drawLine(left + size / 2, top + size / 6, left + size / 2, bottom - size / 6, paint);
+        float centerX = left + size / 2;
+        float centerY = top + size / 2;
+
+        canvas.drawCircle(centerX, centerY, size / 6, paint);
+        canvas.drawCircle(centerX + 1, centerY, size / 20, centre);
+    }
+}
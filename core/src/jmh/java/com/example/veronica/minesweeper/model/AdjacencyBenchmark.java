@@ -0,0 +1,82 @@
+package com.example.veronica.minesweeper.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the packed adjacency counts, serial and striped over the pool, against the boxed
+ * per-square neighbour lists they replaced.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AdjacencyBenchmark {
+    private static final int SIZE = 1000;
+
+    private MineSweeperModel model;
+    private PackedBoard board;
+
+    @Setup
+    public void setUp() {
+        model = new MineSweeperModel(SIZE, SIZE, SIZE * SIZE * 3 / 20);
+        board = model.getBoard();
+    }
+
+    @Benchmark
+    public int neighbourLists() {
+        int total = 0;
+        for (int x = 0; x < SIZE; x++) {
+            for (int y = 0; y < SIZE; y++) {
+                total += listCount(x, y);
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long[] packedSerial() {
+        AdjacencyCounter.countRows(board, 0, board.height);
+        return board.counts;
+    }
+
+    @Benchmark
+    public long[] packedParallel() {
+        AdjacencyCounter.placeNumbers(board);
+        return board.counts;
+    }
+
+    /**
+     * Counts adjacent mines the way the model used to: by collecting boxed neighbours
+     */
+    private short listCount(int i, int j) {
+        ArrayList<Short> adjSquares = new ArrayList<>();
+        for (int x = Math.max(i - 1, 0); x <= Math.min(i + 1, SIZE - 1); x++) {
+            for (int y = Math.max(j - 1, 0); y <= Math.min(j + 1, SIZE - 1); y++) {
+                if (x != i || y != j) {
+                    adjSquares.add(model.getFieldContent(x, y));
+                }
+            }
+        }
+        short mineCounter = 0;
+        for (Short square : adjSquares) {
+            if (square == MineSweeperModel.MINE) {
+                mineCounter++;
+            }
+        }
+        return mineCounter;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.veronica.minesweeper.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what publishing change events costs a move: taps on random safe squares of a
+ * 2000x2000 board, with and without a ChangeBatcher listening and flushed once per sixteen
+ * taps as a busy frame would be. Each measurement plays the same taps on a fresh board.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class ChangeBatcherBenchmark {
+    private static final int SIZE = 2000;
+    private static final int TAPS = 200000;
+
+    @Param({"false", "true"})
+    boolean batched;
+
+    private final int[] taps = new int[TAPS];
+    private MineSweeperModel model;
+    private ChangeBatcher batcher;
+    private final BoardListener frame = new BoardListener() {
+        @Override
+        public void onCellsChanged(BoardChange change) {
+        }
+
+        @Override
+        public void onGameStateChanged(short oldState, short newState) {
+        }
+
+        @Override
+        public void onBoardReset() {
+        }
+    };
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(5);
+        for (int i = 0; i < TAPS; i++) {
+            taps[i] = random.nextInt(SIZE * SIZE);
+        }
+        batcher = new ChangeBatcher(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+    }
+
+    @Setup(Level.Iteration)
+    public void freshBoard() {
+        model = new MineSweeperModel(SIZE, SIZE, SIZE * SIZE * 3 / 20, 4L, -1, -1);
+        model.disableHistory();
+        if (batched) {
+            model.addBoardListener(batcher);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(TAPS)
+    public MineSweeperModel tap() {
+        for (int i = 0; i < TAPS; i++) {
+            int x = taps[i] % SIZE;
+            int y = taps[i] / SIZE;
+            if (model.getFieldContent(x, y) != MineSweeperModel.MINE) {
+                model.uncover(x, y);
+            }
+            if ((i & 15) == 0) {
+                batcher.flushTo(frame);
+            }
+        }
+        batcher.flushTo(frame);
+        return model;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.veronica.minesweeper.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a chord that cascades over the whole of a 2000x2000 board with a single mine, the
+ * largest change one move can make. Each measurement chords a fresh board.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Thread)
+public class ChordBenchmark {
+    private static final int SIZE = 2000;
+
+    private MineSweeperModel model;
+    private int chordX;
+    private int chordY;
+
+    @Setup(Level.Iteration)
+    public void freshBoard() {
+        model = new MineSweeperModel(SIZE, SIZE, 1, 3L, -1, -1);
+        int mine = -1;
+        for (int cell = 0; mine < 0; cell++) {
+            if (model.getFieldContent(cell % SIZE, cell / SIZE) == MineSweeperModel.MINE) {
+                mine = cell;
+            }
+        }
+        int mineX = mine % SIZE;
+        chordY = mine / SIZE;
+        chordX = mineX == 0 ? 1 : mineX - 1;
+        model.uncover(chordX, chordY);
+        model.setCoverContent(mineX, chordY, MineSweeperModel.FLAGGED);
+    }
+
+    @Benchmark
+    public IntList chord() {
+        return model.chord(chordX, chordY);
+    }
+}
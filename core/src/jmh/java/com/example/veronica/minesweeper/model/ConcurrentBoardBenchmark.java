@@ -0,0 +1,109 @@
+package com.example.veronica.minesweeper.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how one ConcurrentBoard scales with players: the same moves on a 2000x2000 board
+ * are dealt round robin to more threads each time, so the work is unchanged. Each measurement
+ * is one pass over the moves on a fresh board.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentBoardBenchmark {
+    private static final int SIZE = 2000;
+    private static final int MOVES = 800000;
+
+    private MineSweeperModel model;
+    private final int[] moves = new int[MOVES];
+    private final AtomicInteger players = new AtomicInteger();
+    private ConcurrentBoard board;
+
+    @Setup
+    public void setUp() {
+        model = new MineSweeperModel(SIZE, SIZE, SIZE * SIZE * 3 / 20, 8L, -1, -1);
+        Random random = new Random(10);
+        for (int m = 0; m < MOVES; m++) {
+            moves[m] = random.nextInt(SIZE * SIZE);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void freshBoard() {
+        board = new ConcurrentBoard(model);
+    }
+
+    /**
+     * One benchmark thread, whose index picks its share of the moves
+     */
+    @State(Scope.Thread)
+    public static class Player {
+        int index;
+
+        @Setup
+        public void join(ConcurrentBoardBenchmark shared) {
+            index = shared.players.getAndIncrement();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int oneThread(Player player) {
+        return play(player, 1);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public int twoThreads(Player player) {
+        return play(player, 2);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int fourThreads(Player player) {
+        return play(player, 4);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int eightThreads(Player player) {
+        return play(player, 8);
+    }
+
+    /**
+     * Plays the thread's share of the moves, only ones that keep the game going
+     *
+     * @return number of squares uncovered
+     */
+    private int play(Player player, int threads) {
+        int uncovered = 0;
+        for (int m = player.index; m < MOVES; m += threads) {
+            int x = moves[m] % SIZE;
+            int y = moves[m] / SIZE;
+            if (board.getFieldContent(x, y) == MineSweeperModel.MINE) {
+                board.flag(x, y);
+            } else {
+                uncovered += board.uncover(x, y).size();
+            }
+        }
+        return uncovered;
+    }
+}
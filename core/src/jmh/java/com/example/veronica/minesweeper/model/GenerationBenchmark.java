@@ -0,0 +1,73 @@
+package com.example.veronica.minesweeper.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures board generation: mine placement, adjacency counting and a full reset.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GenerationBenchmark {
+
+    @Param({"5", "64", "512", "4096"})
+    int size;
+
+    @Param({"0.10", "0.15", "0.20"})
+    double density;
+
+    private MineSweeperModel model;
+
+    @Setup
+    public void setUp() {
+        model = new MineSweeperModel(size, size, (int) Math.round(size * size * density),
+                new Random(42), -1, -1);
+    }
+
+    /**
+     * Clearing the mine bitset is included, it costs one store per 64 squares
+     */
+    @Benchmark
+    public long[] placeMines() {
+        long[] mines = model.getBoard().mines;
+        Arrays.fill(mines, 0L);
+        model.placeMines();
+        return mines;
+    }
+
+    @Benchmark
+    public long[] placeNumbers() {
+        model.placeNumbers();
+        return model.getBoard().counts;
+    }
+
+    @Benchmark
+    public long[] placeNumbersSingleThread() {
+        PackedBoard board = model.getBoard();
+        AdjacencyCounter.countRows(board, 0, board.height);
+        return board.counts;
+    }
+
+    @Benchmark
+    public MineSweeperModel resetModel() {
+        model.resetModel();
+        return model;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.veronica.minesweeper.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures opening a saved 8000x8000 mapped board, about 56 MB, and reading one square from
+ * it. Opening reads only the header, so neither should grow with the board.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MappedBoardBenchmark {
+    private static final int SIZE = 8000;
+
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        file = File.createTempFile("board", ".mapped");
+        MappedBoard.create(file, SIZE, SIZE, SIZE * SIZE * 3 / 20, 3L).close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public int open() throws IOException {
+        MappedBoard board = MappedBoard.open(file);
+        int width = board.getBoardWidth();
+        board.close();
+        return width;
+    }
+
+    @Benchmark
+    public short openAndReadSquare() throws IOException {
+        MappedBoard board = MappedBoard.open(file);
+        short content = board.getFieldContent(SIZE / 2, SIZE / 2);
+        board.close();
+        return content;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.veronica.minesweeper.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single move followed by the end-game check, as the view does on every touch.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveBenchmark {
+    //Number of precomputed squares, a power of two so the index can be masked
+    private static final int MOVES = 4096;
+
+    @Param({"5", "64", "512", "4096"})
+    int size;
+
+    @Param({"0.10", "0.15", "0.20"})
+    double density;
+
+    private MineSweeperModel model;
+    private final int[] moveX = new int[MOVES];
+    private final int[] moveY = new int[MOVES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        model = new MineSweeperModel(size, size, (int) Math.round(size * size * density),
+                new Random(42), -1, -1);
+        Random random = new Random(7);
+        for (int i = 0; i < MOVES; i++) {
+            moveX[i] = random.nextInt(size);
+            moveY[i] = random.nextInt(size);
+        }
+    }
+
+    /**
+     * Flags a square, checks the game, then covers it again so the board never fills up
+     */
+    @Benchmark
+    public short setCoverContentAndCheckGameState() {
+        int i = next++ & (MOVES - 1);
+        model.setCoverContent(moveX[i], moveY[i], MineSweeperModel.FLAGGED);
+        model.checkGameState();
+        model.setCoverContent(moveX[i], moveY[i], MineSweeperModel.COVERED);
+        model.checkGameState();
+        return model.getGameState();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.veronica.minesweeper.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a restart on a 2000x2000 board: taking the board the prefetcher generated in the
+ * background, against regenerating the board with resetModel on the calling thread.
+ */
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Fork(1)
+@State(Scope.Thread)
+public class PrefetchBenchmark {
+    private static final int SIZE = 2000;
+
+    private BoardPrefetcher prefetcher;
+    private MineSweeperModel model;
+
+    @Setup
+    public void setUp() {
+        prefetcher = new BoardPrefetcher(SIZE, SIZE, SIZE * SIZE * 3 / 20);
+        model = new MineSweeperModel(SIZE, SIZE, SIZE * SIZE * 3 / 20);
+    }
+
+    //The next board is generated between takes, outside the measurement
+    @Setup(Level.Iteration)
+    public void waitForBoard() throws InterruptedException {
+        while (!prefetcher.isReady()) {
+            Thread.sleep(5);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        prefetcher.shutdown();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(iterations = 20)
+    public MineSweeperModel takePrefetched() {
+        return prefetcher.take(null);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @Measurement(iterations = 5, time = 1)
+    public MineSweeperModel resetModel() {
+        model.resetModel();
+        return model;
+    }
+}
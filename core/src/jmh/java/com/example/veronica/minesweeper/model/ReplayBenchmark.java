@@ -0,0 +1,52 @@
+package com.example.veronica.minesweeper.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures replaying a long journal of flag moves on a 1000x1000 board, in moves per second,
+ * board regeneration from the seed included.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplayBenchmark {
+    private static final int MOVES = 2000000;
+
+    private byte[] journal;
+
+    @Setup
+    public void setUp() {
+        MineSweeperModel model = new MineSweeperModel(1000, 1000, 200000, 5L, -1, -1);
+        Random random = new Random(3);
+        //each move flags a square or takes its flag back, so every move is journaled
+        for (int move = 0; move < MOVES; move++) {
+            int x = random.nextInt(1000);
+            int y = random.nextInt(1000);
+            model.setCoverContent(x, y, model.getCoverContent(x, y) == MineSweeperModel.FLAGGED ?
+                    MineSweeperModel.COVERED : MineSweeperModel.FLAGGED);
+        }
+        journal = model.getJournal().toByteArray();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(MOVES)
+    public MineSweeperModel replay() {
+        return Replay.replay(journal);
+    }
+}
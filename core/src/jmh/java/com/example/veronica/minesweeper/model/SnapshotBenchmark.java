@@ -0,0 +1,70 @@
+package com.example.veronica.minesweeper.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving and restoring a 2000x2000 game in progress, through a byte array and through
+ * a memory-mapped file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SnapshotBenchmark {
+    private BoardSnapshot snapshot;
+    private byte[] bytes;
+    private File file;
+
+    @Setup
+    public void setUp() throws IOException {
+        MineSweeperModel model = new MineSweeperModel(2000, 2000, 600000, new Random(1), -1, -1);
+        model.uncover(0, 0);
+        snapshot = new BoardSnapshot(model, 0);
+        bytes = snapshot.toBytes();
+        file = File.createTempFile("board", ".snapshot");
+        snapshot.writeTo(file);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public byte[] toBytes() {
+        return snapshot.toBytes();
+    }
+
+    @Benchmark
+    public BoardSnapshot fromBytes() {
+        return BoardSnapshot.fromBytes(bytes);
+    }
+
+    @Benchmark
+    public File writeTo() throws IOException {
+        snapshot.writeTo(file);
+        return file;
+    }
+
+    @Benchmark
+    public BoardSnapshot readFrom() throws IOException {
+        return BoardSnapshot.readFrom(file);
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.veronica.minesweeper.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures moves that record undo history, and undo and redo, on a 4000x4000 board. The gc
+ * profiler's allocation per operation is the history kept per move.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class UndoBenchmark {
+    private static final int SIZE = 4000;
+    //Number of precomputed squares, a power of two so the index can be masked
+    private static final int MOVES = 4096;
+
+    private MineSweeperModel model;
+    private final int[] moveX = new int[MOVES];
+    private final int[] moveY = new int[MOVES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        model = new MineSweeperModel(SIZE, SIZE, SIZE * SIZE * 3 / 20, 6L, -1, -1);
+        Random random = new Random(9);
+        for (int i = 0; i < MOVES; i++) {
+            moveX[i] = random.nextInt(SIZE);
+            moveY[i] = random.nextInt(SIZE);
+        }
+        //a history to step through
+        for (int i = 0; i < MOVES; i++) {
+            flag();
+        }
+    }
+
+    /**
+     * Flags a square or takes its flag back, a new version of the history each time
+     */
+    @Benchmark
+    public short flag() {
+        int i = next++ & (MOVES - 1);
+        short cover = model.getCoverContent(moveX[i], moveY[i]);
+        model.setCoverContent(moveX[i], moveY[i], cover == MineSweeperModel.FLAGGED ?
+                MineSweeperModel.COVERED : MineSweeperModel.FLAGGED);
+        return cover;
+    }
+
+    @Benchmark
+    public IntList undoThenRedo() {
+        model.undo();
+        return model.redo();
+    }
+}
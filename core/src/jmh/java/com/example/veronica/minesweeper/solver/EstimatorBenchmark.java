@@ -0,0 +1,58 @@
+package com.example.veronica.minesweeper.solver;
+
+import com.example.veronica.minesweeper.model.IntList;
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how mine chance sampling scales with workers: a heatmap to within 0.02 and a win
+ * chance from 64 playouts, on a 200x200 board opened as far as the solver can prove. The
+ * estimate is the same for a given number of workers, so each measurement does the same work.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EstimatorBenchmark {
+    private static final int SIZE = 200;
+
+    @Param({"1", "2", "4", "8"})
+    int workers;
+
+    private MineSweeperModel model;
+
+    @Setup
+    public void setUp() {
+        model = new MineSweeperModel(SIZE, SIZE, 6000, 21L, SIZE / 2, SIZE / 2);
+        model.uncover(SIZE / 2, SIZE / 2);
+        Solver solver = new Solver(model);
+        solver.rescan();
+        //open up a wide frontier with the moves the solver proves
+        while (solver.solve()) {
+            IntList safe = solver.takeSafeCells();
+            for (int i = 0; i < safe.size(); i++) {
+                solver.update(model.uncover(safe.get(i) % SIZE, safe.get(i) / SIZE));
+            }
+        }
+    }
+
+    @Benchmark
+    public MineProbabilityEstimator.Estimate estimate() throws InterruptedException {
+        return new MineProbabilityEstimator(model, workers).estimate(1L, 0.02, 400000, 64);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.veronica.minesweeper.solver;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the parallel generator of boards solvable without guessing, by size and mine density.
+ * generate reports runs per second, with candidates tried, valid boards found and runs that
+ * gave up after MAX_ATTEMPTS counted per second alongside. firstValidBoard is the time to the
+ * first valid board, over seeds known to find one, so runs that give up do not skew it; it fails
+ * to set up where no seed finds a board at all.
+ */
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class NoGuessBenchmark {
+    private static final long MAX_ATTEMPTS = 20000;
+    //Seeds tried when looking for ones that find a board, and most kept
+    private static final int SEEDS = 16;
+
+    //Columns x rows
+    @Param({"9x9", "16x16", "30x16", "64x64"})
+    String size;
+
+    @Param({"0.10", "0.15", "0.20"})
+    double density;
+
+    private NoGuessGenerator generator;
+    private long seed;
+    private long[] validSeeds;
+    private int nextValid;
+
+    /**
+     * Tallies of the generate runs in one iteration, reported by JMH per second
+     */
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class Counters {
+        public long candidates;
+        public long validBoards;
+        public long gaveUp;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            candidates = 0;
+            validBoards = 0;
+            gaveUp = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        int width = Integer.parseInt(size.substring(0, size.indexOf('x')));
+        int height = Integer.parseInt(size.substring(size.indexOf('x') + 1));
+        generator = new NoGuessGenerator(width, height,
+                (int) Math.round(width * height * density), width / 2, height / 2);
+
+        long[] found = new long[SEEDS];
+        int count = 0;
+        for (long candidate = -SEEDS; candidate < 0; candidate++) {
+            if (generator.generate(candidate, MAX_ATTEMPTS).model != null) {
+                found[count++] = candidate;
+            }
+        }
+        if (count == 0) {
+            throw new IllegalStateException("No board found in " + SEEDS + " runs of " +
+                    MAX_ATTEMPTS + " attempts for " + size + " at " + density);
+        }
+        validSeeds = Arrays.copyOf(found, count);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public NoGuessGenerator.Result generate(Counters counters) throws InterruptedException {
+        NoGuessGenerator.Result result = generator.generate(seed++, MAX_ATTEMPTS);
+        counters.candidates += result.attempts;
+        if (result.model != null) {
+            counters.validBoards++;
+        } else {
+            counters.gaveUp++;
+        }
+        return result;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public NoGuessGenerator.Result firstValidBoard() throws InterruptedException {
+        long next = validSeeds[nextValid++ % validSeeds.length];
+        return generator.generate(next, MAX_ATTEMPTS);
+    }
+}
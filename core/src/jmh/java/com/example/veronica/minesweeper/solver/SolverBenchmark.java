@@ -0,0 +1,66 @@
+package com.example.veronica.minesweeper.solver;
+
+import com.example.veronica.minesweeper.model.IntList;
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a solver playout of a large board: one empty square opened, then every move the
+ * solver proves, with the solver updated incrementally from each move's revealed squares.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SolverBenchmark {
+    private static final int SIZE = 1000;
+
+    private final Random random = new Random(42);
+    private MineSweeperModel model;
+    private int start;
+
+    //A playout uses up its board, so each one gets a fresh board
+    @Setup(Level.Invocation)
+    public void setUp() {
+        model = new MineSweeperModel(SIZE, SIZE, SIZE * SIZE / 10, random, -1, -1);
+        start = 0;
+        while (model.getFieldContent(start % SIZE, start / SIZE) != 0) {
+            start++;
+        }
+    }
+
+    @Benchmark
+    public int playout() {
+        Solver solver = new Solver(model);
+        int uncovered = 0;
+        IntList revealed = model.uncover(start % SIZE, start / SIZE);
+        uncovered += revealed.size();
+        solver.update(revealed);
+        while (solver.solve()) {
+            IntList safe = solver.takeSafeCells();
+            for (int i = 0; i < safe.size(); i++) {
+                revealed = model.uncover(safe.get(i) % SIZE, safe.get(i) / SIZE);
+                uncovered += revealed.size();
+                solver.update(revealed);
+            }
+            solver.takeMineCells();
+        }
+        return uncovered;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.veronica.minesweeper.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Computes the adjacency counts of a packed board.
+ * Each count is a separable 3x3 sum over the mine bitmap: mines are first summed along a row,
+ * then three row sums are added together. Nothing is boxed or allocated per cell, and large
+ * boards are split into row stripes that run in parallel, one per core.
+ */
+
+final class AdjacencyCounter {
+    //Boards with fewer squares than this are counted on the calling thread
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    //Stripes always start on a multiple of this many rows so no two stripes share a count word
+    private static final int ROW_ALIGNMENT = 16;
+
+    private static final int CORES = Runtime.getRuntime().availableProcessors();
+
+    //Threads the stripes run on; a plain executor, as fork/join needs API 21 and minSdk is 16
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(CORES,
+            new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "AdjacencyCounter");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    private AdjacencyCounter() {
+    }
+
+    /**
+     * Writes the number of adjacent mines of every square into the board's counts
+     *
+     * @param board board whose mines have been placed
+     */
+    static void placeNumbers(PackedBoard board) {
+        if (board.cellCount < PARALLEL_THRESHOLD) {
+            countRows(board, 0, board.height);
+        } else {
+            int minRows = Math.max(ROW_ALIGNMENT,
+                    (PARALLEL_THRESHOLD / board.width) & ~(ROW_ALIGNMENT - 1));
+            countStripes(board, minRows);
+        }
+    }
+
+    /**
+     * Counts the board in aligned row stripes of at least minRows rows, one per core, the first
+     * on the calling thread and the rest on the pool
+     */
+    private static void countStripes(final PackedBoard board, int minRows) {
+        int stripes = Math.max(1, Math.min(CORES, board.height / minRows));
+        int stripeRows = ((board.height / stripes) + ROW_ALIGNMENT - 1) & ~(ROW_ALIGNMENT - 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int first = stripeRows; first < board.height; first += stripeRows) {
+            final int firstRow = first;
+            final int endRow = Math.min(board.height, first + stripeRows);
+            futures.add(POOL.submit(new Runnable() {
+                @Override
+                public void run() {
+                    countRows(board, firstRow, endRow);
+                }
+            }));
+        }
+        countRows(board, 0, Math.min(board.height, stripeRows));
+
+        //the counts must be complete before returning, so an interrupt is kept for the caller
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writes the number of adjacent mines of every square of a board of any shape. The square
+     * grid is counted with row sums as above, other shapes by walking each square's
+     * neighbourhood in the topology's tables.
+     *
+     * @param board    board whose mines have been placed
+     * @param topology the board's shape
+     */
+    static void placeNumbers(PackedBoard board, BoardTopology topology) {
+        if (topology.isSquare()) {
+            placeNumbers(board);
+            return;
+        }
+        long[] mines = board.mines;
+        for (int cell = 0; cell < board.cellCount; cell++) {
+            int n = topology.neighbourhood(cell);
+            int count = 0;
+            for (int i = topology.firstNeighbour(n); i < topology.endNeighbour(n); i++) {
+                int next = topology.neighbour(cell, i);
+                count += (int) (mines[next >>> 6] >>> next) & 1;
+            }
+            board.setCount(cell, count);
+        }
+    }
+
+    /**
+     * Counts rows [firstRow, endRow) of the board
+     *
+     * @param board    board being counted
+     * @param firstRow first row of the stripe, aligned to ROW_ALIGNMENT
+     * @param endRow   row after the last row of the stripe
+     */
+    static void countRows(PackedBoard board, int firstRow, int endRow) {
+        int width = board.width;
+        long[] mines = board.mines;
+        long[] counts = board.counts;
+        byte[] above = new byte[width];
+        byte[] row = new byte[width];
+        byte[] below = new byte[width];
+        if (firstRow > 0) {
+            sumRow(mines, width, firstRow - 1, above);
+        }
+        sumRow(mines, width, firstRow, row);
+
+        long word = 0;
+        int cell = firstRow * width;
+        for (int y = firstRow; y < endRow; y++) {
+            if (y + 1 < board.height) {
+                sumRow(mines, width, y + 1, below);
+            } else {
+                Arrays.fill(below, (byte) 0);
+            }
+            for (int x = 0; x < width; x++, cell++) {
+                int mine = (int) (mines[cell >>> 6] >>> cell) & 1;
+                long count = above[x] + row[x] + below[x] - mine;
+                word |= count << ((cell & 15) << 2);
+                if ((cell & 15) == 15) {
+                    counts[cell >>> 4] = word;
+                    word = 0;
+                }
+            }
+            byte[] spare = above;
+            above = row;
+            row = below;
+            below = spare;
+        }
+        if ((cell & 15) != 0) {
+            //Only the last stripe of the board can end part way through a word
+            counts[cell >>> 4] = word;
+        }
+    }
+
+    /**
+     * Sums each square of a row with its left and right neighbours
+     *
+     * @param mines mine bitset
+     * @param width board width
+     * @param y     row to sum
+     * @param sums  receives one sum per column
+     */
+    private static void sumRow(long[] mines, int width, int y, byte[] sums) {
+        int base = y * width;
+        int left = 0;
+        int centre = (int) (mines[base >>> 6] >>> base) & 1;
+        for (int x = 0; x < width; x++) {
+            int right = 0;
+            if (x + 1 < width) {
+                int next = base + x + 1;
+                right = (int) (mines[next >>> 6] >>> next) & 1;
+            }
+            sums[x] = (byte) (left + centre + right);
+            left = centre;
+            centre = right;
+        }
+    }
+}
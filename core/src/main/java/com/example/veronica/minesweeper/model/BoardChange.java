@@ -0,0 +1,118 @@
+package com.example.veronica.minesweeper.model;
+
+/**
+ * A batch of squares whose cover changed, each with its state before and after.
+ * Moves such as a cascade change every square the same way, so one shared pair of states is
+ * kept until a square changes differently, and only then a pair per square.
+ */
+
+public final class BoardChange {
+    //Square indices, returned as is by the model's moves
+    final IntList cells;
+
+    //Old cover << 16 | new cover per square, null while every square shares uniformCovers
+    private IntList covers;
+    private int uniformCovers;
+
+    BoardChange() {
+        cells = new IntList();
+    }
+
+    /**
+     * Wraps a list of squares that all changed the same way
+     *
+     * @param cells    indices of the squares
+     * @param oldCover the squares' cover before
+     * @param newCover the squares' cover after
+     */
+    BoardChange(IntList cells, short oldCover, short newCover) {
+        this.cells = cells;
+        uniformCovers = pack(oldCover, newCover);
+    }
+
+    void add(int cell, short oldCover, short newCover) {
+        int packed = pack(oldCover, newCover);
+        if (covers == null && (cells.isEmpty() || packed == uniformCovers)) {
+            uniformCovers = packed;
+        } else {
+            if (covers == null) {
+                covers = new IntList(cells.size() << 1);
+                for (int i = 0; i < cells.size(); i++) {
+                    covers.add(uniformCovers);
+                }
+            }
+            covers.add(packed);
+        }
+        cells.add(cell);
+    }
+
+    void clear() {
+        cells.clear();
+        covers = null;
+    }
+
+    public int size() {
+        return cells.size();
+    }
+
+    public boolean isEmpty() {
+        return cells.isEmpty();
+    }
+
+    /**
+     * Returns the index of a changed square, y * width + x
+     *
+     * @param i position in the batch
+     */
+    public int getCell(int i) {
+        return cells.get(i);
+    }
+
+    /**
+     * Returns COVERED, UNCOVERED or FLAGGED from before the change
+     *
+     * @param i position in the batch
+     */
+    public short getOldCover(int i) {
+        return (short) (packed(i) >>> 16);
+    }
+
+    /**
+     * Returns COVERED, UNCOVERED or FLAGGED from after the change
+     *
+     * @param i position in the batch
+     */
+    public short getNewCover(int i) {
+        return (short) packed(i);
+    }
+
+    private int packed(int i) {
+        if (covers != null) {
+            return covers.get(i);
+        }
+        if (i >= cells.size()) {
+            throw new IndexOutOfBoundsException("Index " + i + ", size " + cells.size());
+        }
+        return uniformCovers;
+    }
+
+    private static int pack(short oldCover, short newCover) {
+        return oldCover << 16 | newCover;
+    }
+
+    /**
+     * Returns a square's cover from one word each of flag and uncovered bits
+     *
+     * @param flags     the flag word holding the square
+     * @param uncovered the uncovered word holding the square
+     * @param cell      the square's index
+     */
+    static short coverOf(long flags, long uncovered, int cell) {
+        if ((flags & (1L << cell)) != 0) {
+            return MineSweeperModel.FLAGGED;
+        } else if ((uncovered & (1L << cell)) != 0) {
+            return MineSweeperModel.UNCOVERED;
+        }
+        return MineSweeperModel.COVERED;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.veronica.minesweeper.model;
+
+/**
+ * A copy of a board's flags and uncovered squares that is kept up to date from BoardChanges.
+ * It lets another thread, such as a renderer, read cover states without touching the model,
+ * which is only safe to use from the thread making moves.
+ */
+
+public final class BoardCovers {
+    private final int boardWidth;
+    private final int boardHeight;
+    private final long[] flags;
+    private final long[] uncovered;
+
+    /**
+     * Copies the model's current cover states, one word at a time
+     *
+     * @param model the game to copy, read on the calling thread
+     */
+    public BoardCovers(MineSweeperModel model) {
+        PackedBoard board = model.getBoard();
+        boardWidth = board.width;
+        boardHeight = board.height;
+        flags = board.flags.clone();
+        uncovered = board.uncovered.clone();
+    }
+
+    /**
+     * Copies covers frozen earlier, so that the copying is done on the thread that will read them
+     *
+     * @param snapshot covers taken with MineSweeperModel.getCoverSnapshot()
+     */
+    public BoardCovers(CoverSnapshot snapshot) {
+        boardWidth = snapshot.getBoardWidth();
+        boardHeight = snapshot.getBoardHeight();
+        flags = new long[snapshot.getWords()];
+        uncovered = new long[snapshot.getWords()];
+        snapshot.copyTo(flags, uncovered);
+    }
+
+    /**
+     * Brings the copy up to date with a change made to the model
+     *
+     * @param change squares that changed, with their new covers
+     */
+    public void apply(BoardChange change) {
+        for (int i = 0; i < change.size(); i++) {
+            int cell = change.getCell(i);
+            short cover = change.getNewCover(i);
+            PackedBoard.set(flags, cell, cover == MineSweeperModel.FLAGGED);
+            PackedBoard.set(uncovered, cell, cover == MineSweeperModel.UNCOVERED);
+        }
+    }
+
+    public short getCoverContent(int x, int y) {
+        int cell = y * boardWidth + x;
+        return BoardChange.coverOf(flags[cell >>> 6], uncovered[cell >>> 6], cell);
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHeight() {
+        return boardHeight;
+    }
+}
@@ -0,0 +1,296 @@
+package com.example.veronica.minesweeper.model;
+
+/**
+ * Undo and redo history for a game's flags and uncovered squares.
+ * Each version is a persistent trie: 32-way nodes over leaves of 1024 squares, each leaf holding
+ * the flag and uncovered words for its squares. A move copies only the leaves it touches and
+ * the nodes above them, and shares everything else with the previous version, so a step costs
+ * about a kilobyte however large the board. The board's flat arrays stay the live state; undo
+ * and redo walk the two versions' tries together, skip shared subtrees, and copy back only the
+ * words that differ.
+ */
+
+final class BoardHistory {
+    private static final int LEAF_WORDS = 16;
+    private static final int LEAF_SHIFT = 4;
+    private static final int BRANCH_SHIFT = 5;
+    private static final int BRANCHES = 1 << BRANCH_SHIFT;
+
+    //Oldest versions are dropped past this many steps
+    static final int MAX_VERSIONS = 10000;
+
+    /**
+     * Trie node. Leaves hold 2 * LEAF_WORDS words, flags then uncovered; other nodes hold
+     * children. Nodes whose owner is the version being built may be changed in place.
+     */
+    private static final class Node {
+        final Object owner;
+        final Node[] children;
+        final long[] words;
+
+        Node(Object owner, Node[] children, long[] words) {
+            this.owner = owner;
+            this.children = children;
+            this.words = words;
+        }
+
+        Node copy(Object newOwner) {
+            return new Node(newOwner, children == null ? null : children.clone(),
+                    words == null ? null : words.clone());
+        }
+    }
+
+    private final MineSweeperModel model;
+    private final PackedBoard board;
+    //Levels of branch nodes above the leaves
+    private final int depth;
+
+    //Versions oldest first in a ring that grows up to MAX_VERSIONS, current counts from oldest
+    private Node[] versions = new Node[16];
+    private int oldest;
+    private int count;
+    private int current;
+
+    //Root of the version being built by the current move, null until the move changes a square
+    private Node working;
+    private Object owner = new Object();
+
+    /**
+     * Starts a history whose only version is the board as it is now
+     *
+     * @param model game whose tallies are adjusted on undo and redo
+     * @param board the game's board
+     */
+    BoardHistory(MineSweeperModel model, PackedBoard board) {
+        this.model = model;
+        this.board = board;
+        int leaves = Math.max(1, (board.flags.length + LEAF_WORDS - 1) >>> LEAF_SHIFT);
+        int levels = 0;
+        while (1L << (BRANCH_SHIFT * levels) < leaves) {
+            levels++;
+        }
+        depth = levels;
+        versions[0] = build(depth, 0, new Node[depth + 1]);
+        count = 1;
+    }
+
+    private Node version(int index) {
+        return versions[(oldest + index) % versions.length];
+    }
+
+    /**
+     * Builds the subtree for the current board, sharing one node per level for all-clear ranges
+     */
+    private Node build(int level, int firstLeaf, Node[] empty) {
+        int first = firstLeaf << LEAF_SHIFT;
+        if (first >= board.flags.length) {
+            return emptyNode(level, empty);
+        }
+        if (level == 0) {
+            int end = Math.min(first + LEAF_WORDS, board.flags.length);
+            boolean clear = true;
+            for (int w = first; w < end && clear; w++) {
+                clear = board.flags[w] == 0 && board.uncovered[w] == 0;
+            }
+            if (clear) {
+                return emptyNode(0, empty);
+            }
+            long[] words = new long[2 * LEAF_WORDS];
+            System.arraycopy(board.flags, first, words, 0, end - first);
+            System.arraycopy(board.uncovered, first, words, LEAF_WORDS, end - first);
+            return new Node(null, null, words);
+        }
+        Node[] children = new Node[BRANCHES];
+        boolean clear = true;
+        int span = 1 << (BRANCH_SHIFT * (level - 1));
+        for (int b = 0; b < BRANCHES; b++) {
+            children[b] = build(level - 1, firstLeaf + b * span, empty);
+            clear &= children[b] == emptyNode(level - 1, empty);
+        }
+        return clear ? emptyNode(level, empty) : new Node(null, children, null);
+    }
+
+    private static Node emptyNode(int level, Node[] empty) {
+        if (empty[level] == null) {
+            if (level == 0) {
+                empty[0] = new Node(null, null, new long[2 * LEAF_WORDS]);
+            } else {
+                Node[] children = new Node[BRANCHES];
+                for (int b = 0; b < BRANCHES; b++) {
+                    children[b] = emptyNode(level - 1, empty);
+                }
+                empty[level] = new Node(null, children, null);
+            }
+        }
+        return empty[level];
+    }
+
+    /**
+     * Copies a square's current flag and uncovered words into the version being built
+     *
+     * @param cell square index
+     */
+    void cellChanged(int cell) {
+        int word = cell >>> 6;
+        if (working == null) {
+            working = version(current);
+        }
+        working = editable(working);
+        Node node = working;
+        int leaf = word >>> LEAF_SHIFT;
+        for (int level = depth; level > 0; level--) {
+            int branch = (leaf >>> (BRANCH_SHIFT * (level - 1))) & (BRANCHES - 1);
+            Node child = editable(node.children[branch]);
+            node.children[branch] = child;
+            node = child;
+        }
+        int w = word & (LEAF_WORDS - 1);
+        node.words[w] = board.flags[word];
+        node.words[LEAF_WORDS + w] = board.uncovered[word];
+    }
+
+    private Node editable(Node node) {
+        return node.owner == owner ? node : node.copy(owner);
+    }
+
+    /**
+     * Ends the current move, making its changes a new version and discarding any redo steps
+     */
+    void commit() {
+        if (working == null) {
+            return;
+        }
+        //drops the redo versions
+        while (count > current + 1) {
+            count--;
+            versions[(oldest + count) % versions.length] = null;
+        }
+        if (count == versions.length) {
+            if (versions.length < MAX_VERSIONS) {
+                Node[] grown = new Node[Math.min(versions.length << 1, MAX_VERSIONS)];
+                for (int i = 0; i < count; i++) {
+                    grown[i] = version(i);
+                }
+                versions = grown;
+                oldest = 0;
+            } else {
+                versions[oldest] = null;
+                oldest = (oldest + 1) % versions.length;
+                count--;
+                current--;
+            }
+        }
+        versions[(oldest + count) % versions.length] = working;
+        count++;
+        current++;
+        working = null;
+        owner = new Object();
+    }
+
+    /**
+     * Returns the version the board is in, for CoverSnapshot. Only called between moves, when
+     * the version is committed and so never changed again.
+     */
+    Object currentVersion() {
+        return version(current);
+    }
+
+    /**
+     * Copies a version's flag and uncovered words into flat arrays. Reads only the version's
+     * nodes, which never change once committed, so any thread it was safely handed to may call
+     * this.
+     *
+     * @param version   a version returned by currentVersion()
+     * @param flags     receives the flag words
+     * @param uncovered receives the uncovered words
+     */
+    void copyVersion(Object version, long[] flags, long[] uncovered) {
+        copy((Node) version, depth, 0, flags, uncovered);
+    }
+
+    private static void copy(Node node, int level, int firstLeaf, long[] flags,
+                             long[] uncovered) {
+        int first = firstLeaf << LEAF_SHIFT;
+        if (first >= flags.length) {
+            return;
+        }
+        if (level == 0) {
+            int length = Math.min(LEAF_WORDS, flags.length - first);
+            System.arraycopy(node.words, 0, flags, first, length);
+            System.arraycopy(node.words, LEAF_WORDS, uncovered, first, length);
+            return;
+        }
+        int span = 1 << (BRANCH_SHIFT * (level - 1));
+        for (int b = 0; b < BRANCHES; b++) {
+            copy(node.children[b], level - 1, firstLeaf + b * span, flags, uncovered);
+        }
+    }
+
+    boolean canUndo() {
+        return current > 0;
+    }
+
+    boolean canRedo() {
+        return current < count - 1;
+    }
+
+    /**
+     * Returns the board to the previous version
+     *
+     * @return the squares that changed
+     */
+    BoardChange undo() {
+        BoardChange changed = new BoardChange();
+        if (canUndo()) {
+            restore(version(current), version(current - 1), depth, 0, changed);
+            current--;
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the board to the version undone last
+     *
+     * @return the squares that changed
+     */
+    BoardChange redo() {
+        BoardChange changed = new BoardChange();
+        if (canRedo()) {
+            restore(version(current), version(current + 1), depth, 0, changed);
+            current++;
+        }
+        return changed;
+    }
+
+    /**
+     * Copies the words that differ between two versions into the board, skipping shared
+     * subtrees
+     */
+    private void restore(Node from, Node to, int level, int firstLeaf, BoardChange changed) {
+        if (from == to) {
+            return;
+        }
+        if (level == 0) {
+            int first = firstLeaf << LEAF_SHIFT;
+            for (int w = 0; w < LEAF_WORDS && first + w < board.flags.length; w++) {
+                long flags = to.words[w];
+                long uncovered = to.words[LEAF_WORDS + w];
+                long oldFlags = board.flags[first + w];
+                long oldUncovered = board.uncovered[first + w];
+                long diff = (flags ^ oldFlags) | (uncovered ^ oldUncovered);
+                while (diff != 0) {
+                    int cell = ((first + w) << 6) + Long.numberOfTrailingZeros(diff);
+                    changed.add(cell, BoardChange.coverOf(oldFlags, oldUncovered, cell),
+                            BoardChange.coverOf(flags, uncovered, cell));
+                    diff &= diff - 1;
+                }
+                model.replaceWords(first + w, flags, uncovered);
+            }
+            return;
+        }
+        int span = 1 << (BRANCH_SHIFT * (level - 1));
+        for (int b = 0; b < BRANCHES; b++) {
+            restore(from.children[b], to.children[b], level - 1, firstLeaf + b * span, changed);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.veronica.minesweeper.model;
+
+/**
+ * Receives the changes a MineSweeperModel makes, so renderers, solvers and recorders can follow
+ * the game without rescanning the board. Calls arrive on the thread that made the move.
+ */
+
+public interface BoardListener {
+    /**
+     * Called once per move with every square the move changed, so a whole cascade is one call
+     *
+     * @param change the changed squares; only valid during the call
+     */
+    void onCellsChanged(BoardChange change);
+
+    /**
+     * Called when a game state check, undo or redo moves the game to a new state
+     *
+     * @param oldState state before, 0 while playing
+     * @param newState state after: 0, WIN, mineLoss or flagLoss
+     */
+    void onGameStateChanged(short oldState, short newState);
+
+    /**
+     * Called when the board has changed too much to describe square by square, such as a new
+     * game on the same model; listeners should read the whole board and game state again
+     */
+    void onBoardReset();
+}
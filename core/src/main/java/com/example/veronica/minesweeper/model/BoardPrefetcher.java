@@ -0,0 +1,171 @@
+package com.example.veronica.minesweeper.model;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Generates boards on a background thread, one ahead of time, so starting a new game only has
+ * to swap in a board that is already built. When the next board is not ready yet, take() hands
+ * it to a listener as soon as it is, and nothing ever waits for generation. A board that cannot
+ * be generated is reported to the waiting listener, or by the next take() if none is waiting.
+ */
+
+public final class BoardPrefetcher {
+    /**
+     * Receives a board that was still being generated when it was asked for
+     */
+    public interface Listener {
+        /**
+         * Called on the generator thread
+         *
+         * @param model the new board
+         */
+        void onBoardReady(MineSweeperModel model);
+
+        /**
+         * Called on the generator thread when the board could not be generated, such as when
+         * memory runs out; the next take() tries again
+         *
+         * @param error what generation threw
+         */
+        void onBoardFailed(Throwable error);
+    }
+
+    private final int boardWidth;
+    private final int boardHeight;
+    private final int numberOfMines;
+    private final ExecutorService executor;
+
+    //All guarded by this
+    private boolean generating;
+    private MineSweeperModel ready;
+    private Listener waiting;
+    //Why the last board failed, kept for take() when no listener was waiting
+    private Throwable failure;
+
+    /**
+     * Starts generating the first board
+     *
+     * @param boardWidth    number of columns
+     * @param boardHeight   number of rows
+     * @param numberOfMines number of mines hidden on each board
+     */
+    public BoardPrefetcher(int boardWidth, int boardHeight, int numberOfMines) {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.numberOfMines = numberOfMines;
+        executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "BoardPrefetcher");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        synchronized (this) {
+            startNext();
+        }
+    }
+
+    /**
+     * Returns the prefetched board and starts on the one after it. If the board is still being
+     * generated, returns null and passes it to the listener when it is ready instead.
+     *
+     * @param listener receives the board later if it is not ready now, replacing any earlier
+     *                 listener
+     * @return the next board, or null if it is still being generated
+     * @throws IllegalStateException if the board failed to generate while nobody was waiting;
+     *                               generation of another one has started
+     */
+    public synchronized MineSweeperModel take(Listener listener) {
+        if (failure != null) {
+            Throwable error = failure;
+            failure = null;
+            startNext();
+            throw new IllegalStateException("Board generation failed", error);
+        }
+        if (ready != null) {
+            MineSweeperModel model = ready;
+            ready = null;
+            startNext();
+            return model;
+        }
+        waiting = listener;
+        startNext();
+        return null;
+    }
+
+    /**
+     * Returns whether take() would return a board straight away
+     */
+    public synchronized boolean isReady() {
+        return ready != null;
+    }
+
+    /**
+     * Drops a listener that no longer wants the board, such as one held by a closing screen.
+     * The board is kept for the next take().
+     *
+     * @param listener the listener passed to take()
+     */
+    public synchronized void cancel(Listener listener) {
+        if (waiting == listener) {
+            waiting = null;
+        }
+    }
+
+    /**
+     * Stops the generator thread; boards in progress are abandoned
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    //Called holding the lock
+    private void startNext() {
+        if (generating || ready != null) {
+            return;
+        }
+        generating = true;
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                MineSweeperModel model = null;
+                Throwable error = null;
+                Listener listener;
+                try {
+                    model = new MineSweeperModel(boardWidth, boardHeight, numberOfMines);
+                } catch (RuntimeException | Error e) {
+                    error = e;
+                } finally {
+                    synchronized (BoardPrefetcher.this) {
+                        generating = false;
+                        listener = waiting;
+                        waiting = null;
+                        if (model == null) {
+                            //not retried here, or a board that can never be built would spin
+                            if (listener == null) {
+                                failure = error;
+                            }
+                        } else if (listener == null) {
+                            ready = model;
+                        } else {
+                            //this board is handed over, so start on the one after it
+                            startNext();
+                        }
+                    }
+                }
+                if (listener == null) {
+                    return;
+                }
+                if (model != null) {
+                    listener.onBoardReady(model);
+                } else {
+                    listener.onBoardFailed(error);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.veronica.minesweeper.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Saved copy of a game in a versioned binary format.
+ * A 48 byte header (magic, version, game state, dimensions, mine count, flagged mine count, seed,
+ * elapsed time and the board's topology) is followed by the mine, flag and uncovered bitsets,
+ * one bit per square, and the numbers, four bits per square, all as raw long words. Storing the
+ * numbers rather than recounting them keeps restore to bulk copies, so a board of millions of
+ * squares saves and restores in a few milliseconds. Small boards fit in a byte array for a
+ * Bundle, large ones go to a memory-mapped file, which MappedBoard can also open and play in
+ * place.
+ */
+
+public final class BoardSnapshot {
+    //"MSWP"
+    static final int MAGIC = 0x4D535750;
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 48;
+
+    private final MineSweeperModel model;
+    private final long elapsedMillis;
+
+    /**
+     * @param model         game to save
+     * @param elapsedMillis time played so far
+     */
+    public BoardSnapshot(MineSweeperModel model, long elapsedMillis) {
+        this.model = model;
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public MineSweeperModel getModel() {
+        return model;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Returns the encoded size of this snapshot
+     */
+    public long sizeInBytes() {
+        PackedBoard board = model.getBoard();
+        return HEADER_BYTES + 8L * (3 * board.mines.length + board.counts.length);
+    }
+
+    /**
+     * Encodes this snapshot into a new byte array
+     */
+    public byte[] toBytes() {
+        byte[] bytes = new byte[(int) sizeInBytes()];
+        write(ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    /**
+     * Decodes a snapshot made by toBytes
+     *
+     * @param bytes encoded snapshot
+     * @throws IllegalArgumentException if the bytes are not a supported snapshot
+     */
+    public static BoardSnapshot fromBytes(byte[] bytes) {
+        return read(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Writes this snapshot to a file through a memory mapping, replacing its contents
+     *
+     * @param file destination file
+     * @throws IOException if the file cannot be written
+     */
+    public void writeTo(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(sizeInBytes());
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0,
+                    sizeInBytes());
+            write(buffer);
+            buffer.force();
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Reads a snapshot written by writeTo through a memory mapping
+     *
+     * @param file source file
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a supported snapshot
+     */
+    public static BoardSnapshot readFrom(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            return read(raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()));
+        } finally {
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes this snapshot at the buffer's position
+     *
+     * @param buffer destination with at least sizeInBytes() bytes remaining
+     */
+    public void write(ByteBuffer buffer) {
+        PackedBoard board = model.getBoard();
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort(model.getGameState());
+        buffer.putInt(board.width);
+        buffer.putInt(board.height);
+        buffer.putInt(model.getNumberOfMines());
+        buffer.putInt(model.getFlaggedMineCount());
+        buffer.putLong(model.getSeed());
+        buffer.putLong(elapsedMillis);
+        buffer.putInt(model.getTopology().kind());
+        //reserved, keeps the words below 8 byte aligned
+        buffer.putInt(0);
+
+        LongBuffer words = buffer.asLongBuffer();
+        words.put(board.mines);
+        words.put(board.flags);
+        words.put(board.uncovered);
+        words.put(board.counts);
+        buffer.position(buffer.position() + words.position() * 8);
+    }
+
+    /**
+     * Reads a snapshot from the buffer's position
+     *
+     * @param buffer source positioned at a snapshot header
+     * @throws IllegalArgumentException if the buffer does not hold a supported snapshot
+     */
+    public static BoardSnapshot read(ByteBuffer buffer) {
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a board snapshot");
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+        }
+        short gameState = buffer.getShort();
+        int width = buffer.getInt();
+        int height = buffer.getInt();
+        int mines = buffer.getInt();
+        //the tallies are recounted from the bitsets below
+        buffer.getInt();
+        long seed = buffer.getLong();
+        long elapsedMillis = buffer.getLong();
+        int topology = buffer.getInt();
+        buffer.getInt();
+        if (width < 1 || height < 1 ||
+                (long) width * height > MineSweeperModel.MAX_CELLS) {
+            throw new IllegalArgumentException(
+                    "Unsupported board size: " + width + "x" + height);
+        }
+
+        PackedBoard board = new PackedBoard(width, height);
+        if (buffer.remaining() < 8L * (3 * board.mines.length + board.counts.length)) {
+            throw new IllegalArgumentException("Truncated board snapshot");
+        }
+        LongBuffer words = buffer.asLongBuffer();
+        words.get(board.mines);
+        words.get(board.flags);
+        words.get(board.uncovered);
+        words.get(board.counts);
+        buffer.position(buffer.position() + words.position() * 8);
+        if (!unusedBitsClear(board) || board.countMines() != mines) {
+            throw new IllegalArgumentException("Corrupt board snapshot");
+        }
+        return new BoardSnapshot(new MineSweeperModel(BoardTopology.of(topology, width, height),
+                board, seed, gameState), elapsedMillis);
+    }
+
+    /**
+     * Checks that no bit is set past the last square, which would throw off the tallies
+     */
+    private static boolean unusedBitsClear(PackedBoard board) {
+        int used = board.cellCount & 63;
+        if (used == 0) {
+            return true;
+        }
+        long unused = -1L << used;
+        int last = board.mines.length - 1;
+        return ((board.mines[last] | board.flags[last] | board.uncovered[last]) & unused) == 0;
+    }
+}
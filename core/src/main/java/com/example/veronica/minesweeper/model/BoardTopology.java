@@ -0,0 +1,344 @@
+package com.example.veronica.minesweeper.model;
+
+import java.util.Arrays;
+
+/**
+ * The shape of a board: which squares touch which. Squares are indexed y * width + x.
+ * Neighbours are worked out once per shape and stored in a compact CSR layout. Every square
+ * falls into a neighbourhood by where it sits against the board's edges (and, on a hex grid, by
+ * its row's parity), and each neighbourhood lists its neighbours as index offsets. A square's
+ * neighbours are then a plain loop over its neighbourhood's offsets:
+ * <pre>
+ * int n = topology.neighbourhood(cell);
+ * for (int i = topology.firstNeighbour(n); i &lt; topology.endNeighbour(n); i++) {
+ *     int next = topology.neighbour(cell, i);
+ * }
+ * </pre>
+ * The tables hold a few hundred ints whatever the board size.
+ */
+
+public abstract class BoardTopology {
+    //Neighbourhoods by column position: first column, inner columns, last column
+    private static final int COLUMN_KEYS = 3;
+
+    //Tags saved with a board so that it is rebuilt in the same shape
+    static final int SQUARE = 0;
+    static final int TORUS = 1;
+    static final int HEX = 2;
+
+    final int width;
+    final int height;
+
+    //Neighbourhood of each column, and the neighbourhood added for each row
+    private final byte[] columnKey;
+    private final int[] rowKey;
+
+    //CSR layout: neighbourhood n's offsets are offsets[starts[n]] up to offsets[starts[n + 1]]
+    private int[] starts;
+    private int[] offsets;
+    private int maxDegree;
+
+    BoardTopology(int width, int height) {
+        if (width < 1 || height < 1 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported board size: " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        columnKey = new byte[width];
+        rowKey = new int[height];
+    }
+
+    /**
+     * The usual board: squares touch the eight around them, up to the edges
+     */
+    public static BoardTopology square(int width, int height) {
+        return new Square(width, height).build();
+    }
+
+    /**
+     * A board whose edges wrap around, so every square has eight neighbours
+     */
+    public static BoardTopology torus(int width, int height) {
+        return new Torus(width, height).build();
+    }
+
+    /**
+     * A hexagonal grid in offset rows, odd rows shifted half a square right, where squares
+     * touch the six around them
+     */
+    public static BoardTopology hex(int width, int height) {
+        return new Hex(width, height).build();
+    }
+
+    /**
+     * Rebuilds a shape from its saved tag
+     *
+     * @param kind   SQUARE, TORUS or HEX, as returned by kind()
+     * @param width  number of columns
+     * @param height number of rows
+     * @throws IllegalArgumentException if the tag is not a known shape
+     */
+    static BoardTopology of(int kind, int width, int height) {
+        if (kind == SQUARE) {
+            return square(width, height);
+        } else if (kind == TORUS) {
+            return torus(width, height);
+        } else if (kind == HEX) {
+            return hex(width, height);
+        }
+        throw new IllegalArgumentException("Unsupported topology: " + kind);
+    }
+
+    /**
+     * Returns the tag saved with a board of this shape, for of()
+     */
+    abstract int kind();
+
+    /**
+     * Returns where a position sits along a line of squares: 0 first, 1 inner, 2 last
+     */
+    static int edgeKey(int position, int length) {
+        return position == 0 ? 0 : position == length - 1 ? 2 : 1;
+    }
+
+    /**
+     * Returns how many row neighbourhood keys the shape uses
+     */
+    abstract int rowKeys();
+
+    /**
+     * Returns the neighbourhood key of a row of squares
+     *
+     * @param row row index
+     */
+    abstract int rowKey(int row);
+
+    /**
+     * Lists the neighbours of a square by its geometry, only used to fill the tables. The list
+     * may repeat squares and include the square itself; both are dropped.
+     *
+     * @param x   square's column
+     * @param row square's row
+     * @param out receives neighbour indices
+     */
+    abstract void addNeighbours(int x, int row, IntList out);
+
+    /**
+     * Fills the tables from one sample square of each neighbourhood
+     */
+    BoardTopology build() {
+        for (int x = 0; x < width; x++) {
+            columnKey[x] = (byte) edgeKey(x, width);
+        }
+        for (int row = 0; row < height; row++) {
+            rowKey[row] = rowKey(row) * COLUMN_KEYS;
+        }
+        int neighbourhoods = rowKeys() * COLUMN_KEYS;
+        int[] samples = new int[neighbourhoods];
+        Arrays.fill(samples, -1);
+        int[] sampleColumns = {0, Math.min(1, width - 1), width - 1};
+        for (int row = 0; row < height; row++) {
+            for (int x : sampleColumns) {
+                int n = columnKey[x] + rowKey[row];
+                if (samples[n] < 0) {
+                    samples[n] = row * width + x;
+                }
+            }
+        }
+
+        starts = new int[neighbourhoods + 1];
+        IntList all = new IntList();
+        IntList found = new IntList(32);
+        for (int n = 0; n < neighbourhoods; n++) {
+            starts[n] = all.size();
+            int cell = samples[n];
+            if (cell < 0) {
+                //no square of the board falls in this neighbourhood
+                continue;
+            }
+            found.clear();
+            addNeighbours(cell % width, cell / width, found);
+            int[] sorted = found.toArray();
+            Arrays.sort(sorted);
+            for (int i = 0; i < sorted.length; i++) {
+                if (sorted[i] != cell && (i == 0 || sorted[i] != sorted[i - 1])) {
+                    all.add(sorted[i] - cell);
+                }
+            }
+            maxDegree = Math.max(maxDegree, all.size() - starts[n]);
+        }
+        starts[neighbourhoods] = all.size();
+        offsets = all.toArray();
+        return this;
+    }
+
+    /**
+     * Returns the neighbourhood of a square, for firstNeighbour and endNeighbour
+     */
+    public final int neighbourhood(int cell) {
+        int row = cell / width;
+        return columnKey[cell - row * width] + rowKey[row];
+    }
+
+    public final int firstNeighbour(int neighbourhood) {
+        return starts[neighbourhood];
+    }
+
+    public final int endNeighbour(int neighbourhood) {
+        return starts[neighbourhood + 1];
+    }
+
+    /**
+     * Returns the neighbour of a square at position i of its neighbourhood
+     */
+    public final int neighbour(int cell, int i) {
+        return cell + offsets[i];
+    }
+
+    /**
+     * Collects a square's neighbours
+     *
+     * @param cell square index
+     * @param out  receives at least getMaxDegree() neighbours
+     * @return number of neighbours written to out
+     */
+    public final int neighbours(int cell, int[] out) {
+        int n = neighbourhood(cell);
+        int count = 0;
+        for (int i = starts[n]; i < starts[n + 1]; i++) {
+            out[count++] = cell + offsets[i];
+        }
+        return count;
+    }
+
+    /**
+     * Returns the most neighbours any square has
+     */
+    public final int getMaxDegree() {
+        return maxDegree;
+    }
+
+    public final int getWidth() {
+        return width;
+    }
+
+    public final int getHeight() {
+        return height;
+    }
+
+    public final int getCellCount() {
+        return width * height;
+    }
+
+    /**
+     * Returns whether this is the square grid, whose numbers AdjacencyCounter counts faster
+     * than a walk over the tables
+     */
+    boolean isSquare() {
+        return false;
+    }
+
+    private static final class Square extends BoardTopology {
+        Square(int width, int height) {
+            super(width, height);
+        }
+
+        @Override
+        int kind() {
+            return SQUARE;
+        }
+
+        @Override
+        int rowKeys() {
+            return 3;
+        }
+
+        @Override
+        int rowKey(int row) {
+            return edgeKey(row, height);
+        }
+
+        @Override
+        void addNeighbours(int x, int row, IntList out) {
+            for (int ny = Math.max(row - 1, 0); ny <= Math.min(row + 1, height - 1); ny++) {
+                for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+                    out.add(ny * width + nx);
+                }
+            }
+        }
+
+        @Override
+        boolean isSquare() {
+            return true;
+        }
+    }
+
+    private static final class Torus extends BoardTopology {
+        Torus(int width, int height) {
+            super(width, height);
+        }
+
+        @Override
+        int kind() {
+            return TORUS;
+        }
+
+        @Override
+        int rowKeys() {
+            return 3;
+        }
+
+        @Override
+        int rowKey(int row) {
+            return edgeKey(row, height);
+        }
+
+        @Override
+        void addNeighbours(int x, int row, IntList out) {
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    out.add((row + dy + height) % height * width + (x + dx + width) % width);
+                }
+            }
+        }
+    }
+
+    private static final class Hex extends BoardTopology {
+        Hex(int width, int height) {
+            super(width, height);
+        }
+
+        @Override
+        int kind() {
+            return HEX;
+        }
+
+        @Override
+        int rowKeys() {
+            return 6;
+        }
+
+        @Override
+        int rowKey(int row) {
+            return edgeKey(row, height) * 2 + (row & 1);
+        }
+
+        @Override
+        void addNeighbours(int x, int row, IntList out) {
+            //odd rows sit half a square right, so their diagonal neighbours are x and x + 1
+            int shift = row & 1;
+            addIfOnBoard(x - 1, row, out);
+            addIfOnBoard(x + 1, row, out);
+            for (int ny = row - 1; ny <= row + 1; ny += 2) {
+                addIfOnBoard(x - 1 + shift, ny, out);
+                addIfOnBoard(x + shift, ny, out);
+            }
+        }
+
+        private void addIfOnBoard(int x, int y, IntList out) {
+            if (x >= 0 && y >= 0 && x < width && y < height) {
+                out.add(y * width + x);
+            }
+        }
+    }
+}
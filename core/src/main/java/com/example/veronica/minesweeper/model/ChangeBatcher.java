@@ -0,0 +1,158 @@
+package com.example.veronica.minesweeper.model;
+
+import java.util.Arrays;
+
+/**
+ * Collects a model's changes between frames and hands them on as one merged batch.
+ * A square changed by several moves appears once, with its cover from before the first move
+ * and after the last, and squares that end where they started are left out. The first change
+ * after a flush runs the scheduler, which should arrange for flushTo() to be called before the
+ * next frame. Not thread-safe: use it on the thread that makes the moves.
+ */
+
+public final class ChangeBatcher implements BoardListener {
+    private final Runnable scheduler;
+
+    private final BoardChange pending = new BoardChange();
+    private final BoardChange merged = new BoardChange();
+
+    //One bit per square in pending, to notice a square changing twice
+    private long[] members = new long[0];
+    private boolean repeated;
+
+    private boolean reset;
+    private boolean stateChanged;
+    private short firstOldState;
+    private short lastNewState;
+
+    /**
+     * @param scheduler run when a change arrives after the last flush, for example to post a
+     *                  frame callback
+     */
+    public ChangeBatcher(Runnable scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void onCellsChanged(BoardChange change) {
+        if (reset || change.isEmpty()) {
+            //a reset makes the listener read the whole board anyway
+            return;
+        }
+        boolean wasEmpty = isEmpty();
+        for (int i = 0; i < change.size(); i++) {
+            int cell = change.getCell(i);
+            int word = cell >>> 6;
+            if (word >= members.length) {
+                members = Arrays.copyOf(members, Math.max(word + 1, members.length << 1));
+            }
+            if ((members[word] & (1L << cell)) != 0) {
+                repeated = true;
+            }
+            members[word] |= 1L << cell;
+            pending.add(cell, change.getOldCover(i), change.getNewCover(i));
+        }
+        if (wasEmpty) {
+            scheduler.run();
+        }
+    }
+
+    @Override
+    public void onGameStateChanged(short oldState, short newState) {
+        boolean wasEmpty = isEmpty();
+        if (!stateChanged) {
+            stateChanged = true;
+            firstOldState = oldState;
+        }
+        lastNewState = newState;
+        if (wasEmpty) {
+            scheduler.run();
+        }
+    }
+
+    @Override
+    public void onBoardReset() {
+        boolean wasEmpty = isEmpty();
+        reset = true;
+        clearCells();
+        if (wasEmpty) {
+            scheduler.run();
+        }
+    }
+
+    /**
+     * Returns whether nothing has changed since the last flush
+     */
+    public boolean isEmpty() {
+        return !reset && !stateChanged && pending.isEmpty();
+    }
+
+    /**
+     * Passes on everything since the last flush: a reset, then the merged squares as a single
+     * change, then the game state if it ended up different. Changes the target makes to the
+     * model while being told start the next batch.
+     *
+     * @param target the listener to tell
+     */
+    public void flushTo(BoardListener target) {
+        boolean wasReset = reset;
+        boolean wasStateChanged = stateChanged && firstOldState != lastNewState;
+        short oldState = firstOldState;
+        short newState = lastNewState;
+        merge();
+        clearCells();
+        reset = false;
+        stateChanged = false;
+
+        if (wasReset) {
+            target.onBoardReset();
+        }
+        if (!merged.isEmpty()) {
+            target.onCellsChanged(merged);
+        }
+        if (wasStateChanged) {
+            target.onGameStateChanged(oldState, newState);
+        }
+    }
+
+    /**
+     * Fills merged from pending, combining squares changed more than once
+     */
+    private void merge() {
+        merged.clear();
+        if (!repeated) {
+            for (int i = 0; i < pending.size(); i++) {
+                merged.add(pending.getCell(i), pending.getOldCover(i), pending.getNewCover(i));
+            }
+            return;
+        }
+        //sorts by square, keeping each square's changes in the order they happened
+        long[] order = new long[pending.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = (long) pending.getCell(i) << 32 | i;
+        }
+        Arrays.sort(order);
+        for (int start = 0; start < order.length; ) {
+            int cell = (int) (order[start] >>> 32);
+            int end = start + 1;
+            while (end < order.length && (int) (order[end] >>> 32) == cell) {
+                end++;
+            }
+            short oldCover = pending.getOldCover((int) order[start]);
+            short newCover = pending.getNewCover((int) order[end - 1]);
+            if (oldCover != newCover) {
+                merged.add(cell, oldCover, newCover);
+            }
+            start = end;
+        }
+    }
+
+    private void clearCells() {
+        for (int i = 0; i < pending.size(); i++) {
+            int cell = pending.getCell(i);
+            members[cell >>> 6] &= ~(1L << cell);
+        }
+        pending.clear();
+        repeated = false;
+    }
+}
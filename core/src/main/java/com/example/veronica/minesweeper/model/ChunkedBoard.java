@@ -0,0 +1,367 @@
+package com.example.veronica.minesweeper.model;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * An unbounded MineSweeper board made of fixed-size chunks.
+ * A chunk is only generated when one of its squares is first read, and its mines depend only on
+ * the board seed and the chunk's coordinates, so any chunk can be thrown away and rebuilt
+ * identically later. Chunks the player has not changed live in a bounded LRU cache; chunks
+ * holding flags or uncovered squares are kept for the rest of the game.
+ * A cascade stops after MAX_CASCADE squares and keeps its frontier, so continueCascade() can
+ * carry it on a step at a time. There is always more board to clear, so the game is never won:
+ * the game state only changes when a mine is uncovered.
+ */
+
+public class ChunkedBoard {
+    //Chunks are CHUNK_SIZE x CHUNK_SIZE squares, so one long holds a chunk row
+    public static final int CHUNK_SIZE = 64;
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_CELLS = CHUNK_SIZE * CHUNK_SIZE;
+
+    //Most squares a single uncover or continueCascade() will uncover, give or take a square's
+    //neighbours
+    public static final int MAX_CASCADE = 1 << 20;
+
+    private final long seed;
+    private final int minesPerChunk;
+    private final int cacheCapacity;
+
+    private short gameState = 0;
+
+    //Uncovered squares whose neighbours a stopped cascade has yet to visit, from frontierHead on
+    private IntList frontierX = new IntList();
+    private IntList frontierY = new IntList();
+    private int frontierHead;
+
+    //Unchanged chunks, least recently used first
+    private final LinkedHashMap<Long, Chunk> cache;
+
+    //Chunks with flags or uncovered squares, which cannot be regenerated from the seed
+    private final HashMap<Long, Chunk> touched = new HashMap<>();
+
+    /**
+     * @param seed          seed every chunk's mines are derived from
+     * @param density       fraction of squares holding a mine, between 0 and 1
+     * @param cacheCapacity most unchanged chunks to keep in memory at once
+     */
+    public ChunkedBoard(long seed, float density, int cacheCapacity) {
+        if (density < 0 || density > 1) {
+            throw new IllegalArgumentException("Unsupported mine density: " + density);
+        }
+        if (cacheCapacity < 9) {
+            //counting a chunk reads its eight neighbours
+            throw new IllegalArgumentException("Cache must hold at least 9 chunks");
+        }
+        this.seed = seed;
+        this.minesPerChunk = Math.round(density * CHUNK_CELLS);
+        this.cacheCapacity = cacheCapacity;
+        this.cache = new LinkedHashMap<Long, Chunk>(cacheCapacity * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+                return size() > ChunkedBoard.this.cacheCapacity;
+            }
+        };
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public short getFieldContent(int x, int y) {
+        Chunk chunk = chunkAt(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+        int local = localIndex(x, y);
+        if (chunk.isMine(local)) {
+            return MineSweeperModel.MINE;
+        }
+        return (short) chunk.getCount(local);
+    }
+
+    public short getCoverContent(int x, int y) {
+        Long key = key(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+        Chunk chunk = touched.get(key);
+        if (chunk == null) {
+            //unchanged chunks are fully covered, no need to generate them
+            return MineSweeperModel.COVERED;
+        }
+        int local = localIndex(x, y);
+        if (PackedBoard.get(chunk.flags, local)) {
+            return MineSweeperModel.FLAGGED;
+        } else if (PackedBoard.get(chunk.uncovered, local)) {
+            return MineSweeperModel.UNCOVERED;
+        }
+        return MineSweeperModel.COVERED;
+    }
+
+    public void setCoverContent(int x, int y, short state) {
+        Chunk chunk = touch(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+        int local = localIndex(x, y);
+        PackedBoard.set(chunk.flags, local, state == MineSweeperModel.FLAGGED);
+        PackedBoard.set(chunk.uncovered, local, state == MineSweeperModel.UNCOVERED);
+        if (state == MineSweeperModel.UNCOVERED && chunk.isMine(local)) {
+            gameState = MineSweeperModel.mineLoss;
+        }
+    }
+
+    /**
+     * Uncovers a square, cascading through connected empty squares. The cascade stops after
+     * MAX_CASCADE squares; continueCascade() carries it on from where it stopped.
+     *
+     * @param x square's column
+     * @param y square's row
+     * @return number of squares uncovered
+     */
+    public int uncover(int x, int y) {
+        if (getCoverContent(x, y) != MineSweeperModel.COVERED) {
+            return 0;
+        }
+        setCoverContent(x, y, MineSweeperModel.UNCOVERED);
+        frontierX.add(x);
+        frontierY.add(y);
+        return 1 + cascade();
+    }
+
+    /**
+     * Returns whether a cascade stopped at MAX_CASCADE with squares still to visit
+     */
+    public boolean hasPendingCascade() {
+        return frontierHead < frontierX.size();
+    }
+
+    /**
+     * Uncovers up to MAX_CASCADE more squares of a cascade that stopped
+     *
+     * @return number of squares uncovered, 0 if no cascade was pending
+     */
+    public int continueCascade() {
+        return cascade();
+    }
+
+    /**
+     * Visits the frontier's squares in order until it is empty or MAX_CASCADE squares have been
+     * uncovered, adding the covered neighbours of empty squares as it goes
+     */
+    private int cascade() {
+        if (frontierHead > 0) {
+            //drop the squares already visited by an earlier call
+            IntList restX = new IntList(frontierX.size() - frontierHead);
+            IntList restY = new IntList(frontierX.size() - frontierHead);
+            for (int i = frontierHead; i < frontierX.size(); i++) {
+                restX.add(frontierX.get(i));
+                restY.add(frontierY.get(i));
+            }
+            frontierX = restX;
+            frontierY = restY;
+            frontierHead = 0;
+        }
+        int uncovered = 0;
+        while (frontierHead < frontierX.size() && uncovered < MAX_CASCADE) {
+            int cx = frontierX.get(frontierHead);
+            int cy = frontierY.get(frontierHead);
+            frontierHead++;
+            if (getFieldContent(cx, cy) != 0) {
+                continue;
+            }
+            for (int ny = cy - 1; ny <= cy + 1; ny++) {
+                for (int nx = cx - 1; nx <= cx + 1; nx++) {
+                    if (getCoverContent(nx, ny) == MineSweeperModel.COVERED) {
+                        setCoverContent(nx, ny, MineSweeperModel.UNCOVERED);
+                        frontierX.add(nx);
+                        frontierY.add(ny);
+                        uncovered++;
+                    }
+                }
+            }
+        }
+        if (!hasPendingCascade()) {
+            frontierX.clear();
+            frontierY.clear();
+            frontierHead = 0;
+        }
+        return uncovered;
+    }
+
+    /**
+     * Returns 0, or mineLoss once a mine has been uncovered. An unbounded board is never won.
+     */
+    public short getGameState() {
+        return gameState;
+    }
+
+    /**
+     * Returns the number of unchanged chunks currently held in the cache
+     */
+    public int getCachedChunkCount() {
+        return cache.size();
+    }
+
+    /**
+     * Returns the number of chunks the player has changed
+     */
+    public int getTouchedChunkCount() {
+        return touched.size();
+    }
+
+    private static int localIndex(int x, int y) {
+        return ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+    }
+
+    private static Long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Returns a chunk, generating it and its counts if it is not in memory
+     */
+    private Chunk chunkAt(int cx, int cy) {
+        Long key = key(cx, cy);
+        Chunk chunk = touched.get(key);
+        if (chunk == null) {
+            chunk = cache.get(key);
+        }
+        if (chunk == null) {
+            chunk = new Chunk(generateMines(cx, cy));
+            chunk.placeNumbers(this, cx, cy);
+            cache.put(key, chunk);
+        } else if (!chunk.counted) {
+            chunk.placeNumbers(this, cx, cy);
+        }
+        return chunk;
+    }
+
+    /**
+     * Returns a chunk the player is changing, moving it out of the evictable cache
+     */
+    private Chunk touch(int cx, int cy) {
+        Long key = key(cx, cy);
+        Chunk chunk = touched.get(key);
+        if (chunk == null) {
+            chunk = chunkAt(cx, cy);
+            cache.remove(key);
+            touched.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Returns the mine rows of a chunk without counting it
+     */
+    private long[] minesOf(int cx, int cy) {
+        Long key = key(cx, cy);
+        Chunk chunk = touched.get(key);
+        if (chunk == null) {
+            chunk = cache.get(key);
+        }
+        if (chunk == null) {
+            chunk = new Chunk(generateMines(cx, cy));
+            cache.put(key, chunk);
+        }
+        return chunk.mines;
+    }
+
+    /**
+     * Places a chunk's mines with Floyd's sampling, seeded from the board seed and chunk position
+     *
+     * @return one long per chunk row, bit x set where column x holds a mine
+     */
+    private long[] generateMines(int cx, int cy) {
+        Random random = new Random(chunkSeed(seed, cx, cy));
+        long[] mines = new long[CHUNK_SIZE];
+        for (int j = CHUNK_CELLS - minesPerChunk; j < CHUNK_CELLS; j++) {
+            int cell = random.nextInt(j + 1);
+            if (PackedBoard.get(mines, cell)) {
+                cell = j;
+            }
+            PackedBoard.set(mines, cell, true);
+        }
+        return mines;
+    }
+
+    /**
+     * Mixes the board seed with chunk coordinates so neighbouring chunks get unrelated streams
+     */
+    static long chunkSeed(long seed, int cx, int cy) {
+        long z = seed + 0x9E3779B97F4A7C15L * (((long) cx << 32) ^ (cy & 0xFFFFFFFFL));
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * One CHUNK_SIZE x CHUNK_SIZE block of the board
+     */
+    private static final class Chunk {
+        final long[] mines;
+        final long[] flags = new long[CHUNK_SIZE];
+        final long[] uncovered = new long[CHUNK_SIZE];
+        final long[] counts = new long[CHUNK_CELLS / 16];
+        boolean counted;
+
+        Chunk(long[] mines) {
+            this.mines = mines;
+        }
+
+        boolean isMine(int local) {
+            return PackedBoard.get(mines, local);
+        }
+
+        int getCount(int local) {
+            return (int) (counts[local >>> 4] >>> ((local & 15) << 2)) & 0xF;
+        }
+
+        /**
+         * Counts adjacent mines for every square, reading the edge rows of the eight neighbours
+         */
+        void placeNumbers(ChunkedBoard board, int cx, int cy) {
+            long[] above = board.minesOf(cx, cy - 1);
+            long[] below = board.minesOf(cx, cy + 1);
+            long[] left = board.minesOf(cx - 1, cy);
+            long[] right = board.minesOf(cx + 1, cy);
+            long aboveLeft = board.minesOf(cx - 1, cy - 1)[CHUNK_SIZE - 1];
+            long aboveRight = board.minesOf(cx + 1, cy - 1)[CHUNK_SIZE - 1];
+            long belowLeft = board.minesOf(cx - 1, cy + 1)[0];
+            long belowRight = board.minesOf(cx + 1, cy + 1)[0];
+
+            for (int y = 0; y < CHUNK_SIZE; y++) {
+                long word = 0;
+                for (int x = 0; x < CHUNK_SIZE; x++) {
+                    int count = 0;
+                    for (int dy = -1; dy <= 1; dy++) {
+                        int ry = y + dy;
+                        long row;
+                        int leftBit;
+                        int rightBit;
+                        if (ry < 0) {
+                            row = above[CHUNK_SIZE - 1];
+                            leftBit = (int) (aboveLeft >>> CHUNK_MASK) & 1;
+                            rightBit = (int) aboveRight & 1;
+                        } else if (ry == CHUNK_SIZE) {
+                            row = below[0];
+                            leftBit = (int) (belowLeft >>> CHUNK_MASK) & 1;
+                            rightBit = (int) belowRight & 1;
+                        } else {
+                            row = mines[ry];
+                            leftBit = (int) (left[ry] >>> CHUNK_MASK) & 1;
+                            rightBit = (int) right[ry] & 1;
+                        }
+                        count += x > 0 ? (int) (row >>> (x - 1)) & 1 : leftBit;
+                        count += x < CHUNK_MASK ? (int) (row >>> (x + 1)) & 1 : rightBit;
+                        if (dy != 0) {
+                            count += (int) (row >>> x) & 1;
+                        }
+                    }
+                    word |= (long) count << ((x & 15) << 2);
+                    if ((x & 15) == 15) {
+                        counts[((y << CHUNK_SHIFT) | x) >>> 4] = word;
+                        word = 0;
+                    }
+                }
+            }
+            counted = true;
+        }
+    }
+}
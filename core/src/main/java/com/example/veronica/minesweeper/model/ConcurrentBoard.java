@@ -0,0 +1,253 @@
+package com.example.veronica.minesweeper.model;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A board that many players or bots can play at once from different threads.
+ * Mines and numbers are fixed once the board is built and are shared read-only. Each square's
+ * cover state is two bits in an AtomicLongArray, thirty-two squares to a word, and every move
+ * claims its squares with a compare-and-set, so there are no locks and each square is flagged
+ * or uncovered by exactly one move. Flags can only be placed, never taken back, which keeps the
+ * tallies monotonic: the move that flags the last mine, misplaces a flag or uncovers a mine is
+ * the one that ends the game, and the game state is set once with a compare-and-set. A losing
+ * move that finds the game already ended by another covers its square again, so a won board
+ * never shows a wrong flag or an uncovered mine.
+ */
+
+public final class ConcurrentBoard {
+    /**
+     * Told when a move ends the game
+     */
+    public interface GameOverListener {
+        /**
+         * Called once, on the thread whose move ended the game
+         *
+         * @param gameState WIN, mineLoss or flagLoss
+         */
+        void onGameOver(short gameState);
+    }
+
+    private static final int CELLS_PER_WORD = 32;
+
+    //Cover states, two bits per square
+    private static final long COVERED_BITS = 0;
+    private static final long UNCOVERED_BITS = 1;
+    private static final long FLAGGED_BITS = 2;
+    private static final long STATE_MASK = 3;
+
+    private final int boardWidth;
+    private final int boardHeight;
+    private final int numberOfMines;
+    private final BoardTopology topology;
+
+    //Read-only copies of the model's mines and numbers
+    private final long[] mines;
+    private final PackedBoard numbers;
+
+    private final AtomicLongArray cover;
+    private final AtomicInteger correctFlags;
+    private final AtomicInteger gameState;
+    private volatile GameOverListener listener;
+
+    /**
+     * Copies a model's board, including any flags and uncovered squares it already has
+     *
+     * @param model the game to share; it is not changed by moves on this board
+     */
+    public ConcurrentBoard(MineSweeperModel model) {
+        PackedBoard board = model.getBoard();
+        boardWidth = board.width;
+        boardHeight = board.height;
+        numberOfMines = model.getNumberOfMines();
+        topology = model.getTopology();
+        mines = board.mines.clone();
+        numbers = new PackedBoard(boardWidth, boardHeight);
+        System.arraycopy(board.counts, 0, numbers.counts, 0, board.counts.length);
+
+        long[] words = new long[(board.cellCount + CELLS_PER_WORD - 1) / CELLS_PER_WORD];
+        for (int cell = 0; cell < board.cellCount; cell++) {
+            long state = PackedBoard.get(board.flags, cell) ? FLAGGED_BITS :
+                    PackedBoard.get(board.uncovered, cell) ? UNCOVERED_BITS : COVERED_BITS;
+            words[cell / CELLS_PER_WORD] |= state << shift(cell);
+        }
+        cover = new AtomicLongArray(words);
+        correctFlags = new AtomicInteger(board.countFlaggedMines());
+        gameState = new AtomicInteger(model.getGameState());
+    }
+
+    /**
+     * Sets the listener told when a move ends the game
+     *
+     * @param listener the listener, or null for none
+     */
+    public void setGameOverListener(GameOverListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Places a flag on a covered square. Flagging a square without a mine loses the game and
+     * flagging the last mine wins it.
+     *
+     * @param x square's column
+     * @param y square's row
+     * @return true if this call placed the flag, false if the square was not covered or the
+     * game was already over
+     */
+    public boolean flag(int x, int y) {
+        int cell = y * boardWidth + x;
+        if (gameState.get() != 0 || !claim(cell, FLAGGED_BITS)) {
+            return false;
+        }
+        if (!PackedBoard.get(mines, cell)) {
+            if (!finish(MineSweeperModel.flagLoss)) {
+                //another move ended the game first, so this flag was never placed
+                release(cell);
+                return false;
+            }
+        } else if (correctFlags.incrementAndGet() == numberOfMines) {
+            finish(MineSweeperModel.WIN);
+        }
+        Metrics.MOVES.add(1);
+        return true;
+    }
+
+    /**
+     * Uncovers a covered square, cascading through empty regions as MineSweeperModel.uncover
+     * does. Moves running at the same time split a shared region between them, each square
+     * going to whichever move claims it first.
+     *
+     * @param x square's column
+     * @param y square's row
+     * @return indices of the squares this call uncovered, empty if the square was already
+     * taken or the game was already over
+     */
+    public IntList uncover(int x, int y) {
+        IntList revealed = new IntList();
+        int start = y * boardWidth + x;
+        if (gameState.get() != 0 || !claim(start, UNCOVERED_BITS)) {
+            return revealed;
+        }
+        revealed.add(start);
+        if (PackedBoard.get(mines, start)) {
+            if (!finish(MineSweeperModel.mineLoss)) {
+                //another move ended the game first, so this mine was never uncovered
+                release(start);
+                revealed.clear();
+            }
+            return revealed;
+        }
+
+        //revealed is also the queue: squares before head have had their neighbours visited
+        for (int head = 0; head < revealed.size(); head++) {
+            int cell = revealed.get(head);
+            if (numbers.getCount(cell) != 0) {
+                continue;
+            }
+            int n = topology.neighbourhood(cell);
+            for (int i = topology.firstNeighbour(n); i < topology.endNeighbour(n); i++) {
+                int next = topology.neighbour(cell, i);
+                //neighbours of an empty square are never mines
+                if (claim(next, UNCOVERED_BITS)) {
+                    revealed.add(next);
+                }
+            }
+        }
+        Metrics.MOVES.add(1);
+        Metrics.CELLS_UNCOVERED.add(revealed.size());
+        return revealed;
+    }
+
+    /**
+     * Moves a covered square to a new state, retrying only when another square in the same
+     * word changed first
+     *
+     * @return true if the square was covered and this call changed it
+     */
+    private boolean claim(int cell, long state) {
+        int word = cell / CELLS_PER_WORD;
+        int shift = shift(cell);
+        while (true) {
+            long current = cover.get(word);
+            if (((current >>> shift) & STATE_MASK) != COVERED_BITS) {
+                return false;
+            }
+            if (cover.compareAndSet(word, current, current | (state << shift))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Covers a square again that this call claimed, for a losing move that found the game
+     * already over
+     */
+    private void release(int cell) {
+        int word = cell / CELLS_PER_WORD;
+        long clear = ~(STATE_MASK << shift(cell));
+        while (true) {
+            long current = cover.get(word);
+            if (cover.compareAndSet(word, current, current & clear)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Ends the game unless another move already has, telling the listener if this call did
+     *
+     * @return true if this call ended the game
+     */
+    private boolean finish(short state) {
+        if (!gameState.compareAndSet(0, state)) {
+            return false;
+        }
+        GameOverListener current = listener;
+        if (current != null) {
+            current.onGameOver(state);
+        }
+        return true;
+    }
+
+    private static int shift(int cell) {
+        return (cell & (CELLS_PER_WORD - 1)) << 1;
+    }
+
+    public short getFieldContent(int x, int y) {
+        int cell = y * boardWidth + x;
+        if (PackedBoard.get(mines, cell)) {
+            return MineSweeperModel.MINE;
+        }
+        return (short) numbers.getCount(cell);
+    }
+
+    public short getCoverContent(int x, int y) {
+        int cell = y * boardWidth + x;
+        long state = (cover.get(cell / CELLS_PER_WORD) >>> shift(cell)) & STATE_MASK;
+        if (state == FLAGGED_BITS) {
+            return MineSweeperModel.FLAGGED;
+        } else if (state == UNCOVERED_BITS) {
+            return MineSweeperModel.UNCOVERED;
+        }
+        return MineSweeperModel.COVERED;
+    }
+
+    /**
+     * Returns 0 while the game is being played, then WIN, mineLoss or flagLoss for good
+     */
+    public short getGameState() {
+        return (short) gameState.get();
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHeight() {
+        return boardHeight;
+    }
+
+    public int getNumberOfMines() {
+        return numberOfMines;
+    }
+}
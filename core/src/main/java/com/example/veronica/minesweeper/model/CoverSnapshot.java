@@ -0,0 +1,69 @@
+package com.example.veronica.minesweeper.model;
+
+/**
+ * A game's flags and uncovered squares frozen at one moment, for handing to another thread.
+ * Taking one from a game that keeps undo history costs nothing: it holds the history's current
+ * version, which is never changed once made, and BoardCovers copies the words out of it on
+ * whichever thread builds the copy. Games without history are copied when the snapshot is taken.
+ */
+
+public final class CoverSnapshot {
+    private final int boardWidth;
+    private final int boardHeight;
+    private final int words;
+
+    //The version the covers are read from, or null when flags and uncovered hold a copy
+    private final BoardHistory history;
+    private final Object version;
+    private final long[] flags;
+    private final long[] uncovered;
+
+    /**
+     * Freezes a board's covers as they are between moves
+     *
+     * @param board   the game's board
+     * @param history the game's undo history, or null if it keeps none
+     */
+    CoverSnapshot(PackedBoard board, BoardHistory history) {
+        boardWidth = board.width;
+        boardHeight = board.height;
+        words = board.flags.length;
+        this.history = history;
+        if (history != null) {
+            version = history.currentVersion();
+            flags = null;
+            uncovered = null;
+        } else {
+            version = null;
+            flags = board.flags.clone();
+            uncovered = board.uncovered.clone();
+        }
+    }
+
+    /**
+     * Fills flat flag and uncovered words with the frozen covers, on any thread
+     *
+     * @param flagsOut     receives the flag words
+     * @param uncoveredOut receives the uncovered words
+     */
+    void copyTo(long[] flagsOut, long[] uncoveredOut) {
+        if (history != null) {
+            history.copyVersion(version, flagsOut, uncoveredOut);
+        } else {
+            System.arraycopy(flags, 0, flagsOut, 0, words);
+            System.arraycopy(uncovered, 0, uncoveredOut, 0, words);
+        }
+    }
+
+    int getWords() {
+        return words;
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHeight() {
+        return boardHeight;
+    }
+}
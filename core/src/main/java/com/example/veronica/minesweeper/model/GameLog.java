@@ -0,0 +1,41 @@
+package com.example.veronica.minesweeper.model;
+
+/**
+ * Pluggable debug logging for the game core, which cannot depend on android.util.Log.
+ * Nothing is logged until a Logger is installed. Callers check isEnabled() before building a
+ * message, so a disabled log costs one static field read.
+ */
+
+public final class GameLog {
+    /**
+     * Receives log lines from the game core
+     */
+    public interface Logger {
+        void log(String tag, String message);
+    }
+
+    private static Logger logger = null;
+
+    private GameLog() {
+    }
+
+    /**
+     * Installs the logger, or disables logging when given null
+     *
+     * @param newLogger destination for log lines
+     */
+    public static void setLogger(Logger newLogger) {
+        logger = newLogger;
+    }
+
+    public static boolean isEnabled() {
+        return logger != null;
+    }
+
+    public static void log(String tag, String message) {
+        Logger current = logger;
+        if (current != null) {
+            current.log(tag, message);
+        }
+    }
+}
@@ -0,0 +1,544 @@
+package com.example.veronica.minesweeper.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A board kept in a memory-mapped file instead of the heap, for boards of billions of squares.
+ * The file is a BoardSnapshot: the same header, bitsets and nibble counts, so a saved game opens
+ * here directly and a board small enough for MineSweeperModel reads back with BoardSnapshot.
+ * The file is mapped in segments on first touch and the operating system pages data in as it is
+ * read, so opening a board only reads its header. Changed segments are written back by a
+ * background thread every FLUSH_INTERVAL_MILLIS, and by flush() and close().
+ * Squares are indexed with longs; like MineSweeperModel, one thread makes the moves.
+ */
+
+public final class MappedBoard implements Closeable {
+    //A single mapping cannot exceed 2 GB, so the file is mapped in segments of this many bytes
+    static final int SEGMENT_SHIFT = 30;
+
+    //How often changed segments are written back to the file
+    public static final long FLUSH_INTERVAL_MILLIS = 1000;
+
+    //Header fields rewritten as the game goes on
+    private static final int GAME_STATE_OFFSET = 6;
+    private static final int FLAGGED_MINES_OFFSET = 20;
+    private static final int ELAPSED_OFFSET = 32;
+
+    //Shape tag; moves here follow the square grid, so only square boards open
+    private static final int TOPOLOGY_OFFSET = 40;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final int segmentShift;
+    private final long fileSize;
+
+    //Mapped on first touch; dirty holds 1 for segments changed since they were last flushed
+    private final MappedByteBuffer[] segments;
+    private final AtomicIntegerArray dirty;
+    private final ScheduledExecutorService flusher;
+
+    private final int boardWidth;
+    private final int boardHeight;
+    private final long cellCount;
+    private final int numberOfMines;
+    private final long seed;
+
+    //Byte offsets of the bitsets and counts
+    private final long minesOffset;
+    private final long flagsOffset;
+    private final long uncoveredOffset;
+    private final long countsOffset;
+
+    private short gameState;
+    private int flaggedMines;
+
+    private MappedBoard(RandomAccessFile file, int segmentShift, int boardWidth, int boardHeight,
+                        int numberOfMines, long seed) throws IOException {
+        this.file = file;
+        this.channel = file.getChannel();
+        this.segmentShift = segmentShift;
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.cellCount = (long) boardWidth * boardHeight;
+        this.numberOfMines = numberOfMines;
+        this.seed = seed;
+        long bitBytes = ((cellCount + 63) >>> 6) << 3;
+        minesOffset = BoardSnapshot.HEADER_BYTES;
+        flagsOffset = minesOffset + bitBytes;
+        uncoveredOffset = flagsOffset + bitBytes;
+        countsOffset = uncoveredOffset + bitBytes;
+        fileSize = countsOffset + (((cellCount + 15) >>> 4) << 3);
+
+        int segmentCount = (int) ((fileSize + (1L << segmentShift) - 1) >>> segmentShift);
+        segments = new MappedByteBuffer[segmentCount];
+        dirty = new AtomicIntegerArray(segmentCount);
+        flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "MappedBoardFlusher");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        flusher.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                forceDirtySegments();
+            }
+        }, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Generates a new board into a file, replacing its contents. With the same arguments and a
+     * board small enough for MineSweeperModel, the mines are the same as a seeded model's
+     * without a safe start.
+     *
+     * @param file          destination file
+     * @param boardWidth    number of columns
+     * @param boardHeight   number of rows
+     * @param numberOfMines number of mines hidden on the board
+     * @param seed          seed for the mine positions
+     * @throws IOException if the file cannot be written
+     */
+    public static MappedBoard create(File file, int boardWidth, int boardHeight,
+                                     int numberOfMines, long seed) throws IOException {
+        return create(file, boardWidth, boardHeight, numberOfMines, seed, SEGMENT_SHIFT);
+    }
+
+    static MappedBoard create(File file, int boardWidth, int boardHeight, int numberOfMines,
+                              long seed, int segmentShift) throws IOException {
+        if (boardWidth < 1 || boardHeight < 1) {
+            throw new IllegalArgumentException(
+                    "Unsupported board size: " + boardWidth + "x" + boardHeight);
+        }
+        if (numberOfMines < 0 || numberOfMines > (long) boardWidth * boardHeight) {
+            throw new IllegalArgumentException("Unsupported number of mines: " + numberOfMines);
+        }
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        MappedBoard board;
+        try {
+            board = new MappedBoard(raf, segmentShift, boardWidth, boardHeight, numberOfMines,
+                    seed);
+            //the file starts out as zeros: no mines, flags or uncovered squares
+            raf.setLength(0);
+            raf.setLength(board.fileSize);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+        ByteBuffer header = board.segment(0);
+        header.putInt(0, BoardSnapshot.MAGIC);
+        header.putShort(4, BoardSnapshot.VERSION);
+        header.putInt(8, boardWidth);
+        header.putInt(12, boardHeight);
+        header.putInt(16, numberOfMines);
+        header.putLong(24, seed);
+        header.putInt(TOPOLOGY_OFFSET, BoardTopology.SQUARE);
+        board.placeMines(new Random(seed));
+        board.placeNumbers();
+        board.flush();
+        return board;
+    }
+
+    /**
+     * Opens a board saved by MappedBoard or BoardSnapshot, reading only its header
+     *
+     * @param file source file, which later moves are written back to
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if the file is not a supported snapshot or its board is
+     *                                  not a square grid
+     */
+    public static MappedBoard open(File file) throws IOException {
+        return open(file, SEGMENT_SHIFT);
+    }
+
+    static MappedBoard open(File file, int segmentShift) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() < BoardSnapshot.HEADER_BYTES) {
+                throw new IllegalArgumentException("Not a board snapshot");
+            }
+            byte[] bytes = new byte[BoardSnapshot.HEADER_BYTES];
+            raf.readFully(bytes);
+            ByteBuffer header = ByteBuffer.wrap(bytes).order(ByteOrder.BIG_ENDIAN);
+            if (header.getInt(0) != BoardSnapshot.MAGIC) {
+                throw new IllegalArgumentException("Not a board snapshot");
+            }
+            short version = header.getShort(4);
+            if (version != BoardSnapshot.VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot version: " + version);
+            }
+            int topology = header.getInt(TOPOLOGY_OFFSET);
+            if (topology != BoardTopology.SQUARE) {
+                throw new IllegalArgumentException("Unsupported topology: " + topology);
+            }
+            int width = header.getInt(8);
+            int height = header.getInt(12);
+            int mines = header.getInt(16);
+            if (width < 1 || height < 1 || mines < 0 || mines > (long) width * height) {
+                throw new IllegalArgumentException(
+                        "Unsupported board size: " + width + "x" + height);
+            }
+            MappedBoard board = new MappedBoard(raf, segmentShift, width, height, mines,
+                    header.getLong(24));
+            if (raf.length() < board.fileSize) {
+                board.close();
+                throw new IllegalArgumentException("Truncated board snapshot");
+            }
+            board.gameState = header.getShort(GAME_STATE_OFFSET);
+            board.flaggedMines = header.getInt(FLAGGED_MINES_OFFSET);
+            return board;
+        } catch (IOException | IllegalArgumentException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Places mines with Floyd's sampling, as MineSweeperModel does, drawing long indices once
+     * the board has more squares than an int can count
+     */
+    private void placeMines(Random random) {
+        for (long j = cellCount - numberOfMines; j < cellCount; j++) {
+            long cell = j < Integer.MAX_VALUE ? random.nextInt((int) (j + 1)) :
+                    nextLong(random, j + 1);
+            if (getBit(minesOffset, cell)) {
+                cell = j;
+            }
+            setBit(minesOffset, cell, true);
+        }
+    }
+
+    /**
+     * Returns a uniformly drawn long in [0, bound), rejecting the values that would favour
+     * small results, as Random.nextInt does for ints
+     */
+    private static long nextLong(Random random, long bound) {
+        long bits;
+        long value;
+        do {
+            bits = random.nextLong() >>> 1;
+            value = bits % bound;
+        } while (bits - value + (bound - 1) < 0);
+        return value;
+    }
+
+    /**
+     * Writes every square's number of adjacent mines, a row at a time, with the same nibbles
+     * AdjacencyCounter gives an in-heap board
+     */
+    private void placeNumbers() {
+        byte[] above = new byte[boardWidth];
+        byte[] row = new byte[boardWidth];
+        byte[] below = new byte[boardWidth];
+        sumRow(0, row);
+        long word = 0;
+        long cell = 0;
+        for (int y = 0; y < boardHeight; y++) {
+            if (y + 1 < boardHeight) {
+                sumRow(y + 1, below);
+            } else {
+                Arrays.fill(below, (byte) 0);
+            }
+            for (int x = 0; x < boardWidth; x++, cell++) {
+                long mine = getBit(minesOffset, cell) ? 1 : 0;
+                long count = above[x] + row[x] + below[x] - mine;
+                word |= count << ((cell & 15) << 2);
+                if ((cell & 15) == 15) {
+                    putWord(countsOffset, cell >>> 4, word);
+                    word = 0;
+                }
+            }
+            byte[] spare = above;
+            above = row;
+            row = below;
+            below = spare;
+        }
+        if ((cell & 15) != 0) {
+            putWord(countsOffset, cell >>> 4, word);
+        }
+    }
+
+    /**
+     * Sums each square of a row with its left and right neighbours
+     */
+    private void sumRow(int y, byte[] sums) {
+        long base = (long) y * boardWidth;
+        int left = 0;
+        int centre = getBit(minesOffset, base) ? 1 : 0;
+        for (int x = 0; x < boardWidth; x++) {
+            int right = x + 1 < boardWidth && getBit(minesOffset, base + x + 1) ? 1 : 0;
+            sums[x] = (byte) (left + centre + right);
+            left = centre;
+            centre = right;
+        }
+    }
+
+    public short getFieldContent(int x, int y) {
+        long cell = index(x, y);
+        if (getBit(minesOffset, cell)) {
+            return MineSweeperModel.MINE;
+        }
+        long word = getWord(countsOffset, cell >>> 4);
+        return (short) ((word >>> ((cell & 15) << 2)) & 0xF);
+    }
+
+    public short getCoverContent(int x, int y) {
+        long cell = index(x, y);
+        if (getBit(flagsOffset, cell)) {
+            return MineSweeperModel.FLAGGED;
+        } else if (getBit(uncoveredOffset, cell)) {
+            return MineSweeperModel.UNCOVERED;
+        }
+        return MineSweeperModel.COVERED;
+    }
+
+    /**
+     * Flags, covers or uncovers a single square. A misplaced flag or an uncovered mine loses the
+     * game and flagging every mine wins it; moves after the game is decided leave its state as
+     * it is.
+     *
+     * @param x     square's column
+     * @param y     square's row
+     * @param state COVERED, FLAGGED or UNCOVERED
+     */
+    public void setCoverContent(int x, int y, short state) {
+        long cell = index(x, y);
+        boolean mine = getBit(minesOffset, cell);
+        if (mine && getBit(flagsOffset, cell)) {
+            flaggedMines--;
+        }
+        setBit(flagsOffset, cell, state == MineSweeperModel.FLAGGED);
+        setBit(uncoveredOffset, cell, state == MineSweeperModel.UNCOVERED);
+        if (mine && state == MineSweeperModel.FLAGGED) {
+            flaggedMines++;
+        }
+        short newState = gameState;
+        if (gameState == 0) {
+            if (state == MineSweeperModel.FLAGGED && !mine) {
+                newState = MineSweeperModel.flagLoss;
+            } else if (state == MineSweeperModel.UNCOVERED && mine) {
+                newState = MineSweeperModel.mineLoss;
+            } else if (flaggedMines == numberOfMines) {
+                newState = MineSweeperModel.WIN;
+            }
+        }
+        ByteBuffer header = segment(0);
+        header.putInt(FLAGGED_MINES_OFFSET, flaggedMines);
+        if (newState != gameState) {
+            gameState = newState;
+            header.putShort(GAME_STATE_OFFSET, gameState);
+        }
+        markDirty(0);
+    }
+
+    /**
+     * Uncovers a covered square, cascading through connected empty squares.
+     * The fill goes one ring at a time, so only the current ring and the next are held in
+     * memory however large the region is.
+     *
+     * @param x square's column
+     * @param y square's row
+     * @return number of squares uncovered
+     */
+    public long uncover(int x, int y) {
+        if (getCoverContent(x, y) != MineSweeperModel.COVERED) {
+            return 0;
+        }
+        setCoverContent(x, y, MineSweeperModel.UNCOVERED);
+        long uncovered = 1;
+        IntList ringX = new IntList();
+        IntList ringY = new IntList();
+        ringX.add(x);
+        ringY.add(y);
+        while (!ringX.isEmpty()) {
+            IntList nextX = new IntList();
+            IntList nextY = new IntList();
+            for (int i = 0; i < ringX.size(); i++) {
+                int cx = ringX.get(i);
+                int cy = ringY.get(i);
+                if (getFieldContent(cx, cy) != 0) {
+                    continue;
+                }
+                for (int ny = Math.max(cy - 1, 0); ny <= Math.min(cy + 1, boardHeight - 1);
+                     ny++) {
+                    for (int nx = Math.max(cx - 1, 0); nx <= Math.min(cx + 1, boardWidth - 1);
+                         nx++) {
+                        long next = index(nx, ny);
+                        if (!getBit(uncoveredOffset, next) && !getBit(flagsOffset, next)) {
+                            //neighbours of an empty square are never mines
+                            setBit(uncoveredOffset, next, true);
+                            nextX.add(nx);
+                            nextY.add(ny);
+                            uncovered++;
+                        }
+                    }
+                }
+            }
+            ringX = nextX;
+            ringY = nextY;
+        }
+        return uncovered;
+    }
+
+    public short getGameState() {
+        return gameState;
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHeight() {
+        return boardHeight;
+    }
+
+    public long getCellCount() {
+        return cellCount;
+    }
+
+    public int getNumberOfMines() {
+        return numberOfMines;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getElapsedMillis() {
+        return segment(0).getLong(ELAPSED_OFFSET);
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        segment(0).putLong(ELAPSED_OFFSET, elapsedMillis);
+        markDirty(0);
+    }
+
+    /**
+     * Returns the number of file segments mapped so far, which grows as squares are touched
+     */
+    int getMappedSegmentCount() {
+        int mapped = 0;
+        for (MappedByteBuffer segment : segments) {
+            if (segment != null) {
+                mapped++;
+            }
+        }
+        return mapped;
+    }
+
+    /**
+     * Writes every changed segment back to the file now
+     *
+     * @throws IOException if the board has been closed
+     */
+    public void flush() throws IOException {
+        if (!channel.isOpen()) {
+            throw new IOException("Board is closed");
+        }
+        forceDirtySegments();
+    }
+
+    /**
+     * Stops the background flushes, writes back what changed and closes the file. The mappings
+     * are released by the garbage collector, as Java cannot unmap them sooner.
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (channel.isOpen()) {
+            forceDirtySegments();
+        }
+        file.close();
+    }
+
+    /**
+     * Forces changed segments to the file. Runs on the flusher thread as well as the caller's;
+     * a segment is marked clean before it is forced, so a change made meanwhile is not lost.
+     */
+    private void forceDirtySegments() {
+        for (int i = 0; i < segments.length; i++) {
+            if (dirty.compareAndSet(i, 1, 0)) {
+                segments[i].force();
+            }
+        }
+    }
+
+    private long index(int x, int y) {
+        return (long) y * boardWidth + x;
+    }
+
+    private boolean getBit(long section, long cell) {
+        return (getWord(section, cell >>> 6) & (1L << cell)) != 0;
+    }
+
+    private void setBit(long section, long cell, boolean value) {
+        long word = getWord(section, cell >>> 6);
+        long updated = value ? word | (1L << cell) : word & ~(1L << cell);
+        if (updated != word) {
+            putWord(section, cell >>> 6, updated);
+        }
+    }
+
+    /**
+     * Reads a long word. Sections start on a multiple of 8 bytes and segments are a power of
+     * two bytes long, so no word straddles two segments.
+     */
+    private long getWord(long section, long word) {
+        long offset = section + (word << 3);
+        return segment((int) (offset >>> segmentShift))
+                .getLong((int) (offset & ((1L << segmentShift) - 1)));
+    }
+
+    private void putWord(long section, long word, long value) {
+        long offset = section + (word << 3);
+        int index = (int) (offset >>> segmentShift);
+        segment(index).putLong((int) (offset & ((1L << segmentShift) - 1)), value);
+        markDirty(index);
+    }
+
+    private void markDirty(int index) {
+        if (dirty.get(index) == 0) {
+            dirty.set(index, 1);
+        }
+    }
+
+    /**
+     * Returns a segment, mapping it on first use
+     */
+    private MappedByteBuffer segment(int index) {
+        MappedByteBuffer segment = segments[index];
+        if (segment == null) {
+            long start = (long) index << segmentShift;
+            try {
+                segment = channel.map(FileChannel.MapMode.READ_WRITE, start,
+                        Math.min(1L << segmentShift, fileSize - start));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot map board segment " + index, e);
+            }
+            segment.order(ByteOrder.BIG_ENDIAN);
+            segments[index] = segment;
+        }
+        return segment;
+    }
+}
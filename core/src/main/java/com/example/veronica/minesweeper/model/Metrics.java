@@ -0,0 +1,196 @@
+package com.example.veronica.minesweeper.model;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and latency histograms for the game's hot paths.
+ * Recording is switched off by default. Callers take a start time with start(), which returns
+ * 0 while disabled, and recordSince() ignores a 0 start, so a disabled timer costs one field
+ * read and no clock calls. dump() gives a plain text summary for the debug overlay and tests.
+ */
+
+public final class Metrics {
+    /**
+     * Running count of events
+     */
+    public static final class Counter {
+        private final String name;
+        private final AtomicLong value = new AtomicLong();
+
+        Counter(String name) {
+            this.name = name;
+        }
+
+        public void add(long delta) {
+            if (enabled) {
+                value.addAndGet(delta);
+            }
+        }
+
+        public long get() {
+            return value.get();
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Latency histogram with one bucket per power of two nanoseconds
+     */
+    public static final class Histogram {
+        private final String name;
+        private final long[] buckets = new long[64];
+        private long count;
+        private long total;
+        private long max;
+
+        Histogram(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Records the time since a start taken with Metrics.start(), ignoring a 0 start
+         *
+         * @param startNanos value returned by Metrics.start()
+         */
+        public void recordSince(long startNanos) {
+            if (startNanos != 0) {
+                record(System.nanoTime() - startNanos);
+            }
+        }
+
+        public synchronized void record(long nanos) {
+            if (!enabled) {
+                return;
+            }
+            nanos = Math.max(nanos, 1);
+            buckets[63 - Long.numberOfLeadingZeros(nanos)]++;
+            count++;
+            total += nanos;
+            max = Math.max(max, nanos);
+        }
+
+        public synchronized long getCount() {
+            return count;
+        }
+
+        public synchronized long getMaxNanos() {
+            return max;
+        }
+
+        public synchronized long getMeanNanos() {
+            return count == 0 ? 0 : total / count;
+        }
+
+        /**
+         * Returns an upper bound on the given percentile, accurate to a factor of two
+         *
+         * @param percentile between 0 and 100
+         */
+        public synchronized long getPercentileNanos(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(count * percentile / 100);
+            long seen = 0;
+            for (int bucket = 0; bucket < buckets.length; bucket++) {
+                seen += buckets[bucket];
+                if (seen >= Math.max(rank, 1)) {
+                    return bucket >= 62 ? max : Math.min(max, (2L << bucket) - 1);
+                }
+            }
+            return max;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        synchronized void clear() {
+            Arrays.fill(buckets, 0);
+            count = 0;
+            total = 0;
+            max = 0;
+        }
+    }
+
+    //Time to place mines and numbers for a new board
+    public static final Histogram GENERATION = new Histogram("generation");
+    //Time from a tap being handled to the end of the frame that shows it
+    public static final Histogram TOUCH_TO_FRAME = new Histogram("touch-to-frame");
+    //Time spent in the board view's onDraw
+    public static final Histogram DRAW = new Histogram("draw");
+    //Time to update the win or loss state after a move
+    public static final Histogram GAME_STATE_CHECK = new Histogram("game-state-check");
+
+    public static final Counter BOARDS_GENERATED = new Counter("boards-generated");
+    public static final Counter MOVES = new Counter("moves");
+    public static final Counter CELLS_UNCOVERED = new Counter("cells-uncovered");
+    public static final Counter FRAMES = new Counter("frames");
+    public static final Counter CELLS_DRAWN = new Counter("cells-drawn");
+
+    private static final Histogram[] HISTOGRAMS = {GENERATION, TOUCH_TO_FRAME, DRAW,
+            GAME_STATE_CHECK};
+    private static final Counter[] COUNTERS = {BOARDS_GENERATED, MOVES, CELLS_UNCOVERED, FRAMES,
+            CELLS_DRAWN};
+
+    private static volatile boolean enabled = false;
+
+    private Metrics() {
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the current time for a later recordSince(), or 0 when recording is off
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Zeroes every counter and histogram
+     */
+    public static void reset() {
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.clear();
+        }
+        for (Counter counter : COUNTERS) {
+            counter.value.set(0);
+        }
+    }
+
+    /**
+     * Returns one line per histogram (count, mean, p50, p99 and max in microseconds)
+     * followed by one line per counter
+     */
+    public static String dump() {
+        StringBuilder out = new StringBuilder();
+        for (Histogram histogram : HISTOGRAMS) {
+            out.append(histogram.getName())
+                    .append(" count=").append(histogram.getCount())
+                    .append(" mean=").append(micros(histogram.getMeanNanos()))
+                    .append(" p50<=").append(micros(histogram.getPercentileNanos(50)))
+                    .append(" p99<=").append(micros(histogram.getPercentileNanos(99)))
+                    .append(" max=").append(micros(histogram.getMaxNanos()))
+                    .append("us\n");
+        }
+        for (Counter counter : COUNTERS) {
+            out.append(counter.getName()).append('=').append(counter.get()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static long micros(long nanos) {
+        return nanos / 1000;
+    }
+}
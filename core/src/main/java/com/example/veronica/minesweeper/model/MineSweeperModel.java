@@ -0,0 +1,795 @@
+package com.example.veronica.minesweeper.model;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Created by Veronica on 9/27/16.
+ * Used to store the MineSweeper board matrix and game state.
+ * Not thread-safe: use ConcurrentBoard to play one board from several threads.
+ */
+
+public class MineSweeperModel {
+    //Prevents program from resetting when the screen is rotated
+    private static MineSweeperModel instance = null;
+
+    //Initiates model with mines and numbers from a fresh seed
+    public MineSweeperModel(int boardWidth, int boardHeight, int numberOfMines) {
+        this(boardWidth, boardHeight, numberOfMines, new Random().nextLong(), -1, -1);
+    }
+
+    /**
+     * Initiates a reproducible model: the same arguments always give the same board. Its moves
+     * are recorded in a MoveJournal so the game can be replayed, and can be undone.
+     *
+     * @param boardWidth    number of columns
+     * @param boardHeight   number of rows
+     * @param numberOfMines number of mines hidden on the board
+     * @param seed          seed for the mine positions
+     * @param safeX         starting square's column, or -1 for no safe start
+     * @param safeY         starting square's row, or -1 for no safe start
+     */
+    public MineSweeperModel(int boardWidth, int boardHeight, int numberOfMines, long seed,
+                            int safeX, int safeY) {
+        this(BoardTopology.square(boardWidth, boardHeight), numberOfMines, seed, safeX, safeY);
+    }
+
+    /**
+     * Initiates a reproducible model of any shape, journaled and undoable like the square one
+     *
+     * @param topology      the board's shape
+     * @param numberOfMines number of mines hidden on the board
+     * @param seed          seed for the mine positions
+     * @param safeX         starting square's column, or -1 for no safe start
+     * @param safeY         starting square's row, or -1 for no safe start
+     */
+    public MineSweeperModel(BoardTopology topology, int numberOfMines, long seed,
+                            int safeX, int safeY) {
+        this(topology, numberOfMines, new Random(seed), safeX, safeY);
+        this.seed = seed;
+        journal = new MoveJournal(this);
+        history = new BoardHistory(this, board);
+    }
+
+    /**
+     * Initiates model with mines drawn from the given generator, keeping them off a starting
+     * square and its neighbours so that a first move there opens an empty region
+     *
+     * @param boardWidth    number of columns
+     * @param boardHeight   number of rows
+     * @param numberOfMines number of mines hidden on the board
+     * @param random        source of mine positions, also used by resetModel
+     * @param safeX         starting square's column, or -1 for no safe start
+     * @param safeY         starting square's row, or -1 for no safe start
+     */
+    public MineSweeperModel(int boardWidth, int boardHeight, int numberOfMines, Random random,
+                            int safeX, int safeY) {
+        this(BoardTopology.square(boardWidth, boardHeight), numberOfMines, random, safeX, safeY);
+    }
+
+    /**
+     * Initiates a model of any shape
+     *
+     * @param topology      the board's shape
+     * @param numberOfMines number of mines hidden on the board
+     * @param random        source of mine positions, also used by resetModel
+     * @param safeX         starting square's column, or -1 for no safe start
+     * @param safeY         starting square's row, or -1 for no safe start
+     */
+    public MineSweeperModel(BoardTopology topology, int numberOfMines, Random random,
+                            int safeX, int safeY) {
+        if (topology.getCellCount() > MAX_CELLS) {
+            throw new IllegalArgumentException("Unsupported board size: " +
+                    topology.getWidth() + "x" + topology.getHeight());
+        }
+        this.topology = topology;
+        this.boardWidth = topology.getWidth();
+        this.boardHeight = topology.getHeight();
+        this.random = random;
+        this.safeX = safeX < 0 || safeY < 0 ? -1 : safeX;
+        this.safeY = safeX < 0 || safeY < 0 ? -1 : safeY;
+        this.safeStart = safeArea(safeX, safeY);
+        if (numberOfMines < 0 || numberOfMines > boardWidth * boardHeight - safeStart.length) {
+            throw new IllegalArgumentException("Unsupported number of mines: " + numberOfMines);
+        }
+        this.numberOfMines = numberOfMines;
+        board = new PackedBoard(boardWidth, boardHeight);
+        generate();
+    }
+
+    /**
+     * Rebuilds a game from a saved board, recounting the tallies
+     *
+     * @param topology  the saved board's shape
+     * @param board     board with mines, numbers, flags and uncovered squares filled in
+     * @param seed      seed the mines were drawn from, or NO_SEED
+     * @param gameState saved win or loss state
+     */
+    MineSweeperModel(BoardTopology topology, PackedBoard board, long seed, short gameState) {
+        this.topology = topology;
+        this.boardWidth = board.width;
+        this.boardHeight = board.height;
+        this.numberOfMines = board.countMines();
+        this.random = new Random();
+        this.safeX = -1;
+        this.safeY = -1;
+        this.safeStart = new int[0];
+        this.seed = seed;
+        this.board = board;
+        recountTallies();
+        this.gameState = gameState;
+        history = new BoardHistory(this, board);
+    }
+
+    public static MineSweeperModel getInstance() {
+        if (instance == null) {
+            instance = new MineSweeperModel(DEFAULT_WIDTH, DEFAULT_HEIGHT, DEFAULT_MINES);
+        }
+        return instance;
+    }
+
+    public static boolean hasInstance() {
+        return instance != null;
+    }
+
+    /**
+     * Replaces the shared instance, for example with a game restored from a snapshot
+     *
+     * @param model the new shared model
+     */
+    public static void setInstance(MineSweeperModel model) {
+        instance = model;
+    }
+
+    /**
+     * Starts a new game of the given size, replacing the shared instance
+     *
+     * @param boardWidth    number of columns
+     * @param boardHeight   number of rows
+     * @param numberOfMines number of mines hidden on the board
+     * @return the new shared model
+     */
+    public static MineSweeperModel newGame(int boardWidth, int boardHeight, int numberOfMines) {
+        instance = new MineSweeperModel(boardWidth, boardHeight, numberOfMines);
+        return instance;
+    }
+
+    private short gameState = 0;
+
+    //Running tallies kept up to date by every change to the board
+    private int correctFlags = 0;
+    private int wrongFlags = 0;
+    private int uncoveredMines = 0;
+    public static final short WIN = 1;
+    public static final short mineLoss = 2;
+    public static final short flagLoss = 3;
+
+    public static final int DEFAULT_WIDTH = 5;
+    public static final int DEFAULT_HEIGHT = 5;
+    public static final int DEFAULT_MINES = 4;
+
+    //Largest board supported, roughly 10k x 10k squares
+    public static final int MAX_CELLS = 100000000;
+
+    //Most neighbours a square of any BoardTopology has, so that no number reads as MINE
+    public static final int MAX_NEIGHBOURS = 8;
+
+    private final int numberOfMines;
+    private final int boardHeight;
+    private final int boardWidth;
+
+    //Which squares touch which
+    private final BoardTopology topology;
+
+    //Mine positions come from here, and squares listed in safeStart never hold a mine
+    private final Random random;
+    private final int safeX;
+    private final int safeY;
+    private final int[] safeStart;
+
+    //Seed the current mines were drawn from, NO_SEED when it is not known
+    public static final long NO_SEED = Long.MIN_VALUE;
+    private long seed = NO_SEED;
+
+    //Records moves on seeded games, null when not journaling
+    private MoveJournal journal;
+
+    //Undo and redo versions for player games, null for boards the solver plays
+    private BoardHistory history;
+
+    //Told about every move, copied on write so listeners can remove themselves when called
+    private BoardListener[] listeners = new BoardListener[0];
+
+    //Assign integers for MineSweeper values
+    public static final short MINE = 9;
+    public static final short COVERED = 10;
+    public static final short UNCOVERED = 11;
+    public static final short FLAGGED = 12;
+
+    //Packed board holding mines, numbers, flags and uncovered squares
+    private final PackedBoard board;
+
+    /**
+     * Lists the starting square and its neighbours in ascending order
+     *
+     * @return the safe squares, empty if there is no safe start
+     */
+    private int[] safeArea(int safeX, int safeY) {
+        if (safeX < 0 || safeY < 0) {
+            return new int[0];
+        }
+        int start = safeY * boardWidth + safeX;
+        int[] cells = new int[topology.getMaxDegree() + 1];
+        int count = topology.neighbours(start, cells);
+        cells[count++] = start;
+        cells = Arrays.copyOf(cells, count);
+        Arrays.sort(cells);
+        return cells;
+    }
+
+    /**
+     * Places mines on the model matrix.
+     * Uses Floyd's sampling so every layout is equally likely and each mine is drawn once,
+     * taking time proportional to the number of mines rather than the board size.
+     * Samples are drawn from the squares outside the safe start and then mapped onto the board.
+     */
+    void placeMines() {
+        int boardSize = boardWidth * boardHeight - safeStart.length;
+        for (int j = boardSize - numberOfMines; j < boardSize; j++) {
+            int cell = skipSafeStart(random.nextInt(j + 1));
+            if (PackedBoard.get(board.mines, cell)) {
+                cell = skipSafeStart(j);
+            }
+            PackedBoard.set(board.mines, cell, true);
+        }
+    }
+
+    /**
+     * Maps a sample index onto the board, stepping over the safe start squares
+     */
+    private int skipSafeStart(int sample) {
+        int cell = sample;
+        for (int safe : safeStart) {
+            if (safe <= cell) {
+                cell++;
+            }
+        }
+        return cell;
+    }
+
+    /**
+     * Places the adjacent mine count on every square
+     */
+    void placeNumbers() {
+        AdjacencyCounter.placeNumbers(board, topology);
+    }
+
+    /**
+     * Returns what's on the board at the given coordinates
+     *
+     * @param x square's column
+     * @param y square's row
+     * @return MINE, or the number of adjacent mines
+     */
+    public short getFieldContent(int x, int y) {
+        int cell = board.index(x, y);
+        if (PackedBoard.get(board.mines, cell)) {
+            return MINE;
+        }
+        return (short) board.getCount(cell);
+    }
+
+    /**
+     * Places a mine or a number on a square, for setting up a board by hand. Undo versions only
+     * hold flags and uncovered squares, so this discards the whole undo history and starts a new
+     * one from the changed board, which copies every square.
+     *
+     * @param x     square's column
+     * @param y     square's row
+     * @param state MINE or the number to show
+     */
+    public void setFieldContent(int x, int y, short state) {
+        int cell = board.index(x, y);
+        updateTallies(cell, -1);
+        if (state == MINE) {
+            PackedBoard.set(board.mines, cell, true);
+        } else {
+            PackedBoard.set(board.mines, cell, false);
+            board.setCount(cell, state);
+        }
+        updateTallies(cell, 1);
+        if (history != null) {
+            //versions only hold flags and uncovered squares, so start again from this board
+            history = new BoardHistory(this, board);
+        }
+        //numbers around the square are now out of date too
+        for (BoardListener listener : listeners) {
+            listener.onBoardReset();
+        }
+    }
+
+    public short getCoverContent(int x, int y) {
+        int cell = board.index(x, y);
+        if (PackedBoard.get(board.flags, cell)) {
+            return FLAGGED;
+        } else if (PackedBoard.get(board.uncovered, cell)) {
+            return UNCOVERED;
+        }
+        return COVERED;
+    }
+
+    public void setCoverContent(int x, int y, short state) {
+        int cell = board.index(x, y);
+        short before = getCoverContent(x, y);
+        if (before == state) {
+            //not a move, so nothing to journal or take back
+            return;
+        }
+        if (journal != null) {
+            journal.record(cell, state == FLAGGED ? MoveJournal.FLAG :
+                    state == UNCOVERED ? MoveJournal.REVEAL : MoveJournal.COVER);
+        }
+        updateTallies(cell, -1);
+        PackedBoard.set(board.flags, cell, state == FLAGGED);
+        PackedBoard.set(board.uncovered, cell, state == UNCOVERED);
+        updateTallies(cell, 1);
+        if (history != null) {
+            history.cellChanged(cell);
+            history.commit();
+        }
+        if (listeners.length > 0) {
+            BoardChange change = new BoardChange();
+            change.add(cell, before, state);
+            publish(change);
+        }
+    }
+
+    /**
+     * Uncovers a covered square. If it has no adjacent mines, its whole connected region of
+     * empty squares is uncovered along with the numbered squares bordering it.
+     *
+     * @param x square's column
+     * @param y square's row
+     * @return indices of every square uncovered by this move, in the order they were uncovered
+     */
+    public IntList uncover(int x, int y) {
+        IntList revealed = new IntList();
+        int start = board.index(x, y);
+        if (PackedBoard.get(board.flags, start) || PackedBoard.get(board.uncovered, start)) {
+            return revealed;
+        }
+        if (journal != null) {
+            journal.record(start, MoveJournal.UNCOVER);
+        }
+        revealSquare(start, revealed);
+        return cascade(revealed);
+    }
+
+    /**
+     * Chords on an uncovered number: once as many flags surround it as its number, uncovers
+     * every other covered neighbour, cascading through empty regions. However many squares it
+     * opens, it is one move, with one undo step and one published change. A misplaced flag lets
+     * the chord uncover a mine.
+     *
+     * @param x square's column
+     * @param y square's row
+     * @return indices of every square uncovered by this move, empty if it could not chord
+     */
+    public IntList chord(int x, int y) {
+        IntList revealed = new IntList();
+        int centre = board.index(x, y);
+        int count = board.getCount(centre);
+        if (!PackedBoard.get(board.uncovered, centre) || PackedBoard.get(board.mines, centre) ||
+                count == 0) {
+            return revealed;
+        }
+        int n = topology.neighbourhood(centre);
+        int flagged = 0;
+        for (int i = topology.firstNeighbour(n); i < topology.endNeighbour(n); i++) {
+            if (PackedBoard.get(board.flags, topology.neighbour(centre, i))) {
+                flagged++;
+            }
+        }
+        if (flagged != count) {
+            return revealed;
+        }
+        for (int i = topology.firstNeighbour(n); i < topology.endNeighbour(n); i++) {
+            int next = topology.neighbour(centre, i);
+            if (!PackedBoard.get(board.uncovered, next) && !PackedBoard.get(board.flags, next)) {
+                revealSquare(next, revealed);
+            }
+        }
+        if (revealed.isEmpty()) {
+            return revealed;
+        }
+        if (journal != null) {
+            journal.record(centre, MoveJournal.CHORD);
+        }
+        return cascade(revealed);
+    }
+
+    /**
+     * Uncovers one covered square, which may be a mine, keeping the tallies in step
+     *
+     * @param cell     square index
+     * @param revealed list the square is added to
+     */
+    private void revealSquare(int cell, IntList revealed) {
+        updateTallies(cell, -1);
+        PackedBoard.set(board.uncovered, cell, true);
+        updateTallies(cell, 1);
+        revealed.add(cell);
+    }
+
+    /**
+     * Finishes a move that uncovered the listed squares: cascades from the empty ones, then
+     * commits one undo version and publishes one change for all of them.
+     * The fill is breadth first over a primitive queue, so it cannot overflow the stack, and the
+     * uncovered bitset doubles as the visited set.
+     *
+     * @param revealed squares uncovered so far, extended with the ones the cascade reaches
+     * @return the revealed list
+     */
+    private IntList cascade(IntList revealed) {
+        //revealed is also the queue: squares before head have had their neighbours visited
+        for (int head = 0; head < revealed.size(); head++) {
+            int cell = revealed.get(head);
+            if (PackedBoard.get(board.mines, cell) || board.getCount(cell) != 0) {
+                continue;
+            }
+            int n = topology.neighbourhood(cell);
+            for (int i = topology.firstNeighbour(n); i < topology.endNeighbour(n); i++) {
+                int next = topology.neighbour(cell, i);
+                if (!PackedBoard.get(board.uncovered, next) &&
+                        !PackedBoard.get(board.flags, next)) {
+                    //neighbours of an empty square are never mines, so tallies are unchanged
+                    PackedBoard.set(board.uncovered, next, true);
+                    revealed.add(next);
+                }
+            }
+        }
+        if (history != null) {
+            for (int i = 0; i < revealed.size(); i++) {
+                history.cellChanged(revealed.get(i));
+            }
+            history.commit();
+        }
+        Metrics.MOVES.add(1);
+        Metrics.CELLS_UNCOVERED.add(revealed.size());
+        if (listeners.length > 0) {
+            publish(new BoardChange(revealed, COVERED, UNCOVERED));
+        }
+        return revealed;
+    }
+
+    /**
+     * Uncovers every covered mine as a single move, as when a lost game is shown
+     *
+     * @return indices of the mines uncovered
+     */
+    public IntList revealMines() {
+        IntList shown = new IntList();
+        for (int w = 0; w < board.mines.length; w++) {
+            long hidden = board.mines[w] & ~board.uncovered[w] & ~board.flags[w];
+            while (hidden != 0) {
+                int cell = (w << 6) + Long.numberOfTrailingZeros(hidden);
+                hidden &= hidden - 1;
+                updateTallies(cell, -1);
+                PackedBoard.set(board.uncovered, cell, true);
+                updateTallies(cell, 1);
+                if (history != null) {
+                    history.cellChanged(cell);
+                }
+                shown.add(cell);
+            }
+        }
+        if (journal != null && !shown.isEmpty()) {
+            //one record, so a replay makes the same single undo version
+            journal.record(0, MoveJournal.REVEAL_MINES);
+        }
+        if (history != null) {
+            history.commit();
+        }
+        if (listeners.length > 0 && !shown.isEmpty()) {
+            publish(new BoardChange(shown, COVERED, UNCOVERED));
+        }
+        return shown;
+    }
+
+    public boolean canUndo() {
+        return history != null && history.canUndo();
+    }
+
+    public boolean canRedo() {
+        return history != null && history.canRedo();
+    }
+
+    /**
+     * Takes back the last move, restoring flags, uncovered squares and the game state
+     *
+     * @return indices of the squares that changed, empty if there was nothing to undo
+     */
+    public IntList undo() {
+        if (!canUndo()) {
+            return new IntList(1);
+        }
+        if (journal != null) {
+            journal.record(0, MoveJournal.UNDO);
+        }
+        return restored(history.undo());
+    }
+
+    /**
+     * Makes the last undone move again
+     *
+     * @return indices of the squares that changed, empty if there was nothing to redo
+     */
+    public IntList redo() {
+        if (!canRedo()) {
+            return new IntList(1);
+        }
+        if (journal != null) {
+            journal.record(0, MoveJournal.REDO);
+        }
+        return restored(history.redo());
+    }
+
+    /**
+     * Publishes the squares an undo or redo changed and works the game state out again
+     *
+     * @param change the squares restored from the history
+     * @return indices of the squares that changed
+     */
+    private IntList restored(BoardChange change) {
+        if (!change.isEmpty()) {
+            publish(change);
+        }
+        short before = gameState;
+        gameState = 0;
+        updateGameState(before);
+        return change.cells;
+    }
+
+    /**
+     * Adds a listener told about every later move and game state change
+     *
+     * @param listener the listener to add
+     */
+    public void addBoardListener(BoardListener listener) {
+        BoardListener[] grown = new BoardListener[listeners.length + 1];
+        System.arraycopy(listeners, 0, grown, 0, listeners.length);
+        grown[listeners.length] = listener;
+        listeners = grown;
+    }
+
+    /**
+     * Removes a listener, for example when its view is detached
+     *
+     * @param listener the listener to remove
+     */
+    public void removeBoardListener(BoardListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                BoardListener[] shrunk = new BoardListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, shrunk, 0, i);
+                System.arraycopy(listeners, i + 1, shrunk, i, shrunk.length - i);
+                listeners = shrunk;
+                return;
+            }
+        }
+    }
+
+    private void publish(BoardChange change) {
+        for (BoardListener listener : listeners) {
+            listener.onCellsChanged(change);
+        }
+    }
+
+    /**
+     * Replaces one word of flags and uncovered squares, keeping the tallies in step
+     *
+     * @param word      word index into the board's bitsets
+     * @param flags     new flag bits
+     * @param uncovered new uncovered bits
+     */
+    void replaceWords(int word, long flags, long uncovered) {
+        long mines = board.mines[word];
+        long oldFlags = board.flags[word];
+        long oldUncovered = board.uncovered[word];
+        correctFlags += Long.bitCount(flags & mines) - Long.bitCount(oldFlags & mines);
+        wrongFlags += Long.bitCount(flags & ~mines) - Long.bitCount(oldFlags & ~mines);
+        uncoveredMines += Long.bitCount(uncovered & mines) - Long.bitCount(oldUncovered & mines);
+        board.flags[word] = flags;
+        board.uncovered[word] = uncovered;
+    }
+
+    /**
+     * Adds or removes a square's contribution to the flag and uncovered mine tallies
+     *
+     * @param cell square index
+     * @param sign 1 to add the square, -1 to remove it before it changes
+     */
+    private void updateTallies(int cell, int sign) {
+        boolean mine = PackedBoard.get(board.mines, cell);
+        if (PackedBoard.get(board.flags, cell)) {
+            if (mine) {
+                correctFlags += sign;
+            } else {
+                wrongFlags += sign;
+            }
+        } else if (mine && PackedBoard.get(board.uncovered, cell)) {
+            uncoveredMines += sign;
+        }
+    }
+
+    /**
+     * Recounts the tallies from the whole board, one word at a time
+     */
+    private void recountTallies() {
+        correctFlags = board.countFlaggedMines();
+        wrongFlags = board.countWrongFlags();
+        uncoveredMines = board.countUncoveredMines();
+    }
+
+    /**
+     * Resets the board model
+     * Covers all squares and replaces mines and numbers from a new seed drawn from the model's
+     * generator, which is reseeded with it, and starts a new journal
+     * Resets win or loss
+     */
+    public void resetModel() {
+        gameState = 0;
+        seed = random.nextLong();
+        random.setSeed(seed);
+        board.clear();
+        generate();
+        recountTallies();
+        journal = new MoveJournal(this);
+        history = new BoardHistory(this, board);
+        for (BoardListener listener : listeners) {
+            listener.onBoardReset();
+        }
+    }
+
+    /**
+     * Places mines and numbers on a cleared board, timing it when metrics are on
+     */
+    private void generate() {
+        long start = Metrics.start();
+        placeMines();
+        placeNumbers();
+        Metrics.GENERATION.recordSince(start);
+        Metrics.BOARDS_GENERATED.add(1);
+    }
+
+    /**
+     * Checks to see if a mine was uncovered
+     */
+    private void checkUncoveredMines() {
+        if (uncoveredMines > 0) {
+            gameState = mineLoss;
+        }
+    }
+
+    /**
+     * Checks to see if a flag has been placed to match each mine
+     */
+    private void checkFlags() {
+        if (wrongFlags > 0) {
+            gameState = flagLoss;
+        } else if (correctFlags == numberOfMines) {
+            gameState = WIN;
+        }
+    }
+
+    /**
+     * Updates the game state from the running tallies, taking constant time
+     */
+    public void checkGameState() {
+        updateGameState(gameState);
+    }
+
+    /**
+     * Checks the game state and tells listeners if it is no longer the given state
+     *
+     * @param before the state listeners last heard of
+     */
+    private void updateGameState(short before) {
+        long start = Metrics.start();
+        checkFlags();
+        checkUncoveredMines();
+        Metrics.GAME_STATE_CHECK.recordSince(start);
+        if (gameState != before) {
+            for (BoardListener listener : listeners) {
+                listener.onGameStateChanged(before, gameState);
+            }
+        }
+    }
+
+    public short getGameState() {
+        return gameState;
+    }
+
+    public int getBoardWidth() {
+        return boardWidth;
+    }
+
+    public int getBoardHeight() {
+        return boardHeight;
+    }
+
+    public BoardTopology getTopology() {
+        return topology;
+    }
+
+    public int getNumberOfMines() {
+        return numberOfMines;
+    }
+
+    /**
+     * Returns the number of mines with a flag on them
+     */
+    int getFlaggedMineCount() {
+        return correctFlags;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getSafeX() {
+        return safeX;
+    }
+
+    public int getSafeY() {
+        return safeY;
+    }
+
+    /**
+     * Returns the moves made since this board was generated, or null for unseeded games
+     */
+    public MoveJournal getJournal() {
+        return journal;
+    }
+
+    void setJournal(MoveJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Stops keeping undo versions, for headless play that never undoes
+     */
+    void disableHistory() {
+        history = null;
+    }
+
+    /**
+     * Copies this game's uncovered squares over another mine layout, for playing out what the
+     * covered squares might hold. The copy has no flags, listeners, journal or undo history.
+     *
+     * @param mines bitset of the layout's mines, bit (cell & 63) of word cell / 64; numbers are
+     *              recounted from it, so they only match this game's if the layout fits them
+     * @return a game in progress over the given mines
+     */
+    public MineSweeperModel withMines(long[] mines) {
+        PackedBoard copy = new PackedBoard(boardWidth, boardHeight);
+        System.arraycopy(mines, 0, copy.mines, 0, copy.mines.length);
+        System.arraycopy(board.uncovered, 0, copy.uncovered, 0, copy.uncovered.length);
+        AdjacencyCounter.placeNumbers(copy, topology);
+        MineSweeperModel model = new MineSweeperModel(topology, copy, NO_SEED, (short) 0);
+        model.disableHistory();
+        return model;
+    }
+
+    /**
+     * Freezes the current flags and uncovered squares for another thread to copy with
+     * BoardCovers. Free on games that keep undo history; a full copy on those that do not.
+     */
+    public CoverSnapshot getCoverSnapshot() {
+        return new CoverSnapshot(board, history);
+    }
+
+    PackedBoard getBoard() {
+        return board;
+    }
+}
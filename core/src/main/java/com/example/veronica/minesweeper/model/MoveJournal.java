@@ -0,0 +1,128 @@
+package com.example.veronica.minesweeper.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Append-only record of the moves made on a seeded game, enough for Replay to rebuild it.
+ * The header holds the board size and topology, mine count, safe start and seed; each move is
+ * then one varint of (square index &lt;&lt; 3 | action), so a move on a board of up to 2048
+ * squares takes at most two bytes. Moves are appended to memory and written out in batches
+ * with flushTo().
+ */
+
+public final class MoveJournal {
+    //Uncovers a square and cascades through empty regions
+    public static final int UNCOVER = 0;
+    public static final int FLAG = 1;
+    //Covers a square again, removing a flag
+    public static final int COVER = 2;
+    //Uncovers one square without cascading, as when mines are shown at the end of a game
+    public static final int REVEAL = 3;
+    //Takes back or remakes the last move, recorded with square 0
+    public static final int UNDO = 4;
+    public static final int REDO = 5;
+    //Uncovers the neighbours of a number that has as many flags around it
+    public static final int CHORD = 6;
+    //Uncovers every covered mine as one move, recorded with square 0
+    public static final int REVEAL_MINES = 7;
+
+    static final int ACTION_BITS = 3;
+
+    //"MSWJ"
+    static final int MAGIC = 0x4D53574A;
+    static final int VERSION = 1;
+
+    private byte[] bytes = new byte[256];
+    private int size;
+    private int flushed;
+    private int moveCount;
+
+    /**
+     * Starts a journal for a freshly generated seeded game
+     *
+     * @param model game in its starting state, with a known seed
+     * @throws IllegalArgumentException if the game's seed is not known
+     */
+    public MoveJournal(MineSweeperModel model) {
+        if (model.getSeed() == MineSweeperModel.NO_SEED) {
+            throw new IllegalArgumentException("Only seeded games can be journaled");
+        }
+        writeInt(MAGIC);
+        writeVarint(VERSION);
+        writeVarint(model.getBoardWidth());
+        writeVarint(model.getBoardHeight());
+        writeVarint(model.getTopology().kind());
+        writeVarint(model.getNumberOfMines());
+        writeVarint(model.getSafeX() + 1);
+        writeVarint(model.getSafeY() + 1);
+        writeInt((int) (model.getSeed() >>> 32));
+        writeInt((int) model.getSeed());
+    }
+
+    /**
+     * Appends a move
+     *
+     * @param cell   square index, y * width + x
+     * @param action UNCOVER, FLAG, COVER, REVEAL, UNDO, REDO, CHORD or REVEAL_MINES
+     */
+    public void record(int cell, int action) {
+        writeVarint(cell << ACTION_BITS | action);
+        moveCount++;
+    }
+
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Writes the moves appended since the last flush, so a file can be extended batch by batch
+     *
+     * @param out destination, normally a file opened for appending
+     * @throws IOException if the write fails
+     */
+    public void flushTo(OutputStream out) throws IOException {
+        out.write(bytes, flushed, size - flushed);
+        flushed = size;
+    }
+
+    /**
+     * Returns whether any of this journal has been written by flushTo, so a file holding it
+     * should be appended to rather than replaced
+     */
+    public boolean hasFlushed() {
+        return flushed > 0;
+    }
+
+    /**
+     * Returns the whole journal, header included
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    private void writeInt(int value) {
+        ensureSpace(4);
+        bytes[size++] = (byte) (value >>> 24);
+        bytes[size++] = (byte) (value >>> 16);
+        bytes[size++] = (byte) (value >>> 8);
+        bytes[size++] = (byte) value;
+    }
+
+    //Seven bits per byte, low bits first, high bit set on every byte but the last
+    private void writeVarint(int value) {
+        ensureSpace(5);
+        while ((value & ~0x7F) != 0) {
+            bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[size++] = (byte) value;
+    }
+
+    private void ensureSpace(int needed) {
+        if (size + needed > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, size + needed));
+        }
+    }
+}
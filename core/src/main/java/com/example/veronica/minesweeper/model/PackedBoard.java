@@ -0,0 +1,137 @@
+package com.example.veronica.minesweeper.model;
+
+import java.util.Arrays;
+
+/**
+ * Compact storage for a MineSweeper board.
+ * Mines, flags and uncovered squares are kept as bitsets packed into long words and the
+ * adjacency counts as 4-bit nibbles, sixteen to a word. Cells are indexed row by row,
+ * index = y * width + x.
+ */
+
+final class PackedBoard {
+    private static final int NIBBLES_PER_WORD = 16;
+
+    //Nibble value every cell starts with before numbers are placed
+    private static final long EMPTY_WORD = 0xDDDDDDDDDDDDDDDDL;
+
+    final int width;
+    final int height;
+    final int cellCount;
+
+    final long[] mines;
+    final long[] flags;
+    final long[] uncovered;
+    final long[] counts;
+
+    PackedBoard(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.cellCount = width * height;
+        int bitWords = wordsFor(cellCount);
+        mines = new long[bitWords];
+        flags = new long[bitWords];
+        uncovered = new long[bitWords];
+        counts = new long[(cellCount + NIBBLES_PER_WORD - 1) / NIBBLES_PER_WORD];
+        clear();
+    }
+
+    /**
+     * Returns the number of long words needed to hold one bit per cell
+     *
+     * @param cells number of cells
+     * @return number of words
+     */
+    static int wordsFor(int cells) {
+        return (cells + 63) >>> 6;
+    }
+
+    int index(int x, int y) {
+        return y * width + x;
+    }
+
+    /**
+     * Removes all mines, flags and numbers and covers every square
+     */
+    void clear() {
+        Arrays.fill(mines, 0L);
+        Arrays.fill(flags, 0L);
+        Arrays.fill(uncovered, 0L);
+        Arrays.fill(counts, EMPTY_WORD);
+    }
+
+    static boolean get(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    static void set(long[] bits, int cell, boolean value) {
+        if (value) {
+            bits[cell >>> 6] |= 1L << cell;
+        } else {
+            bits[cell >>> 6] &= ~(1L << cell);
+        }
+    }
+
+    int getCount(int cell) {
+        int shift = (cell & (NIBBLES_PER_WORD - 1)) << 2;
+        return (int) (counts[cell >>> 4] >>> shift) & 0xF;
+    }
+
+    void setCount(int cell, int value) {
+        int shift = (cell & (NIBBLES_PER_WORD - 1)) << 2;
+        int word = cell >>> 4;
+        counts[word] = (counts[word] & ~(0xFL << shift)) | ((long) (value & 0xF) << shift);
+    }
+
+    /**
+     * Counts uncovered mine squares, one word at a time
+     *
+     * @return number of uncovered mines
+     */
+    int countUncoveredMines() {
+        int total = 0;
+        for (int w = 0; w < mines.length; w++) {
+            total += Long.bitCount(mines[w] & uncovered[w]);
+        }
+        return total;
+    }
+
+    /**
+     * Counts flags sitting on squares without a mine, one word at a time
+     *
+     * @return number of misplaced flags
+     */
+    int countWrongFlags() {
+        int total = 0;
+        for (int w = 0; w < flags.length; w++) {
+            total += Long.bitCount(flags[w] & ~mines[w]);
+        }
+        return total;
+    }
+
+    /**
+     * Counts flags placed on mine squares, one word at a time
+     *
+     * @return number of correctly flagged mines
+     */
+    int countFlaggedMines() {
+        int total = 0;
+        for (int w = 0; w < flags.length; w++) {
+            total += Long.bitCount(flags[w] & mines[w]);
+        }
+        return total;
+    }
+
+    /**
+     * Counts mine squares, one word at a time
+     *
+     * @return number of mines
+     */
+    int countMines() {
+        int total = 0;
+        for (long word : mines) {
+            total += Long.bitCount(word);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,167 @@
+package com.example.veronica.minesweeper.model;
+
+/**
+ * Rebuilds a game from a MoveJournal: the board is regenerated from the seed and the moves are
+ * applied one at a time, headlessly, for bug reproduction, regression games and watching a game
+ * back. Replayed moves are not journaled again.
+ */
+
+public final class Replay {
+    private final byte[] journal;
+    private int position;
+    private final MineSweeperModel model;
+    private int movesApplied;
+
+    /**
+     * Regenerates the journal's starting board, ready to apply its moves
+     *
+     * @param journal bytes from MoveJournal.toByteArray() or a file written with flushTo()
+     * @throws IllegalArgumentException if the bytes are not a supported journal
+     */
+    public Replay(byte[] journal) {
+        this.journal = journal;
+        if (journal.length < 4 || readInt() != MoveJournal.MAGIC) {
+            throw new IllegalArgumentException("Not a move journal");
+        }
+        int version = readVarint();
+        if (version != MoveJournal.VERSION) {
+            throw new IllegalArgumentException("Unsupported journal version: " + version);
+        }
+        int width = readVarint();
+        int height = readVarint();
+        int topology = readVarint();
+        int mines = readVarint();
+        int safeX = readVarint() - 1;
+        int safeY = readVarint() - 1;
+        long seed = ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        model = new MineSweeperModel(BoardTopology.of(topology, width, height), mines, seed,
+                safeX, safeY);
+        model.setJournal(null);
+        if (!hasUndo()) {
+            //undo versions are only kept when the journal needs them, which is much faster
+            model.disableHistory();
+        }
+    }
+
+    /**
+     * Scans the moves, without applying them, for an undo or redo
+     */
+    private boolean hasUndo() {
+        int start = position;
+        try {
+            while (hasNext()) {
+                int action = readVarint() & ((1 << MoveJournal.ACTION_BITS) - 1);
+                if (action == MoveJournal.UNDO || action == MoveJournal.REDO) {
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            position = start;
+        }
+    }
+
+    /**
+     * Replays a whole journal
+     *
+     * @param journal journal bytes
+     * @return the game as it was after the last move
+     */
+    public static MineSweeperModel replay(byte[] journal) {
+        Replay replay = new Replay(journal);
+        replay.runToEnd();
+        return replay.getModel();
+    }
+
+    public MineSweeperModel getModel() {
+        return model;
+    }
+
+    public boolean hasNext() {
+        return position < journal.length;
+    }
+
+    public int getMovesApplied() {
+        return movesApplied;
+    }
+
+    /**
+     * Applies the next move
+     *
+     * @return indices of the squares the move changed
+     * @throws IllegalArgumentException if the move does not fit the board
+     */
+    public IntList step() {
+        int move = readVarint();
+        int cell = move >>> MoveJournal.ACTION_BITS;
+        if (cell >= model.getBoardWidth() * model.getBoardHeight()) {
+            throw new IllegalArgumentException("Move outside the board: " + cell);
+        }
+        int x = cell % model.getBoardWidth();
+        int y = cell / model.getBoardWidth();
+        movesApplied++;
+        int action = move & ((1 << MoveJournal.ACTION_BITS) - 1);
+        if (action == MoveJournal.UNCOVER) {
+            return model.uncover(x, y);
+        } else if (action == MoveJournal.CHORD) {
+            return model.chord(x, y);
+        } else if (action == MoveJournal.UNDO) {
+            return model.undo();
+        } else if (action == MoveJournal.REDO) {
+            return model.redo();
+        } else if (action == MoveJournal.REVEAL_MINES) {
+            return model.revealMines();
+        }
+        if (action == MoveJournal.FLAG) {
+            model.setCoverContent(x, y, MineSweeperModel.FLAGGED);
+        } else if (action == MoveJournal.COVER) {
+            model.setCoverContent(x, y, MineSweeperModel.COVERED);
+        } else if (action == MoveJournal.REVEAL) {
+            model.setCoverContent(x, y, MineSweeperModel.UNCOVERED);
+        } else {
+            throw new IllegalArgumentException("Unknown journal action: " + action);
+        }
+        IntList changed = new IntList(1);
+        changed.add(cell);
+        return changed;
+    }
+
+    /**
+     * Applies every remaining move and updates the game state
+     *
+     * @return number of moves applied
+     */
+    public int runToEnd() {
+        int start = movesApplied;
+        while (hasNext()) {
+            step();
+        }
+        model.checkGameState();
+        return movesApplied - start;
+    }
+
+    private int readInt() {
+        if (position + 4 > journal.length) {
+            throw new IllegalArgumentException("Truncated move journal");
+        }
+        int value = ((journal[position] & 0xFF) << 24) | ((journal[position + 1] & 0xFF) << 16) |
+                ((journal[position + 2] & 0xFF) << 8) | (journal[position + 3] & 0xFF);
+        position += 4;
+        return value;
+    }
+
+    private int readVarint() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            if (position >= journal.length) {
+                throw new IllegalArgumentException("Truncated move journal");
+            }
+            byte b = journal[position++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in move journal");
+    }
+}
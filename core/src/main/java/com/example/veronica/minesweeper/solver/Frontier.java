@@ -0,0 +1,164 @@
+package com.example.veronica.minesweeper.solver;
+
+import com.example.veronica.minesweeper.model.IntList;
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+/**
+ * A connected group of uncovered numbers and the undecided squares around them.
+ * Small frontiers are solved exactly by trying every mine layout that satisfies all the numbers
+ * and counting, for each square, how many of those layouts put a mine there.
+ */
+
+final class Frontier {
+    //Undecided squares of the frontier
+    final int[] cells;
+
+    //For each number, the positions in cells of its undecided neighbours
+    private final int[][] constraintCells;
+
+    //For each number, how many of its undecided neighbours are mines
+    private final int[] need;
+
+    //For each square, the numbers it borders
+    private final int[][] cellConstraints;
+
+    private final int[] assignedMines;
+    private final int[] unassigned;
+    private final boolean[] mine;
+
+    long solutions;
+    final long[] mineSolutions;
+
+    private Frontier(int[] cells, int[][] constraintCells, int[] need) {
+        this.cells = cells;
+        this.constraintCells = constraintCells;
+        this.need = need;
+        this.mineSolutions = new long[cells.length];
+        this.assignedMines = new int[need.length];
+        this.unassigned = new int[need.length];
+        this.mine = new boolean[cells.length];
+
+        int[] perCell = new int[cells.length];
+        for (int[] members : constraintCells) {
+            for (int member : members) {
+                perCell[member]++;
+            }
+        }
+        cellConstraints = new int[cells.length][];
+        for (int c = 0; c < cells.length; c++) {
+            cellConstraints[c] = new int[perCell[c]];
+            perCell[c] = 0;
+        }
+        for (int k = 0; k < constraintCells.length; k++) {
+            for (int member : constraintCells[k]) {
+                cellConstraints[member][perCell[member]++] = k;
+            }
+            unassigned[k] = constraintCells[k].length;
+        }
+    }
+
+    /**
+     * Gathers the frontier connected to a number
+     *
+     * @param solver solver whose knowledge defines which squares are undecided
+     * @param start    uncovered number to start from
+     * @param gathered bitset of numbers already gathered into a frontier, updated as they are
+     * @param seen     receives every number set in gathered, so the caller can clear it
+     * @return the frontier, or null if it has more than MAX_ENUMERATION_CELLS squares
+     */
+    static Frontier collect(Solver solver, int start, long[] gathered, IntList seen) {
+        IntList numbers = new IntList();
+        IntList cells = new IntList();
+        int[] unknowns = new int[MineSweeperModel.MAX_NEIGHBOURS];
+        int[] adjacent = new int[MineSweeperModel.MAX_NEIGHBOURS];
+        numbers.add(start);
+        Solver.set(gathered, start);
+        seen.add(start);
+        for (int i = 0; i < numbers.size(); i++) {
+            int count = solver.unknownNeighbours(numbers.get(i), unknowns);
+            for (int u = 0; u < count; u++) {
+                if (Solver.contains(cells, unknowns[u])) {
+                    continue;
+                }
+                cells.add(unknowns[u]);
+                if (cells.size() > Solver.MAX_ENUMERATION_CELLS) {
+                    return null;
+                }
+                int numberCount = solver.numberNeighbours(unknowns[u], adjacent);
+                for (int n = 0; n < numberCount; n++) {
+                    if (!Solver.get(gathered, adjacent[n])) {
+                        Solver.set(gathered, adjacent[n]);
+                        seen.add(adjacent[n]);
+                        numbers.add(adjacent[n]);
+                    }
+                }
+            }
+        }
+
+        int[] cellArray = cells.toArray();
+        int[][] constraintCells = new int[numbers.size()][];
+        int[] need = new int[numbers.size()];
+        for (int k = 0; k < numbers.size(); k++) {
+            int count = solver.unknownNeighbours(numbers.get(k), unknowns);
+            constraintCells[k] = new int[count];
+            for (int u = 0; u < count; u++) {
+                constraintCells[k][u] = indexOf(cellArray, unknowns[u]);
+            }
+            need[k] = solver.remainingMines(numbers.get(k));
+        }
+        return new Frontier(cellArray, constraintCells, need);
+    }
+
+    private static int indexOf(int[] values, int value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == value) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Square " + value + " is not part of the frontier");
+    }
+
+    /**
+     * Counts every consistent layout and how often each square holds a mine in them
+     */
+    void solve() {
+        search(0);
+    }
+
+    private void search(int index) {
+        if (index == cells.length) {
+            solutions++;
+            for (int c = 0; c < cells.length; c++) {
+                if (mine[c]) {
+                    mineSolutions[c]++;
+                }
+            }
+            return;
+        }
+        for (int value = 0; value <= 1; value++) {
+            if (fits(index, value)) {
+                assign(index, value, 1);
+                search(index + 1);
+                assign(index, value, -1);
+            }
+        }
+    }
+
+    private boolean fits(int index, int value) {
+        for (int k : cellConstraints[index]) {
+            int mines = assignedMines[k] + value;
+            if (mines > need[k] || mines + unassigned[k] - 1 < need[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void assign(int index, int value, int sign) {
+        mine[index] = sign > 0 && value == 1;
+        for (int k : cellConstraints[index]) {
+            assignedMines[k] += sign * value;
+            unassigned[k] -= sign;
+        }
+    }
+}
@@ -0,0 +1,851 @@
+package com.example.veronica.minesweeper.solver;
+
+import com.example.veronica.minesweeper.model.BoardTopology;
+import com.example.veronica.minesweeper.model.IntList;
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Estimates, from what the player can see, the chance that each covered square holds a mine and
+ * the chance of winning from here.
+ * Squares the solver can prove are fixed first. Layouts of the rest that fit every uncovered
+ * number are sampled by independent Markov chains, one per worker, each drawing from its own
+ * split random stream. A chain step takes a few neighbouring
+ * frontier squares and redraws them from every arrangement that fits the numbers around them,
+ * weighted by how many ways the remaining mines fit in the squares away from any number. Those
+ * squares are all alike, so their chance is averaged exactly instead of sampled. Sampling stops
+ * once every square's 95% confidence interval, taken over batch means, is within the tolerance.
+ * The win chance comes from playing sampled layouts out with the solver, guessing the square
+ * least likely to be a mine whenever it is stuck.
+ * The visible board is read when the estimator is made, so later moves need a new estimator.
+ */
+
+public class MineProbabilityEstimator {
+    //Frontier squares redrawn together in one chain step
+    static final int BLOCK_CELLS = 8;
+
+    //Chain sweeps averaged into one batch, and discarded before the first batch
+    static final int BATCH_SWEEPS = 32;
+
+    //Fewest batches, or playouts, before a confidence interval is trusted
+    static final int MIN_BATCHES = 8;
+
+    //Most steps spent searching for a first layout that fits every number
+    static final long MAX_SEARCH_STEPS = 100000000L;
+
+    //Normal quantile of a 95% confidence interval
+    private static final double Z = 1.96;
+
+    private final BoardTopology topology;
+    private final int width;
+    private final int cellCount;
+    private final int parallelism;
+
+    //Uncovered squares only, copied over each layout that is played out
+    private final MineSweeperModel visible;
+    private final short gameState;
+    private final int numberOfMines;
+
+    //Covered squares, flagged or not, that the solver cannot settle, and those of them next to an
+    //uncovered number
+    private final long[] unsettled;
+    private final long[] frontier;
+    private final long[] settledMines;
+    private final int uncoveredCount;
+
+    //Unsettled mines, and how many unsettled squares touch no number
+    private final int remainingMines;
+    private final int interiorCount;
+
+    //Frontier squares in ascending order; chains refer to them by position in this array
+    private final int[] frontierCells;
+
+    //CSR layout of the numbers: number k's frontier positions are
+    //constraintMembers[constraintStarts[k]] up to constraintMembers[constraintStarts[k + 1]]
+    private final int[] constraintStarts;
+    private final int[] constraintMembers;
+    private final int[] need;
+
+    //CSR layout of the numbers each frontier position borders
+    private final int[] cellStarts;
+    private final int[] cellConstraints;
+
+    /**
+     * Reads the visible board, with one worker per core
+     *
+     * @param model game to estimate, which is not changed
+     */
+    public MineProbabilityEstimator(MineSweeperModel model) {
+        this(model, Runtime.getRuntime().availableProcessors());
+    }
+
+    public MineProbabilityEstimator(MineSweeperModel model, int parallelism) {
+        this.topology = model.getTopology();
+        this.width = model.getBoardWidth();
+        this.cellCount = width * model.getBoardHeight();
+        this.parallelism = parallelism;
+        this.gameState = model.getGameState();
+        this.numberOfMines = model.getNumberOfMines();
+        int words = (cellCount + 63) >>> 6;
+        unsettled = new long[words];
+        frontier = new long[words];
+        settledMines = new long[words];
+        visible = model.withMines(new long[words]);
+
+        //squares the solver proves need no sampling, which leaves the chains only real doubt
+        Solver solver = new Solver(model);
+        solver.rescan();
+        while (solver.solve()) {
+            solver.takeSafeCells();
+            solver.takeMineCells();
+        }
+        int uncovered = 0;
+        int unsettledCount = 0;
+        int knownMines = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            int x = cell % width;
+            int y = cell / width;
+            if (model.getCoverContent(x, y) == MineSweeperModel.UNCOVERED) {
+                uncovered++;
+                if (model.getFieldContent(x, y) == MineSweeperModel.MINE) {
+                    Solver.set(settledMines, cell);
+                    knownMines++;
+                }
+            } else if (solver.isKnownMine(cell)) {
+                Solver.set(settledMines, cell);
+                knownMines++;
+            } else if (!solver.isKnownSafe(cell)) {
+                Solver.set(unsettled, cell);
+                unsettledCount++;
+            }
+        }
+        uncoveredCount = uncovered;
+        remainingMines = numberOfMines - knownMines;
+
+        //each number that touches an unsettled square constrains the mines among them
+        IntList numbers = new IntList();
+        IntList needs = new IntList();
+        int[] around = new int[MineSweeperModel.MAX_NEIGHBOURS];
+        for (int cell = 0; cell < cellCount; cell++) {
+            int x = cell % width;
+            int y = cell / width;
+            if (model.getCoverContent(x, y) != MineSweeperModel.UNCOVERED ||
+                    Solver.get(settledMines, cell)) {
+                continue;
+            }
+            int count = topology.neighbours(cell, around);
+            int mines = model.getFieldContent(x, y);
+            boolean touchesUnsettled = false;
+            for (int i = 0; i < count; i++) {
+                int next = around[i];
+                if (Solver.get(unsettled, next)) {
+                    Solver.set(frontier, next);
+                    touchesUnsettled = true;
+                } else if (Solver.get(settledMines, next)) {
+                    mines--;
+                }
+            }
+            if (touchesUnsettled) {
+                numbers.add(cell);
+                needs.add(mines);
+            }
+        }
+
+        IntList cells = new IntList();
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (Solver.get(frontier, cell)) {
+                cells.add(cell);
+            }
+        }
+        frontierCells = cells.toArray();
+        interiorCount = unsettledCount - frontierCells.length;
+        need = needs.toArray();
+
+        constraintStarts = new int[numbers.size() + 1];
+        IntList members = new IntList();
+        int[] perCell = new int[frontierCells.length + 1];
+        for (int k = 0; k < numbers.size(); k++) {
+            constraintStarts[k] = members.size();
+            int count = topology.neighbours(numbers.get(k), around);
+            for (int i = 0; i < count; i++) {
+                if (Solver.get(unsettled, around[i])) {
+                    int position = Arrays.binarySearch(frontierCells, around[i]);
+                    members.add(position);
+                    perCell[position + 1]++;
+                }
+            }
+        }
+        constraintStarts[numbers.size()] = members.size();
+        constraintMembers = members.toArray();
+
+        for (int p = 0; p < frontierCells.length; p++) {
+            perCell[p + 1] += perCell[p];
+        }
+        cellStarts = perCell.clone();
+        cellConstraints = new int[constraintMembers.length];
+        for (int k = 0; k < need.length; k++) {
+            for (int m = constraintStarts[k]; m < constraintStarts[k + 1]; m++) {
+                cellConstraints[perCell[constraintMembers[m]]++] = k;
+            }
+        }
+    }
+
+    /**
+     * Outcome of an estimate
+     */
+    public static final class Estimate {
+        //Chance of a mine under each square, by index; 0 on uncovered numbers
+        public final float[] mineProbability;
+        //Chance of winning by playing on with the solver, or NaN if nothing was played out
+        public final float winProbability;
+        //Widest 95% confidence half-width of any square's chance
+        public final float maxError;
+        //Layouts sampled across all chains, and layouts played out
+        public final long samples;
+        public final long playouts;
+        public final long elapsedNanos;
+
+        Estimate(float[] mineProbability, float winProbability, float maxError, long samples,
+                 long playouts, long elapsedNanos) {
+            this.mineProbability = mineProbability;
+            this.winProbability = winProbability;
+            this.maxError = maxError;
+            this.samples = samples;
+            this.playouts = playouts;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+    /**
+     * Samples layouts until every square's chance is known to within the tolerance, then plays
+     * layouts out until the win chance is too. Results depend only on the seed and parallelism.
+     *
+     * @param seed        seed each chain's random stream is split from
+     * @param tolerance   widest 95% confidence half-width to stop at
+     * @param maxSamples  most layouts to sample across all chains
+     * @param maxPlayouts most layouts to play out; each is a whole game, so 0 skips the win chance
+     * @return the heatmap and win chance
+     * @throws IllegalStateException if no layout fitting the numbers is found
+     */
+    public Estimate estimate(long seed, double tolerance, long maxSamples, long maxPlayouts)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        float[] heatmap = new float[cellCount];
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (Solver.get(settledMines, cell)) {
+                heatmap[cell] = 1;
+            }
+        }
+        int frontierCount = frontierCells.length;
+        if (frontierCount == 0) {
+            //no numbers to satisfy, so every unsettled square is alike
+            if (interiorCount > 0) {
+                fillInterior(heatmap, (float) remainingMines / interiorCount);
+            }
+            long[] games = playOutLayouts(heatmap, seed, tolerance, maxPlayouts, null);
+            return new Estimate(heatmap, winRate(games), 0, 0, games[1],
+                    System.nanoTime() - start);
+        }
+
+        boolean[] first = firstLayout();
+        final Chain[] chains = new Chain[parallelism];
+        for (int i = 0; i < parallelism; i++) {
+            chains[i] = new Chain(first, new Random(NoGuessGenerator.attemptSeed(seed, i)));
+        }
+        //slot frontierCount holds the squares away from any number
+        double[] sum = new double[frontierCount + 1];
+        double[] sumOfSquares = new double[frontierCount + 1];
+        long batches = 0;
+        long samples = 0;
+        double error;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            List<Callable<Boolean>> tasks = new ArrayList<>();
+            for (final Chain chain : chains) {
+                tasks.add(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        chain.runBatch();
+                        return true;
+                    }
+                });
+            }
+            do {
+                runAll(pool, tasks);
+                for (Chain chain : chains) {
+                    for (int p = 0; p < frontierCount; p++) {
+                        double mean = (double) chain.mineSweeps[p] / BATCH_SWEEPS;
+                        sum[p] += mean;
+                        sumOfSquares[p] += mean * mean;
+                    }
+                    double mean = chain.interiorSum / BATCH_SWEEPS;
+                    sum[frontierCount] += mean;
+                    sumOfSquares[frontierCount] += mean * mean;
+                    chain.clearBatch();
+                    batches++;
+                }
+                samples += (long) parallelism * BATCH_SWEEPS;
+                error = maxHalfWidth(sum, sumOfSquares, batches);
+            } while ((batches < MIN_BATCHES || error > tolerance) && samples < maxSamples);
+
+            for (int p = 0; p < frontierCount; p++) {
+                heatmap[frontierCells[p]] = (float) (sum[p] / batches);
+            }
+            if (interiorCount > 0) {
+                fillInterior(heatmap, (float) (sum[frontierCount] / batches));
+            }
+            long[] games = playOutLayouts(heatmap, seed, tolerance, maxPlayouts, chains);
+            return new Estimate(heatmap, winRate(games), (float) error, samples, games[1],
+                    System.nanoTime() - start);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the chance of winning from the games played out, or from the game's own state
+     * once it is over
+     */
+    private float winRate(long[] games) {
+        if (gameState != 0) {
+            return gameState == MineSweeperModel.WIN ? 1 : 0;
+        }
+        return games[1] == 0 ? Float.NaN : (float) games[0] / games[1];
+    }
+
+    /**
+     * Plays sampled layouts out with the solver until the win rate is known to within the
+     * tolerance
+     *
+     * @param chains chains to draw layouts from, or null if every unsettled square is alike
+     * @return games won and games played
+     */
+    private long[] playOutLayouts(float[] heatmap, long seed, double tolerance, long maxPlayouts,
+                                  Chain[] chains) throws InterruptedException {
+        long wins = 0;
+        long played = 0;
+        if (gameState != 0 || maxPlayouts <= 0) {
+            return new long[]{wins, played};
+        }
+        if (chains == null) {
+            chains = new Chain[parallelism];
+            for (int i = 0; i < parallelism; i++) {
+                chains[i] = new Chain(new boolean[0],
+                        new Random(NoGuessGenerator.attemptSeed(seed, i)));
+            }
+        }
+        final long[] guessOrder = guessOrder(heatmap);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+        for (final Chain chain : chains) {
+            tasks.add(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return chain.playOut(guessOrder);
+                }
+            });
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            double error;
+            do {
+                for (boolean won : runAll(pool, tasks)) {
+                    if (won) {
+                        wins++;
+                    }
+                }
+                played += parallelism;
+                //shrunk towards a half so that a run of all wins or all losses is not certain
+                double p = (wins + 1.0) / (played + 2);
+                error = Z * Math.sqrt(p * (1 - p) / played);
+            } while ((played < MIN_BATCHES || error > tolerance) && played < maxPlayouts);
+        } finally {
+            pool.shutdownNow();
+        }
+        return new long[]{wins, played};
+    }
+
+    /**
+     * Runs every task on the pool and returns their results in order
+     */
+    private static List<Boolean> runAll(ForkJoinPool pool, List<Callable<Boolean>> tasks)
+            throws InterruptedException {
+        List<Boolean> results = new ArrayList<>();
+        for (Future<Boolean> future : pool.invokeAll(tasks)) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Returns the widest 95% confidence half-width of the batch means
+     */
+    private double maxHalfWidth(double[] sum, double[] sumOfSquares, long batches) {
+        if (batches < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int slots = interiorCount > 0 ? sum.length : sum.length - 1;
+        double widest = 0;
+        for (int p = 0; p < slots; p++) {
+            double variance = (sumOfSquares[p] - sum[p] * sum[p] / batches) / (batches - 1);
+            widest = Math.max(widest, Z * Math.sqrt(Math.max(0, variance) / batches));
+        }
+        return widest;
+    }
+
+    private void fillInterior(float[] heatmap, float probability) {
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (Solver.get(unsettled, cell) && !Solver.get(frontier, cell)) {
+                heatmap[cell] = probability;
+            }
+        }
+    }
+
+    /**
+     * Orders the unsettled squares from least to most likely to hold a mine, as the guesses of a
+     * playout, whose solver settles the others before it has to guess. Each entry holds the
+     * chance's bits above the square's index, which sort the same way as the chance since it is
+     * never negative.
+     */
+    private long[] guessOrder(float[] heatmap) {
+        IntList cells = new IntList();
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (Solver.get(unsettled, cell)) {
+                cells.add(cell);
+            }
+        }
+        long[] order = new long[cells.size()];
+        for (int i = 0; i < order.length; i++) {
+            int cell = cells.get(i);
+            order[i] = (long) Float.floatToIntBits(heatmap[cell]) << 32 | cell;
+        }
+        Arrays.sort(order);
+        return order;
+    }
+
+    /**
+     * Finds a layout of the frontier that fits every number and leaves a feasible number of
+     * mines for the other squares, by depth-first search in breadth-first order over the numbers
+     * so that each number is decided soon after its first square
+     */
+    private boolean[] firstLayout() {
+        int frontierCount = frontierCells.length;
+        int[] order = new int[frontierCount];
+        boolean[] ordered = new boolean[frontierCount];
+        int size = 0;
+        for (int root = 0; root < frontierCount; root++) {
+            if (ordered[root]) {
+                continue;
+            }
+            ordered[root] = true;
+            order[size++] = root;
+            for (int head = size - 1; head < size; head++) {
+                int p = order[head];
+                for (int c = cellStarts[p]; c < cellStarts[p + 1]; c++) {
+                    int k = cellConstraints[c];
+                    for (int m = constraintStarts[k]; m < constraintStarts[k + 1]; m++) {
+                        int q = constraintMembers[m];
+                        if (!ordered[q]) {
+                            ordered[q] = true;
+                            order[size++] = q;
+                        }
+                    }
+                }
+            }
+        }
+
+        int[] assigned = new int[need.length];
+        int[] unassigned = new int[need.length];
+        for (int k = 0; k < need.length; k++) {
+            unassigned[k] = constraintStarts[k + 1] - constraintStarts[k];
+        }
+        int[] value = new int[frontierCount];
+        Arrays.fill(value, -1);
+        //next value to try at each depth, 2 once both have been tried
+        int[] next = new int[frontierCount];
+        int minFrontierMines = remainingMines - interiorCount;
+        int mines = 0;
+        int depth = 0;
+        long steps = 0;
+        while (depth >= 0) {
+            if (depth == frontierCount) {
+                if (mines >= minFrontierMines && mines <= remainingMines) {
+                    boolean[] layout = new boolean[frontierCount];
+                    for (int p = 0; p < frontierCount; p++) {
+                        layout[p] = value[p] == 1;
+                    }
+                    return layout;
+                }
+                depth--;
+                continue;
+            }
+            if (++steps > MAX_SEARCH_STEPS) {
+                throw new IllegalStateException(
+                        "No mine layout found in " + MAX_SEARCH_STEPS + " steps");
+            }
+            int p = order[depth];
+            if (value[p] >= 0) {
+                mines -= value[p];
+                assign(p, value[p], -1, assigned, unassigned);
+                value[p] = -1;
+            }
+            int v = next[depth];
+            //the squares still to decide could all be mines, which must reach the minimum
+            while (v <= 1 && !(fits(p, v, assigned, unassigned) && mines + v <= remainingMines &&
+                    mines + v + frontierCount - depth - 1 >= minFrontierMines)) {
+                v++;
+            }
+            if (v > 1) {
+                next[depth] = 0;
+                depth--;
+                continue;
+            }
+            value[p] = v;
+            mines += v;
+            assign(p, v, 1, assigned, unassigned);
+            next[depth] = v + 1;
+            depth++;
+        }
+        throw new IllegalStateException("No mine layout fits the uncovered numbers");
+    }
+
+    private boolean fits(int p, int value, int[] assigned, int[] unassigned) {
+        for (int c = cellStarts[p]; c < cellStarts[p + 1]; c++) {
+            int k = cellConstraints[c];
+            int mines = assigned[k] + value;
+            if (mines > need[k] || mines + unassigned[k] - 1 < need[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void assign(int p, int value, int sign, int[] assigned, int[] unassigned) {
+        for (int c = cellStarts[p]; c < cellStarts[p + 1]; c++) {
+            int k = cellConstraints[c];
+            assigned[k] += sign * value;
+            unassigned[k] -= sign;
+        }
+    }
+
+    /**
+     * One Markov chain over frontier layouts, run by one worker at a time
+     */
+    private final class Chain {
+        private final Random random;
+        private final boolean[] mine;
+        //Mines each number currently sees among its unsettled neighbours
+        private final int[] have;
+        private int frontierMines;
+        private boolean burnedIn;
+
+        //Tallies of the current batch
+        final int[] mineSweeps;
+        double interiorSum;
+
+        //Block being redrawn, with a local copy of the numbers it touches
+        private final int[] block = new int[BLOCK_CELLS];
+        private int blockSize;
+        private final int[] stamp;
+        private final int[] slot;
+        private int step;
+        private final int[] localNeed = new int[BLOCK_CELLS * MineSweeperModel.MAX_NEIGHBOURS];
+        private final int[] localAssigned = new int[localNeed.length];
+        private final int[] localUnassigned = new int[localNeed.length];
+        private final double[] weight = new double[BLOCK_CELLS + 1];
+
+        //Arrangements of the block that fit its numbers, with their running total weight
+        private final int[] arrangements = new int[1 << BLOCK_CELLS];
+        private final double[] cumulativeWeight = new double[1 << BLOCK_CELLS];
+        private int arrangementCount;
+
+        Chain(boolean[] first, Random random) {
+            this.random = random;
+            this.mine = first.clone();
+            this.have = new int[need.length];
+            this.mineSweeps = new int[first.length];
+            this.stamp = new int[need.length];
+            this.slot = new int[need.length];
+            for (int p = 0; p < mine.length; p++) {
+                if (mine[p]) {
+                    frontierMines++;
+                    for (int c = cellStarts[p]; c < cellStarts[p + 1]; c++) {
+                        have[cellConstraints[c]]++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Runs one batch of sweeps, tallying the layout after each
+         */
+        void runBatch() {
+            if (!burnedIn) {
+                for (int s = 0; s < BATCH_SWEEPS; s++) {
+                    sweep();
+                }
+                burnedIn = true;
+            }
+            for (int s = 0; s < BATCH_SWEEPS; s++) {
+                sweep();
+                for (int p = 0; p < mine.length; p++) {
+                    if (mine[p]) {
+                        mineSweeps[p]++;
+                    }
+                }
+                if (interiorCount > 0) {
+                    interiorSum += (double) (remainingMines - frontierMines) / interiorCount;
+                }
+            }
+        }
+
+        void clearBatch() {
+            Arrays.fill(mineSweeps, 0);
+            interiorSum = 0;
+        }
+
+        /**
+         * Redraws enough blocks to visit each frontier square about once
+         */
+        private void sweep() {
+            int steps = (mine.length + BLOCK_CELLS - 1) / BLOCK_CELLS;
+            for (int s = 0; s < steps; s++) {
+                redraw(random.nextInt(mine.length));
+            }
+        }
+
+        /**
+         * Redraws the frontier squares nearest a square from their exact conditional
+         * distribution given the rest of the layout
+         *
+         * @param start frontier position the block grows from
+         */
+        private void redraw(int start) {
+            //the block depends only on its start, never on the layout, so each redraw leaves
+            //every whole-board layout that fits the numbers equally likely
+            blockSize = 0;
+            block[blockSize++] = start;
+            for (int head = 0; head < blockSize && blockSize < BLOCK_CELLS; head++) {
+                int p = block[head];
+                for (int c = cellStarts[p]; c < cellStarts[p + 1]; c++) {
+                    int k = cellConstraints[c];
+                    for (int m = constraintStarts[k];
+                         m < constraintStarts[k + 1] && blockSize < BLOCK_CELLS; m++) {
+                        int q = constraintMembers[m];
+                        if (!inBlock(q)) {
+                            block[blockSize++] = q;
+                        }
+                    }
+                }
+            }
+
+            step++;
+            int locals = 0;
+            int blockMines = 0;
+            for (int b = 0; b < blockSize; b++) {
+                int p = block[b];
+                if (mine[p]) {
+                    blockMines++;
+                }
+                for (int c = cellStarts[p]; c < cellStarts[p + 1]; c++) {
+                    int k = cellConstraints[c];
+                    if (stamp[k] != step) {
+                        stamp[k] = step;
+                        slot[k] = locals;
+                        localNeed[locals] = need[k] - have[k];
+                        localAssigned[locals] = 0;
+                        localUnassigned[locals] = 0;
+                        locals++;
+                    }
+                    localUnassigned[slot[k]]++;
+                    if (mine[p]) {
+                        localNeed[slot[k]]++;
+                    }
+                }
+            }
+
+            //weight[j] is proportional to the ways the other mines fit away from the numbers
+            //when the block holds j, C(interiorCount, outside - j)
+            int outside = remainingMines - (frontierMines - blockMines);
+            int lowest = Math.max(0, outside - interiorCount);
+            int highest = Math.min(blockSize, outside);
+            Arrays.fill(weight, 0);
+            double logWeight = 0;
+            for (int j = lowest; j <= highest; j++) {
+                if (j > lowest) {
+                    int m = outside - j;
+                    logWeight += Math.log((m + 1.0) / (interiorCount - m));
+                }
+                weight[j] = logWeight;
+            }
+            double largest = weight[highest];
+            for (int j = lowest; j <= highest; j++) {
+                largest = Math.max(largest, weight[j]);
+            }
+            for (int j = 0; j <= blockSize; j++) {
+                weight[j] = j < lowest || j > highest ? 0 : Math.exp(weight[j] - largest);
+            }
+
+            arrangementCount = 0;
+            enumerate(0, 0, 0);
+            double target = random.nextDouble() * cumulativeWeight[arrangementCount - 1];
+            int pick = 0;
+            while (cumulativeWeight[pick] <= target) {
+                pick++;
+            }
+            int chosen = arrangements[pick];
+            for (int b = 0; b < blockSize; b++) {
+                boolean value = (chosen >>> b & 1) != 0;
+                int p = block[b];
+                if (mine[p] != value) {
+                    mine[p] = value;
+                    int sign = value ? 1 : -1;
+                    frontierMines += sign;
+                    for (int c = cellStarts[p]; c < cellStarts[p + 1]; c++) {
+                        have[cellConstraints[c]] += sign;
+                    }
+                }
+            }
+        }
+
+        private boolean inBlock(int p) {
+            for (int b = 0; b < blockSize; b++) {
+                if (block[b] == p) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Lists every arrangement of the block that fits its numbers, with its weight
+         *
+         * @param b     block square to decide next
+         * @param mask  arrangement so far, bit b set for a mine
+         * @param mines mines in the arrangement so far
+         */
+        private void enumerate(int b, int mask, int mines) {
+            if (b == blockSize) {
+                double w = weight[mines];
+                if (w > 0) {
+                    double total = arrangementCount == 0 ? 0 :
+                            cumulativeWeight[arrangementCount - 1];
+                    arrangements[arrangementCount] = mask;
+                    cumulativeWeight[arrangementCount++] = total + w;
+                }
+                return;
+            }
+            int p = block[b];
+            for (int value = 0; value <= 1; value++) {
+                if (fitsBlock(p, value)) {
+                    placeInBlock(p, value, 1);
+                    enumerate(b + 1, mask | value << b, mines + value);
+                    placeInBlock(p, value, -1);
+                }
+            }
+        }
+
+        private boolean fitsBlock(int p, int value) {
+            for (int c = cellStarts[p]; c < cellStarts[p + 1]; c++) {
+                int s = slot[cellConstraints[c]];
+                int mines = localAssigned[s] + value;
+                if (mines > localNeed[s] || mines + localUnassigned[s] - 1 < localNeed[s]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void placeInBlock(int p, int value, int sign) {
+            for (int c = cellStarts[p]; c < cellStarts[p + 1]; c++) {
+                int s = slot[cellConstraints[c]];
+                localAssigned[s] += sign * value;
+                localUnassigned[s] -= sign;
+            }
+        }
+
+        /**
+         * Moves the chain on a batch, then plays its layout out with the solver
+         *
+         * @param guessOrder unsettled squares from least to most likely to be a mine
+         * @return true if the solver and its guesses uncovered every safe square
+         */
+        boolean playOut(long[] guessOrder) {
+            if (mine.length > 0) {
+                clearBatch();
+                runBatch();
+            }
+            MineSweeperModel game = visible.withMines(layout());
+            Solver solver = new Solver(game);
+            solver.rescan();
+            int safeSquares = cellCount - numberOfMines;
+            int uncovered = uncoveredCount;
+            int guess = 0;
+            while (uncovered < safeSquares) {
+                IntList revealed;
+                if (solver.solve()) {
+                    IntList safe = solver.takeSafeCells();
+                    for (int i = 0; i < safe.size(); i++) {
+                        int cell = safe.get(i);
+                        revealed = game.uncover(cell % width, cell / width);
+                        uncovered += revealed.size();
+                        solver.update(revealed);
+                    }
+                    solver.takeMineCells();
+                    continue;
+                }
+                //stuck, so guess the least likely square that is still open to doubt
+                int cell = (int) guessOrder[guess];
+                while (game.getCoverContent(cell % width, cell / width) ==
+                        MineSweeperModel.UNCOVERED || solver.isKnownMine(cell)) {
+                    cell = (int) guessOrder[++guess];
+                }
+                if (game.getFieldContent(cell % width, cell / width) == MineSweeperModel.MINE) {
+                    return false;
+                }
+                revealed = game.uncover(cell % width, cell / width);
+                uncovered += revealed.size();
+                solver.update(revealed);
+            }
+            return true;
+        }
+
+        /**
+         * Returns the chain's frontier layout with the other mines spread uniformly over the
+         * squares away from any number, as a bitset
+         */
+        private long[] layout() {
+            long[] mines = settledMines.clone();
+            for (int p = 0; p < mine.length; p++) {
+                if (mine[p]) {
+                    Solver.set(mines, frontierCells[p]);
+                }
+            }
+            //selection sampling: each square is picked with chance mines still to place over
+            //squares still to visit
+            int toPlace = remainingMines - frontierMines;
+            int left = interiorCount;
+            for (int cell = 0; cell < cellCount && toPlace > 0; cell++) {
+                if (Solver.get(unsettled, cell) && !Solver.get(frontier, cell)) {
+                    if (random.nextInt(left) < toPlace) {
+                        Solver.set(mines, cell);
+                        toPlace--;
+                    }
+                    left--;
+                }
+            }
+            return mines;
+        }
+    }
+}
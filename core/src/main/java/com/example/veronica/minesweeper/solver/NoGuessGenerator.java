@@ -0,0 +1,170 @@
+package com.example.veronica.minesweeper.solver;
+
+import com.example.veronica.minesweeper.model.IntList;
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generates boards that can be finished from the first move without guessing.
+ * Candidate layouts are drawn and played out by the solver on every core of a work-stealing
+ * pool. The first candidate the solver clears wins and the remaining attempts are cancelled.
+ */
+
+public class NoGuessGenerator {
+    private final int boardWidth;
+    private final int boardHeight;
+    private final int numberOfMines;
+    private final int startX;
+    private final int startY;
+    private final int parallelism;
+
+    /**
+     * @param boardWidth    number of columns
+     * @param boardHeight   number of rows
+     * @param numberOfMines number of mines hidden on the board
+     * @param startX        column of the player's first move
+     * @param startY        row of the player's first move
+     */
+    public NoGuessGenerator(int boardWidth, int boardHeight, int numberOfMines, int startX,
+                            int startY) {
+        this(boardWidth, boardHeight, numberOfMines, startX, startY,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    public NoGuessGenerator(int boardWidth, int boardHeight, int numberOfMines, int startX,
+                            int startY, int parallelism) {
+        this.boardWidth = boardWidth;
+        this.boardHeight = boardHeight;
+        this.numberOfMines = numberOfMines;
+        this.startX = startX;
+        this.startY = startY;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Outcome of a generation run
+     */
+    public static final class Result {
+        //Fresh board that the solver can finish, or null if no attempt succeeded
+        public final MineSweeperModel model;
+        //Seed of the successful attempt's generator
+        public final long seed;
+        //Candidates played out across all workers, including the successful one
+        public final long attempts;
+        public final long elapsedNanos;
+
+        Result(MineSweeperModel model, long seed, long attempts, long elapsedNanos) {
+            this.model = model;
+            this.seed = seed;
+            this.attempts = attempts;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double boardsPerSecond() {
+            return attempts * 1e9 / Math.max(1, elapsedNanos);
+        }
+    }
+
+    /**
+     * Searches for a board the solver can finish from the starting square
+     *
+     * @param seed        seed the attempt seeds are derived from
+     * @param maxAttempts most candidates to try before giving up
+     * @return the first board found, with throughput figures
+     */
+    public Result generate(final long seed, final long maxAttempts) throws InterruptedException {
+        final AtomicLong nextAttempt = new AtomicLong();
+        final AtomicLong finished = new AtomicLong();
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicLong winningSeed = new AtomicLong();
+        final AtomicReference<MineSweeperModel> winner = new AtomicReference<>();
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (int worker = 0; worker < parallelism; worker++) {
+                pool.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        while (!done.get()) {
+                            long attempt = nextAttempt.getAndIncrement();
+                            if (attempt >= maxAttempts) {
+                                return;
+                            }
+                            long attemptSeed = attemptSeed(seed, attempt);
+                            //unseeded copy, so the solver's moves are not journaled
+                            MineSweeperModel candidate = new MineSweeperModel(boardWidth,
+                                    boardHeight, numberOfMines, new Random(attemptSeed), startX,
+                                    startY);
+                            boolean solvable = isSolvable(candidate, startX, startY, done);
+                            finished.incrementAndGet();
+                            if (solvable && winner.compareAndSet(null, newBoard(attemptSeed))) {
+                                winningSeed.set(attemptSeed);
+                                done.set(true);
+                            }
+                        }
+                    }
+                });
+            }
+            pool.shutdown();
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } finally {
+            done.set(true);
+            pool.shutdownNow();
+        }
+        return new Result(winner.get(), winningSeed.get(), finished.get(),
+                System.nanoTime() - start);
+    }
+
+    //Same mines as the candidate with this seed, but seeded so the player's moves are journaled
+    private MineSweeperModel newBoard(long attemptSeed) {
+        return new MineSweeperModel(boardWidth, boardHeight, numberOfMines, attemptSeed, startX,
+                startY);
+    }
+
+    /**
+     * Derives an independent generator seed for each attempt
+     */
+    static long attemptSeed(long seed, long attempt) {
+        long z = seed + 0x9E3779B97F4A7C15L * (attempt + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Plays a board from the starting square using only moves the solver proves safe
+     *
+     * @param model     board to play, which is left partly uncovered
+     * @param startX    column of the first move
+     * @param startY    row of the first move
+     * @param cancelled stops the playout early when set
+     * @return true if every square without a mine was uncovered
+     */
+    public static boolean isSolvable(MineSweeperModel model, int startX, int startY,
+                                     AtomicBoolean cancelled) {
+        int width = model.getBoardWidth();
+        int safeSquares = width * model.getBoardHeight() - model.getNumberOfMines();
+        Solver solver = new Solver(model);
+        IntList revealed = model.uncover(startX, startY);
+        int uncovered = revealed.size();
+        solver.update(revealed);
+        while (uncovered < safeSquares && !cancelled.get() && solver.solve()) {
+            IntList safe = solver.takeSafeCells();
+            for (int i = 0; i < safe.size(); i++) {
+                int cell = safe.get(i);
+                revealed = model.uncover(cell % width, cell / width);
+                uncovered += revealed.size();
+                solver.update(revealed);
+            }
+            solver.takeMineCells();
+        }
+        return uncovered == safeSquares;
+    }
+}
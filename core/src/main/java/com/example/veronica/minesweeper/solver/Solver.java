@@ -0,0 +1,366 @@
+package com.example.veronica.minesweeper.solver;
+
+import com.example.veronica.minesweeper.model.BoardTopology;
+import com.example.veronica.minesweeper.model.IntList;
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+/**
+ * Deduces provably safe squares and provable mines from what the player can see.
+ * Only the cover state and the numbers on uncovered squares are read, never hidden mines.
+ * Work is incremental: only numbers next to squares that changed since the last call are
+ * re-examined, first with single-square rules, then with subset rules between overlapping
+ * numbers, and finally by trying every mine layout of a small frontier.
+ */
+
+public class Solver {
+    //Largest frontier, in unknown squares, that is solved by trying every layout
+    public static final int MAX_ENUMERATION_CELLS = 16;
+
+    private final MineSweeperModel model;
+    private final int width;
+    private final int height;
+    private final BoardTopology topology;
+
+    private final long[] knownMines;
+    private final long[] knownSafe;
+    private final long[] queued;
+
+    //Numbers already gathered into a frontier during the current enumeration
+    private final long[] gathered;
+
+    //Uncovered numbers waiting to be examined, read from head
+    private final IntList queue = new IntList();
+    private int head = 0;
+
+    //Numbers examined since the last enumeration, kept until a round finds nothing new
+    private final IntList recent = new IntList();
+
+    private IntList safeCells = new IntList();
+    private IntList mineCells = new IntList();
+
+    //Scratch buffers for the unknown neighbours of two numbers
+    private final int[] unknownsA = new int[MineSweeperModel.MAX_NEIGHBOURS];
+    private final int[] unknownsB = new int[MineSweeperModel.MAX_NEIGHBOURS];
+    private final int[] difference = new int[MineSweeperModel.MAX_NEIGHBOURS];
+
+    //Scratch buffers for the numbers that share an unknown square with the number examined
+    private final int[] sharing = new int[MineSweeperModel.MAX_NEIGHBOURS];
+    private final IntList compared = new IntList();
+
+    public Solver(MineSweeperModel model) {
+        this.model = model;
+        this.width = model.getBoardWidth();
+        this.height = model.getBoardHeight();
+        this.topology = model.getTopology();
+        int words = (width * height + 63) >>> 6;
+        knownMines = new long[words];
+        knownSafe = new long[words];
+        queued = new long[words];
+        gathered = new long[words];
+    }
+
+    /**
+     * Queues every uncovered number on the board, for a solver started mid-game
+     */
+    public void rescan() {
+        for (int cell = 0; cell < width * height; cell++) {
+            enqueue(cell);
+        }
+    }
+
+    /**
+     * Queues the numbers affected by a move
+     *
+     * @param changed squares uncovered or flagged by the move
+     */
+    public void update(IntList changed) {
+        for (int i = 0; i < changed.size(); i++) {
+            int cell = changed.get(i);
+            enqueue(cell);
+            enqueueNeighbours(cell);
+        }
+    }
+
+    /**
+     * Examines queued numbers until nothing more can be deduced
+     *
+     * @return true if any new safe square or mine was found
+     */
+    public boolean solve() {
+        int found = safeCells.size() + mineCells.size();
+        while (head < queue.size()) {
+            int cell = queue.get(head++);
+            clear(queued, cell);
+            if (isUncoveredNumber(cell)) {
+                recent.add(cell);
+                applyRules(cell);
+            }
+        }
+        queue.clear();
+        head = 0;
+        if (safeCells.size() + mineCells.size() == found) {
+            enumerateFrontier();
+            //deductions from enumeration queue more numbers
+            while (head < queue.size()) {
+                int cell = queue.get(head++);
+                clear(queued, cell);
+                if (isUncoveredNumber(cell)) {
+                    applyRules(cell);
+                }
+            }
+            queue.clear();
+            head = 0;
+            recent.clear();
+        }
+        return safeCells.size() + mineCells.size() > found;
+    }
+
+    /**
+     * Returns the safe squares found since the last call and starts a new list
+     */
+    public IntList takeSafeCells() {
+        IntList taken = safeCells;
+        safeCells = new IntList();
+        return taken;
+    }
+
+    /**
+     * Returns the mines found since the last call and starts a new list
+     */
+    public IntList takeMineCells() {
+        IntList taken = mineCells;
+        mineCells = new IntList();
+        return taken;
+    }
+
+    public boolean isKnownMine(int cell) {
+        return get(knownMines, cell);
+    }
+
+    public boolean isKnownSafe(int cell) {
+        return get(knownSafe, cell);
+    }
+
+    /**
+     * Applies the single-square and subset rules to one uncovered number
+     */
+    private void applyRules(int cell) {
+        int unknownCount = unknownNeighbours(cell, unknownsA);
+        if (unknownCount == 0) {
+            return;
+        }
+        int remaining = remainingMines(cell);
+        if (remaining == 0) {
+            markAll(unknownsA, unknownCount, false);
+            return;
+        } else if (remaining == unknownCount) {
+            markAll(unknownsA, unknownCount, true);
+            return;
+        }
+
+        //Subset rule: compare with every number that shares an unknown neighbour
+        compared.clear();
+        for (int u = 0; u < unknownCount; u++) {
+            int sharingCount = numberNeighbours(unknownsA[u], sharing);
+            for (int s = 0; s < sharingCount; s++) {
+                int other = sharing[s];
+                if (other == cell || contains(compared, other)) {
+                    continue;
+                }
+                compared.add(other);
+                int otherCount = unknownNeighbours(other, unknownsB);
+                if (otherCount == 0) {
+                    continue;
+                }
+                int otherRemaining = remainingMines(other);
+                if (otherCount > unknownCount &&
+                        subtract(unknownsB, otherCount, unknownsA, unknownCount)) {
+                    applyDifference(otherCount - unknownCount, otherRemaining - remaining);
+                } else if (otherCount < unknownCount &&
+                        subtract(unknownsA, unknownCount, unknownsB, otherCount)) {
+                    applyDifference(unknownCount - otherCount, remaining - otherRemaining);
+                }
+                //marking squares changes this number's unknowns, so start over later
+                if (unknownNeighbours(cell, unknownsA) != unknownCount) {
+                    enqueue(cell);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Fills difference with the squares of larger that are not in smaller
+     *
+     * @return true if smaller is a subset of larger
+     */
+    private boolean subtract(int[] larger, int largerCount, int[] smaller, int smallerCount) {
+        int matched = 0;
+        int size = 0;
+        for (int i = 0; i < largerCount; i++) {
+            boolean shared = false;
+            for (int j = 0; j < smallerCount; j++) {
+                if (larger[i] == smaller[j]) {
+                    shared = true;
+                    break;
+                }
+            }
+            if (shared) {
+                matched++;
+            } else {
+                difference[size++] = larger[i];
+            }
+        }
+        return matched == smallerCount;
+    }
+
+    private void applyDifference(int size, int mines) {
+        if (mines == 0) {
+            markAll(difference, size, false);
+        } else if (mines == size) {
+            markAll(difference, size, true);
+        }
+    }
+
+    private void markAll(int[] cells, int count, boolean mine) {
+        for (int i = 0; i < count; i++) {
+            mark(cells[i], mine);
+        }
+    }
+
+    private void mark(int cell, boolean mine) {
+        if (get(knownMines, cell) || get(knownSafe, cell)) {
+            return;
+        }
+        if (mine) {
+            set(knownMines, cell);
+            mineCells.add(cell);
+        } else {
+            set(knownSafe, cell);
+            safeCells.add(cell);
+        }
+        enqueueNeighbours(cell);
+    }
+
+    /**
+     * Solves small frontiers around the last examined numbers by trying every layout
+     */
+    private void enumerateFrontier() {
+        IntList seen = new IntList();
+        for (int i = 0; i < recent.size(); i++) {
+            int start = recent.get(i);
+            if (get(gathered, start) || unknownNeighbours(start, unknownsA) == 0) {
+                continue;
+            }
+            Frontier frontier = Frontier.collect(this, start, gathered, seen);
+            if (frontier != null) {
+                frontier.solve();
+                for (int c = 0; c < frontier.cells.length; c++) {
+                    if (frontier.mineSolutions[c] == 0) {
+                        mark(frontier.cells[c], false);
+                    } else if (frontier.mineSolutions[c] == frontier.solutions) {
+                        mark(frontier.cells[c], true);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < seen.size(); i++) {
+            clear(gathered, seen.get(i));
+        }
+    }
+
+    static boolean contains(IntList list, int value) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i) == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Collects the covered, undecided neighbours of a square
+     *
+     * @return number of squares written to out
+     */
+    int unknownNeighbours(int cell, int[] out) {
+        int n = topology.neighbourhood(cell);
+        int count = 0;
+        for (int i = topology.firstNeighbour(n); i < topology.endNeighbour(n); i++) {
+            int next = topology.neighbour(cell, i);
+            if (isUnknown(next)) {
+                out[count++] = next;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns how many of a number's mines are not yet known
+     */
+    int remainingMines(int cell) {
+        int remaining = model.getFieldContent(cell % width, cell / width);
+        int n = topology.neighbourhood(cell);
+        for (int i = topology.firstNeighbour(n); i < topology.endNeighbour(n); i++) {
+            if (get(knownMines, topology.neighbour(cell, i))) {
+                remaining--;
+            }
+        }
+        return remaining;
+    }
+
+    /**
+     * Collects the uncovered numbers next to a square
+     *
+     * @return number of squares written to out
+     */
+    int numberNeighbours(int cell, int[] out) {
+        int n = topology.neighbourhood(cell);
+        int count = 0;
+        for (int i = topology.firstNeighbour(n); i < topology.endNeighbour(n); i++) {
+            int next = topology.neighbour(cell, i);
+            if (isUncoveredNumber(next)) {
+                out[count++] = next;
+            }
+        }
+        return count;
+    }
+
+    private boolean isUnknown(int cell) {
+        return model.getCoverContent(cell % width, cell / width) != MineSweeperModel.UNCOVERED &&
+                !get(knownMines, cell) && !get(knownSafe, cell);
+    }
+
+    private boolean isUncoveredNumber(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        return model.getCoverContent(x, y) == MineSweeperModel.UNCOVERED &&
+                model.getFieldContent(x, y) != MineSweeperModel.MINE;
+    }
+
+    private void enqueue(int cell) {
+        if (!get(queued, cell) && isUncoveredNumber(cell)) {
+            set(queued, cell);
+            queue.add(cell);
+        }
+    }
+
+    private void enqueueNeighbours(int cell) {
+        int n = topology.neighbourhood(cell);
+        for (int i = topology.firstNeighbour(n); i < topology.endNeighbour(n); i++) {
+            enqueue(topology.neighbour(cell, i));
+        }
+    }
+
+    static boolean get(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    static void set(long[] bits, int cell) {
+        bits[cell >>> 6] |= 1L << cell;
+    }
+
+    static void clear(long[] bits, int cell) {
+        bits[cell >>> 6] &= ~(1L << cell);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.veronica.minesweeper.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the packed adjacency counts against the per-square neighbour lists they replaced.
+ * AdjacencyBenchmark measures both.
+ */
+public class AdjacencyCounterTest {
+
+    @Test
+    public void counts_matchNeighbourLists() throws Exception {
+        int[][] sizes = {{1, 1}, {1, 7}, {7, 1}, {5, 5}, {17, 3}, {33, 65}};
+        for (int[] size : sizes) {
+            MineSweeperModel model = new MineSweeperModel(size[0], size[1],
+                    size[0] * size[1] / 4);
+            assertCountsMatch(model);
+        }
+    }
+
+    @Test
+    public void parallelCounts_matchNeighbourLists() throws Exception {
+        // 509 columns keep stripe boundaries away from word boundaries
+        MineSweeperModel model = new MineSweeperModel(509, 700, 509 * 700 / 6);
+        assertCountsMatch(model);
+    }
+
+    private static void assertCountsMatch(MineSweeperModel model) {
+        for (int x = 0; x < model.getBoardWidth(); x++) {
+            for (int y = 0; y < model.getBoardHeight(); y++) {
+                if (model.getFieldContent(x, y) != MineSweeperModel.MINE) {
+                    assertEquals(listCount(model, x, y), model.getFieldContent(x, y));
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts adjacent mines the way the model used to: by collecting boxed neighbours
+     */
+    private static short listCount(MineSweeperModel model, int i, int j) {
+        ArrayList<Short> adjSquares = new ArrayList<>();
+        for (int x = Math.max(i - 1, 0); x <= Math.min(i + 1, model.getBoardWidth() - 1); x++) {
+            for (int y = Math.max(j - 1, 0); y <= Math.min(j + 1, model.getBoardHeight() - 1);
+                 y++) {
+                if (x != i || y != j) {
+                    adjSquares.add(model.getFieldContent(x, y));
+                }
+            }
+        }
+        short mineCounter = 0;
+        for (Short square : adjSquares) {
+            if (square == MineSweeperModel.MINE) {
+                mineCounter++;
+            }
+        }
+        return mineCounter;
+    }
+}
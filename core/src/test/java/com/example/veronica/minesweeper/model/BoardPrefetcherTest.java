@@ -0,0 +1,153 @@
+package com.example.veronica.minesweeper.model;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that prefetched boards are handed out without waiting, or to a listener once ready,
+ * and that boards which fail to generate are reported rather than waited for.
+ * PrefetchBenchmark compares a prefetched restart with resetModel.
+ */
+public class BoardPrefetcherTest {
+
+    @Test
+    public void take_returnsReadyBoardOrNotifiesListener() throws Exception {
+        BoardPrefetcher prefetcher = new BoardPrefetcher(1000, 1000, 150000);
+        try {
+            final CountDownLatch delivered = new CountDownLatch(1);
+            final AtomicReference<MineSweeperModel> received =
+                    new AtomicReference<MineSweeperModel>();
+            BoardPrefetcher.Listener listener = new BoardPrefetcher.Listener() {
+                @Override
+                public void onBoardReady(MineSweeperModel model) {
+                    received.set(model);
+                    delivered.countDown();
+                }
+
+                @Override
+                public void onBoardFailed(Throwable error) {
+                    fail("Generation failed: " + error);
+                }
+            };
+
+            MineSweeperModel first = prefetcher.take(listener);
+            if (first == null) {
+                assertTrue(delivered.await(30, TimeUnit.SECONDS));
+                first = received.get();
+            }
+            assertEquals(1000, first.getBoardWidth());
+            assertEquals(150000, first.getNumberOfMines());
+
+            //the next board was started when the first was handed over
+            MineSweeperModel second = waitForReady(prefetcher);
+            assertNotSame(first, second);
+            assertTrue(first.getSeed() != second.getSeed());
+        } finally {
+            prefetcher.shutdown();
+        }
+    }
+
+    @Test
+    public void cancel_keepsBoardForNextTake() throws Exception {
+        BoardPrefetcher prefetcher = new BoardPrefetcher(2000, 2000, 600000);
+        try {
+            BoardPrefetcher.Listener listener = new BoardPrefetcher.Listener() {
+                @Override
+                public void onBoardReady(MineSweeperModel model) {
+                    fail("Cancelled listener was called");
+                }
+
+                @Override
+                public void onBoardFailed(Throwable error) {
+                    fail("Cancelled listener was called");
+                }
+            };
+            MineSweeperModel model = prefetcher.take(listener);
+            if (model == null) {
+                prefetcher.cancel(listener);
+                model = waitForReady(prefetcher);
+            }
+            assertEquals(2000, model.getBoardHeight());
+        } finally {
+            prefetcher.shutdown();
+        }
+    }
+
+    @Test
+    public void take_startsNextBoard() throws Exception {
+        BoardPrefetcher prefetcher = new BoardPrefetcher(200, 200, 6000);
+        try {
+            MineSweeperModel first = waitForReady(prefetcher);
+            MineSweeperModel second = waitForReady(prefetcher);
+            assertNotSame(first, second);
+            assertEquals(6000, second.getNumberOfMines());
+        } finally {
+            prefetcher.shutdown();
+        }
+    }
+
+    @Test
+    public void failedBoard_isReportedAndRetried() throws Exception {
+        //more mines than squares, so every board fails
+        BoardPrefetcher prefetcher = new BoardPrefetcher(10, 10, 200);
+        try {
+            final CountDownLatch failed = new CountDownLatch(1);
+            final AtomicReference<Throwable> received = new AtomicReference<Throwable>();
+            BoardPrefetcher.Listener listener = new BoardPrefetcher.Listener() {
+                @Override
+                public void onBoardReady(MineSweeperModel model) {
+                    fail("Impossible board was generated");
+                }
+
+                @Override
+                public void onBoardFailed(Throwable error) {
+                    received.set(error);
+                    failed.countDown();
+                }
+            };
+            Throwable error = null;
+            try {
+                assertNull(prefetcher.take(listener));
+                assertTrue(failed.await(30, TimeUnit.SECONDS));
+                error = received.get();
+            } catch (IllegalStateException e) {
+                //the first board failed before take() was called
+                error = e.getCause();
+            }
+            assertTrue(error instanceof IllegalArgumentException);
+
+            //nobody waiting, so the next take() reports the failure of the retry
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (true) {
+                try {
+                    assertNull(prefetcher.take(null));
+                } catch (IllegalStateException e) {
+                    assertTrue(e.getCause() instanceof IllegalArgumentException);
+                    break;
+                }
+                assertTrue("Failure never reported", System.nanoTime() < deadline);
+                Thread.sleep(5);
+            }
+        } finally {
+            prefetcher.shutdown();
+        }
+    }
+
+    //Polls with a null listener until a board is ready
+    private static MineSweeperModel waitForReady(BoardPrefetcher prefetcher) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (System.nanoTime() < deadline) {
+            MineSweeperModel model = prefetcher.take(null);
+            if (model != null) {
+                return model;
+            }
+            Thread.sleep(5);
+        }
+        throw new AssertionError("No board generated");
+    }
+}
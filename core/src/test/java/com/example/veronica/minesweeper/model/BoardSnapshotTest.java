@@ -0,0 +1,123 @@
+package com.example.veronica.minesweeper.model;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that snapshots restore the same game through bytes and memory-mapped files.
+ * SnapshotBenchmark measures both on a large board.
+ */
+public class BoardSnapshotTest {
+
+    @Test
+    public void bytes_roundTripEverySquare() throws Exception {
+        Random random = new Random(3);
+        int[][] sizes = {{1, 1}, {5, 5}, {8, 8}, {13, 7}, {64, 1}, {65, 3}};
+        for (int[] size : sizes) {
+            MineSweeperModel model = playedModel(size[0], size[1], random);
+            BoardSnapshot restored = BoardSnapshot.fromBytes(
+                    new BoardSnapshot(model, 12345).toBytes());
+            assertEquals(12345, restored.getElapsedMillis());
+            assertSameGame(model, restored.getModel());
+        }
+    }
+
+    @Test
+    public void file_roundTripKeepsGameStateAndTallies() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(9, 9, 10, new Random(5), -1, -1);
+        //flagging a safe square loses the game
+        for (int cell = 0; cell < 81; cell++) {
+            if (model.getFieldContent(cell % 9, cell / 9) != MineSweeperModel.MINE) {
+                model.setCoverContent(cell % 9, cell / 9, MineSweeperModel.FLAGGED);
+                break;
+            }
+        }
+        model.checkGameState();
+        assertEquals(MineSweeperModel.flagLoss, model.getGameState());
+
+        File file = File.createTempFile("board", ".snapshot");
+        try {
+            new BoardSnapshot(model, 99).writeTo(file);
+            BoardSnapshot restored = BoardSnapshot.readFrom(file);
+            assertSameGame(model, restored.getModel());
+            restored.getModel().checkGameState();
+            assertEquals(MineSweeperModel.flagLoss, restored.getModel().getGameState());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void otherShapes_restoreInSameShape() throws Exception {
+        BoardTopology[] topologies = {BoardTopology.torus(12, 9), BoardTopology.hex(12, 9)};
+        for (BoardTopology topology : topologies) {
+            MineSweeperModel model = new MineSweeperModel(topology, 15, new Random(7), 6, 4);
+            model.uncover(6, 4);
+            MineSweeperModel restored = BoardSnapshot.fromBytes(
+                    new BoardSnapshot(model, 0).toBytes()).getModel();
+            assertSameGame(model, restored);
+
+            //cascades on the restored game follow the saved shape
+            for (int cell = 0; cell < 108; cell++) {
+                model.uncover(cell % 12, cell / 12);
+                restored.uncover(cell % 12, cell / 12);
+            }
+            assertSameGame(model, restored);
+        }
+    }
+
+    @Test
+    public void read_rejectsOtherData() throws Exception {
+        byte[] bytes = new BoardSnapshot(new MineSweeperModel(5, 5, 4), 0).toBytes();
+        bytes[0] = 0;
+        try {
+            BoardSnapshot.fromBytes(bytes);
+            fail("Expected a bad magic number to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+
+        bytes = new BoardSnapshot(new MineSweeperModel(5, 5, 4), 0).toBytes();
+        byte[] truncated = new byte[bytes.length - 8];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        try {
+            BoardSnapshot.fromBytes(truncated);
+            fail("Expected a truncated snapshot to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static MineSweeperModel playedModel(int width, int height, Random random) {
+        MineSweeperModel model = new MineSweeperModel(width, height,
+                random.nextInt(width * height / 4 + 1), random, -1, -1);
+        for (int move = 0; move < width * height / 3; move++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            if (random.nextBoolean()) {
+                model.setCoverContent(x, y, MineSweeperModel.FLAGGED);
+            } else {
+                model.uncover(x, y);
+            }
+        }
+        model.checkGameState();
+        return model;
+    }
+
+    private static void assertSameGame(MineSweeperModel expected, MineSweeperModel actual) {
+        assertEquals(expected.getBoardWidth(), actual.getBoardWidth());
+        assertEquals(expected.getBoardHeight(), actual.getBoardHeight());
+        assertEquals(expected.getTopology().kind(), actual.getTopology().kind());
+        assertEquals(expected.getNumberOfMines(), actual.getNumberOfMines());
+        assertEquals(expected.getGameState(), actual.getGameState());
+        assertEquals(expected.getSeed(), actual.getSeed());
+        for (int x = 0; x < expected.getBoardWidth(); x++) {
+            for (int y = 0; y < expected.getBoardHeight(); y++) {
+                assertEquals(expected.getFieldContent(x, y), actual.getFieldContent(x, y));
+                assertEquals(expected.getCoverContent(x, y), actual.getCoverContent(x, y));
+            }
+        }
+    }
+}
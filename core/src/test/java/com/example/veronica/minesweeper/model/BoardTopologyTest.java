@@ -0,0 +1,117 @@
+package com.example.veronica.minesweeper.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the neighbour tables of each board shape against the geometry they describe, and that
+ * models on wrapped and hexagonal boards count and cascade over those neighbours.
+ */
+public class BoardTopologyTest {
+
+    @Test
+    public void square_matchesSurroundingSquares() throws Exception {
+        int[][] sizes = {{1, 1}, {1, 6}, {6, 1}, {2, 2}, {3, 3}, {17, 5}};
+        for (int[] size : sizes) {
+            int width = size[0];
+            int height = size[1];
+            BoardTopology topology = BoardTopology.square(width, height);
+            for (int cell = 0; cell < width * height; cell++) {
+                int x = cell % width;
+                int y = cell / width;
+                IntList expected = new IntList();
+                for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+                    for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+                        if (nx != x || ny != y) {
+                            expected.add(ny * width + nx);
+                        }
+                    }
+                }
+                assertArrayEquals(expected.toArray(), sortedNeighbours(topology, cell));
+            }
+        }
+    }
+
+    @Test
+    public void neighbours_areMutual() throws Exception {
+        BoardTopology[] topologies = {BoardTopology.square(9, 4), BoardTopology.torus(3, 7),
+                BoardTopology.torus(1, 5), BoardTopology.hex(8, 6), BoardTopology.hex(1, 3)};
+        for (BoardTopology topology : topologies) {
+            for (int cell = 0; cell < topology.getCellCount(); cell++) {
+                for (int next : sortedNeighbours(topology, cell)) {
+                    assertTrue(next != cell);
+                    assertTrue(Arrays.binarySearch(sortedNeighbours(topology, next), cell) >= 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void degrees_matchShape() throws Exception {
+        BoardTopology torus = BoardTopology.torus(6, 5);
+        for (int cell = 0; cell < torus.getCellCount(); cell++) {
+            assertEquals(8, sortedNeighbours(torus, cell).length);
+        }
+
+        BoardTopology hex = BoardTopology.hex(6, 5);
+        assertEquals(6, hex.getMaxDegree());
+        for (int y = 1; y < 4; y++) {
+            for (int x = 1; x < 5; x++) {
+                assertEquals(6, sortedNeighbours(hex, y * 6 + x).length);
+            }
+        }
+        //an odd row's diagonal neighbours are the squares at x and x + 1 above and below
+        assertArrayEquals(new int[]{2, 3, 7, 9, 14, 15}, sortedNeighbours(hex, 8));
+    }
+
+    @Test
+    public void model_countsNeighboursOfEachShape() throws Exception {
+        BoardTopology[] topologies = {BoardTopology.torus(13, 9), BoardTopology.hex(13, 9),
+                BoardTopology.square(13, 9)};
+        for (BoardTopology topology : topologies) {
+            MineSweeperModel model = new MineSweeperModel(topology, 30, new Random(5), 6, 4);
+            int width = topology.getWidth();
+            for (int cell = 0; cell < topology.getCellCount(); cell++) {
+                if (isMine(model, cell)) {
+                    continue;
+                }
+                int expected = 0;
+                for (int next : sortedNeighbours(topology, cell)) {
+                    if (isMine(model, next)) {
+                        expected++;
+                    }
+                }
+                assertEquals(expected, model.getFieldContent(cell % width, cell / width));
+            }
+            //the start and all its neighbours stay clear
+            assertEquals(0, model.getFieldContent(6, 4));
+        }
+    }
+
+    @Test
+    public void torus_cascadeWrapsAroundEdges() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(BoardTopology.torus(20, 10), 0,
+                new Random(2), -1, -1);
+        assertEquals(200, model.uncover(0, 0).size());
+
+        //a single mine leaves all other squares reachable, including across the wrapped edge
+        model = new MineSweeperModel(BoardTopology.torus(20, 10), 1, new Random(3), 10, 5);
+        assertEquals(199, model.uncover(10, 5).size());
+    }
+
+    private static boolean isMine(MineSweeperModel model, int cell) {
+        int width = model.getBoardWidth();
+        return model.getFieldContent(cell % width, cell / width) == MineSweeperModel.MINE;
+    }
+
+    private static int[] sortedNeighbours(BoardTopology topology, int cell) {
+        int[] out = new int[topology.getMaxDegree()];
+        int[] neighbours = Arrays.copyOf(out, topology.neighbours(cell, out));
+        Arrays.sort(neighbours);
+        return neighbours;
+    }
+}
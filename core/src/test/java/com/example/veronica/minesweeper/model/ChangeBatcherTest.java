@@ -0,0 +1,249 @@
+package com.example.veronica.minesweeper.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the model's change events and their merging into one batch per frame.
+ * ChangeBatcherBenchmark measures what they cost a move.
+ */
+public class ChangeBatcherTest {
+
+    @Test
+    public void cascade_isOneEvent() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(200, 200, 1, 1L, 100, 100);
+        RecordingListener listener = new RecordingListener();
+        model.addBoardListener(listener);
+        IntList revealed = model.uncover(100, 100);
+
+        assertEquals(1, listener.changes.size());
+        int[] cells = listener.changes.get(0);
+        assertEquals(revealed.size(), cells.length / 3);
+        for (int i = 0; i < cells.length; i += 3) {
+            assertEquals(MineSweeperModel.COVERED, cells[i + 1]);
+            assertEquals(MineSweeperModel.UNCOVERED, cells[i + 2]);
+        }
+
+        model.checkGameState();
+        assertEquals(0, listener.states.size());
+        //the safe start never holds the mine
+        model.setCoverContent(100, 100, MineSweeperModel.FLAGGED);
+        model.checkGameState();
+        assertEquals(MineSweeperModel.flagLoss, (short) listener.states.get(0)[1]);
+
+        model.removeBoardListener(listener);
+        model.undo();
+        assertEquals(2, listener.changes.size());
+    }
+
+    @Test
+    public void undo_reportsBothCovers() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(10, 10, 10, 2L, -1, -1);
+        model.setCoverContent(3, 4, MineSweeperModel.FLAGGED);
+        RecordingListener listener = new RecordingListener();
+        model.addBoardListener(listener);
+        model.undo();
+        assertArrayEquals(new int[]{43, MineSweeperModel.FLAGGED, MineSweeperModel.COVERED},
+                listener.changes.get(0));
+    }
+
+    @Test
+    public void batcher_mergesMovesUntilFlushed() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(10, 10, 10, 3L, -1, -1);
+        final int[] scheduled = new int[1];
+        ChangeBatcher batcher = new ChangeBatcher(new Runnable() {
+            @Override
+            public void run() {
+                scheduled[0]++;
+            }
+        });
+        model.addBoardListener(batcher);
+        RecordingListener frame = new RecordingListener();
+
+        model.setCoverContent(1, 1, MineSweeperModel.FLAGGED);
+        model.setCoverContent(2, 2, MineSweeperModel.FLAGGED);
+        model.undo();
+        assertEquals(1, scheduled[0]);
+        batcher.flushTo(frame);
+        //the undone flag cancels out
+        assertEquals(1, frame.changes.size());
+        assertArrayEquals(new int[]{11, MineSweeperModel.COVERED, MineSweeperModel.FLAGGED},
+                frame.changes.get(0));
+        assertTrue(batcher.isEmpty());
+
+        model.resetModel();
+        model.setCoverContent(5, 5, MineSweeperModel.FLAGGED);
+        assertEquals(2, scheduled[0]);
+        batcher.flushTo(frame);
+        assertEquals(1, frame.resets);
+        assertEquals(1, frame.changes.size());
+    }
+
+    @Test
+    public void batcher_dropsStateThatChangesBack() throws Exception {
+        ChangeBatcher batcher = new ChangeBatcher(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        RecordingListener frame = new RecordingListener();
+        batcher.onGameStateChanged((short) 0, MineSweeperModel.mineLoss);
+        batcher.onGameStateChanged(MineSweeperModel.mineLoss, (short) 0);
+        batcher.flushTo(frame);
+        assertEquals(0, frame.states.size());
+
+        batcher.onGameStateChanged((short) 0, MineSweeperModel.flagLoss);
+        batcher.onGameStateChanged(MineSweeperModel.flagLoss, MineSweeperModel.mineLoss);
+        batcher.flushTo(frame);
+        assertArrayEquals(new int[]{0, MineSweeperModel.mineLoss}, frame.states.get(0));
+    }
+
+    @Test
+    public void flushedChanges_keepMirrorInStep() throws Exception {
+        Random random = new Random(12);
+        for (int game = 0; game < 20; game++) {
+            int width = 1 + random.nextInt(60);
+            int height = 1 + random.nextInt(60);
+            MineSweeperModel model = new MineSweeperModel(width, height,
+                    random.nextInt(width * height / 5 + 1), random.nextLong(), -1, -1);
+            final short[] mirror = new short[width * height];
+            for (int cell = 0; cell < mirror.length; cell++) {
+                mirror[cell] = MineSweeperModel.COVERED;
+            }
+            ChangeBatcher batcher = new ChangeBatcher(new Runnable() {
+                @Override
+                public void run() {
+                }
+            });
+            model.addBoardListener(batcher);
+            final BoardCovers covers = new BoardCovers(model);
+            RecordingListener frame = new RecordingListener() {
+                @Override
+                public void onCellsChanged(BoardChange change) {
+                    for (int i = 0; i < change.size(); i++) {
+                        assertEquals(mirror[change.getCell(i)], change.getOldCover(i));
+                        mirror[change.getCell(i)] = change.getNewCover(i);
+                    }
+                    covers.apply(change);
+                }
+            };
+
+            for (int move = 0; move < 200; move++) {
+                int x = random.nextInt(width);
+                int y = random.nextInt(height);
+                int kind = random.nextInt(5);
+                if (kind == 0) {
+                    model.setCoverContent(x, y, MineSweeperModel.FLAGGED);
+                } else if (kind == 1) {
+                    model.uncover(x, y);
+                } else if (kind == 2) {
+                    model.undo();
+                } else if (kind == 3) {
+                    model.redo();
+                }
+                if (random.nextInt(4) == 0) {
+                    batcher.flushTo(frame);
+                }
+            }
+            batcher.flushTo(frame);
+            for (int cell = 0; cell < mirror.length; cell++) {
+                assertEquals(model.getCoverContent(cell % width, cell / width), mirror[cell]);
+                assertEquals(mirror[cell], covers.getCoverContent(cell % width, cell / width));
+            }
+        }
+    }
+
+    @Test
+    public void coverSnapshot_keepsCoversAsTaken() throws Exception {
+        Random random = new Random(6);
+        for (boolean withHistory : new boolean[]{true, false}) {
+            MineSweeperModel model = new MineSweeperModel(70, 50, 300, 12L, 35, 25);
+            if (!withHistory) {
+                model.disableHistory();
+            }
+            model.uncover(35, 25);
+            model.setCoverContent(3, 4, MineSweeperModel.FLAGGED);
+            short[] expected = new short[70 * 50];
+            for (int cell = 0; cell < expected.length; cell++) {
+                expected[cell] = model.getCoverContent(cell % 70, cell / 70);
+            }
+            CoverSnapshot snapshot = model.getCoverSnapshot();
+
+            //moves made after the snapshot do not show in the copy
+            for (int move = 0; move < 100; move++) {
+                model.uncover(random.nextInt(70), random.nextInt(50));
+            }
+            BoardCovers covers = new BoardCovers(snapshot);
+            for (int cell = 0; cell < expected.length; cell++) {
+                assertEquals(expected[cell], covers.getCoverContent(cell % 70, cell / 70));
+            }
+        }
+    }
+
+    @Test
+    public void batchedTaps_reportEveryUncoveredSquare() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(300, 300, 13500, 4L, -1, -1);
+        ChangeBatcher batcher = new ChangeBatcher(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        final int[] drawn = new int[1];
+        BoardListener frame = new RecordingListener() {
+            @Override
+            public void onCellsChanged(BoardChange change) {
+                drawn[0] += change.size();
+            }
+        };
+        model.addBoardListener(batcher);
+        Random random = new Random(5);
+        //taps random safe squares, flushing once per sixteen taps as a busy frame would
+        for (int move = 0; move < 5000; move++) {
+            int cell = random.nextInt(300 * 300);
+            if (model.getFieldContent(cell % 300, cell / 300) != MineSweeperModel.MINE) {
+                model.uncover(cell % 300, cell / 300);
+            }
+            if (move % 16 == 0) {
+                batcher.flushTo(frame);
+            }
+        }
+        batcher.flushTo(frame);
+        int uncovered = 0;
+        for (long word : model.getBoard().uncovered) {
+            uncovered += Long.bitCount(word);
+        }
+        assertEquals(uncovered, drawn[0]);
+    }
+
+    //Keeps each event as square, old cover, new cover triples
+    private static class RecordingListener implements BoardListener {
+        final ArrayList<int[]> changes = new ArrayList<int[]>();
+        final ArrayList<int[]> states = new ArrayList<int[]>();
+        int resets;
+
+        @Override
+        public void onCellsChanged(BoardChange change) {
+            int[] cells = new int[change.size() * 3];
+            for (int i = 0; i < change.size(); i++) {
+                cells[i * 3] = change.getCell(i);
+                cells[i * 3 + 1] = change.getOldCover(i);
+                cells[i * 3 + 2] = change.getNewCover(i);
+            }
+            changes.add(cells);
+        }
+
+        @Override
+        public void onGameStateChanged(short oldState, short newState) {
+            states.add(new int[]{oldState, newState});
+        }
+
+        @Override
+        public void onBoardReset() {
+            resets++;
+        }
+    }
+}
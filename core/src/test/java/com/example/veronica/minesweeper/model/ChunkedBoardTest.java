@@ -0,0 +1,88 @@
+package com.example.veronica.minesweeper.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that chunked boards count across chunk borders, regenerate evicted chunks exactly and
+ * carry on cascades that stopped.
+ */
+public class ChunkedBoardTest {
+
+    @Test
+    public void counts_areCorrectAcrossChunkBorders() throws Exception {
+        ChunkedBoard board = new ChunkedBoard(1234L, 0.2f, 64);
+        int from = -ChunkedBoard.CHUNK_SIZE - 3;
+        int to = ChunkedBoard.CHUNK_SIZE + 3;
+        for (int x = from; x <= to; x++) {
+            for (int y = from; y <= to; y++) {
+                if (board.getFieldContent(x, y) == MineSweeperModel.MINE) {
+                    continue;
+                }
+                int expected = 0;
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        if ((dx != 0 || dy != 0) &&
+                                board.getFieldContent(x + dx, y + dy) == MineSweeperModel.MINE) {
+                            expected++;
+                        }
+                    }
+                }
+                assertEquals(expected, board.getFieldContent(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void evictedChunks_regenerateIdentically() throws Exception {
+        ChunkedBoard board = new ChunkedBoard(99L, 0.15f, 9);
+        ChunkedBoard reference = new ChunkedBoard(99L, 0.15f, 4096);
+        int far = 100 * ChunkedBoard.CHUNK_SIZE;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int x = -far; x <= far; x += 37) {
+                assertEquals(reference.getFieldContent(x, x / 3),
+                        board.getFieldContent(x, x / 3));
+                assertTrue(board.getCachedChunkCount() <= 9);
+            }
+        }
+    }
+
+    @Test
+    public void touchedChunks_surviveEviction() throws Exception {
+        ChunkedBoard board = new ChunkedBoard(5L, 0.1f, 9);
+        board.setCoverContent(-1, -1, MineSweeperModel.FLAGGED);
+        for (int x = 0; x < 50 * ChunkedBoard.CHUNK_SIZE; x += ChunkedBoard.CHUNK_SIZE) {
+            board.getFieldContent(x, 1000);
+        }
+        assertEquals(MineSweeperModel.FLAGGED, board.getCoverContent(-1, -1));
+        assertEquals(1, board.getTouchedChunkCount());
+    }
+
+    @Test
+    public void uncover_cascadesAcrossChunks() throws Exception {
+        ChunkedBoard board = new ChunkedBoard(3L, 0f, 16);
+        int revealed = board.uncover(0, 0);
+        assertTrue(revealed >= ChunkedBoard.MAX_CASCADE);
+        assertEquals(0, board.getGameState());
+    }
+
+    @Test
+    public void continueCascade_carriesOnWhereItStopped() throws Exception {
+        //with no mines the cascade spreads as a square, about 1024 wide after one stop
+        ChunkedBoard board = new ChunkedBoard(3L, 0f, 16);
+        board.uncover(0, 0);
+        assertTrue(board.hasPendingCascade());
+        assertEquals(MineSweeperModel.UNCOVERED, board.getCoverContent(500, -500));
+        assertEquals(MineSweeperModel.COVERED, board.getCoverContent(600, 0));
+
+        assertTrue(board.continueCascade() >= ChunkedBoard.MAX_CASCADE);
+        assertEquals(MineSweeperModel.UNCOVERED, board.getCoverContent(600, 0));
+        assertEquals(MineSweeperModel.UNCOVERED, board.getCoverContent(-600, 600));
+
+        ChunkedBoard mined = new ChunkedBoard(3L, 0.2f, 16);
+        mined.uncover(0, 0);
+        assertFalse(mined.hasPendingCascade());
+        assertEquals(0, mined.continueCascade());
+    }
+}
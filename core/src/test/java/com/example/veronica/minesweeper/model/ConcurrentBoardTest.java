@@ -0,0 +1,200 @@
+package com.example.veronica.minesweeper.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stress tests for playing one board from many threads at once. ConcurrentBoardBenchmark
+ * measures how it scales.
+ */
+public class ConcurrentBoardTest {
+
+    @Test
+    public void uncover_everySquareRevealedByExactlyOneMove() throws Exception {
+        final MineSweeperModel model = new MineSweeperModel(600, 600, 30000, 3L, -1, -1);
+        final ConcurrentBoard board = new ConcurrentBoard(model);
+        final int threads = 8;
+        final IntList[] revealed = new IntList[threads];
+        final int[][] starts = new int[threads][];
+        Random random = new Random(4);
+        for (int t = 0; t < threads; t++) {
+            starts[t] = safeCells(model, random, 2000);
+        }
+
+        runTogether(threads, new Worker() {
+            @Override
+            public void run(int thread) {
+                IntList mine = new IntList();
+                for (int cell : starts[thread]) {
+                    IntList batch = board.uncover(cell % 600, cell / 600);
+                    for (int i = 0; i < batch.size(); i++) {
+                        mine.add(batch.get(i));
+                    }
+                }
+                revealed[thread] = mine;
+            }
+        });
+
+        boolean[] seen = new boolean[600 * 600];
+        for (IntList list : revealed) {
+            for (int i = 0; i < list.size(); i++) {
+                assertFalse(seen[list.get(i)]);
+                seen[list.get(i)] = true;
+            }
+        }
+        //a flood fill ends in the same place whatever order its starts come in
+        for (int[] cells : starts) {
+            for (int cell : cells) {
+                model.uncover(cell % 600, cell / 600);
+            }
+        }
+        for (int cell = 0; cell < seen.length; cell++) {
+            assertEquals(model.getCoverContent(cell % 600, cell / 600) ==
+                    MineSweeperModel.UNCOVERED, seen[cell]);
+            assertEquals(model.getCoverContent(cell % 600, cell / 600),
+                    board.getCoverContent(cell % 600, cell / 600));
+        }
+        assertEquals(0, board.getGameState());
+    }
+
+    @Test
+    public void gameOver_decidedExactlyOnce() throws Exception {
+        Random random = new Random(5);
+        for (int game = 0; game < 200; game++) {
+            MineSweeperModel model = new MineSweeperModel(30, 30, 120, random.nextLong(), -1, -1);
+            final ConcurrentBoard board = new ConcurrentBoard(model);
+            final AtomicInteger endings = new AtomicInteger();
+            final AtomicInteger endState = new AtomicInteger();
+            board.setGameOverListener(new ConcurrentBoard.GameOverListener() {
+                @Override
+                public void onGameOver(short gameState) {
+                    endings.incrementAndGet();
+                    endState.set(gameState);
+                }
+            });
+
+            //every thread races to flag every mine, and in odd games one also misplaces a flag
+            final List<Integer> mines = new ArrayList<Integer>();
+            for (int cell = 0; cell < 900; cell++) {
+                if (model.getFieldContent(cell % 30, cell / 30) == MineSweeperModel.MINE) {
+                    mines.add(cell);
+                }
+            }
+            final int wrongFlag = game % 2 == 1 ? safeCells(model, random, 1)[0] : -1;
+            final AtomicInteger placed = new AtomicInteger();
+            final long seed = random.nextLong();
+            runTogether(4, new Worker() {
+                @Override
+                public void run(int thread) {
+                    List<Integer> order = new ArrayList<Integer>(mines);
+                    Collections.shuffle(order, new Random(seed + thread));
+                    for (int i = 0; i < order.size(); i++) {
+                        if (thread == 0 && wrongFlag >= 0 && i == order.size() / 2) {
+                            board.flag(wrongFlag % 30, wrongFlag / 30);
+                        }
+                        if (board.flag(order.get(i) % 30, order.get(i) / 30)) {
+                            placed.incrementAndGet();
+                        }
+                    }
+                }
+            });
+
+            assertEquals(1, endings.get());
+            assertEquals(endState.get(), board.getGameState());
+            if (wrongFlag < 0) {
+                assertEquals(MineSweeperModel.WIN, board.getGameState());
+                assertEquals(mines.size(), placed.get());
+            } else if (board.getGameState() == MineSweeperModel.WIN) {
+                //the wrong flag came too late to count
+                assertEquals(MineSweeperModel.COVERED,
+                        board.getCoverContent(wrongFlag % 30, wrongFlag / 30));
+            } else {
+                assertEquals(MineSweeperModel.flagLoss, board.getGameState());
+            }
+        }
+    }
+
+    @Test
+    public void uncoverMine_losesOnce() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(50, 50, 400, 6L, -1, -1);
+        final ConcurrentBoard board = new ConcurrentBoard(model);
+        int mine = 0;
+        while (model.getFieldContent(mine % 50, mine / 50) != MineSweeperModel.MINE) {
+            mine++;
+        }
+        final int target = mine;
+        final AtomicInteger endings = new AtomicInteger();
+        board.setGameOverListener(new ConcurrentBoard.GameOverListener() {
+            @Override
+            public void onGameOver(short gameState) {
+                endings.incrementAndGet();
+            }
+        });
+        runTogether(8, new Worker() {
+            @Override
+            public void run(int thread) {
+                board.uncover(target % 50, target / 50);
+            }
+        });
+        assertEquals(1, endings.get());
+        assertEquals(MineSweeperModel.mineLoss, board.getGameState());
+        assertFalse(board.flag(0, 0));
+        assertTrue(board.uncover(0, 0).isEmpty());
+    }
+
+    private interface Worker {
+        void run(int thread);
+    }
+
+    //Starts the workers together and waits for them all, rethrowing the first failure
+    private static void runTogether(int threads, final Worker worker) throws Exception {
+        final CountDownLatch go = new CountDownLatch(1);
+        final Throwable[] failure = new Throwable[1];
+        Thread[] running = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            running[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        go.await();
+                        worker.run(thread);
+                    } catch (Throwable e) {
+                        synchronized (failure) {
+                            failure[0] = e;
+                        }
+                    }
+                }
+            });
+            running[t].start();
+        }
+        go.countDown();
+        for (Thread thread : running) {
+            thread.join();
+        }
+        if (failure[0] != null) {
+            throw new AssertionError(failure[0]);
+        }
+    }
+
+    private static int[] safeCells(MineSweeperModel model, Random random, int count) {
+        int width = model.getBoardWidth();
+        int cells = width * model.getBoardHeight();
+        int[] safe = new int[count];
+        for (int i = 0; i < count; ) {
+            int cell = random.nextInt(cells);
+            if (model.getFieldContent(cell % width, cell / width) != MineSweeperModel.MINE) {
+                safe[i++] = cell;
+            }
+        }
+        return safe;
+    }
+}
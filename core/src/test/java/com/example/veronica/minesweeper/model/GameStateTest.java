@@ -0,0 +1,97 @@
+package com.example.veronica.minesweeper.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the incrementally tracked game state matches a full scan of the board.
+ */
+public class GameStateTest {
+    private static final short[] COVER_STATES = {
+            MineSweeperModel.COVERED, MineSweeperModel.FLAGGED, MineSweeperModel.UNCOVERED};
+
+    @Test
+    public void trackedState_matchesFullScan() throws Exception {
+        Random random = new Random(42);
+        for (int game = 0; game < 500; game++) {
+            int width = 1 + random.nextInt(8);
+            int height = 1 + random.nextInt(8);
+            MineSweeperModel model = new MineSweeperModel(width, height,
+                    random.nextInt(width * height + 1));
+            short expected = 0;
+            for (int move = 0; move < 40; move++) {
+                int x = random.nextInt(width);
+                int y = random.nextInt(height);
+                if (random.nextInt(10) == 0) {
+                    model.setFieldContent(x, y, random.nextBoolean() ?
+                            MineSweeperModel.MINE : (short) 0);
+                } else {
+                    model.setCoverContent(x, y, COVER_STATES[random.nextInt(3)]);
+                }
+                model.checkGameState();
+                expected = scanGameState(model, expected);
+                assertEquals(expected, model.getGameState());
+            }
+        }
+    }
+
+    @Test
+    public void flaggingEveryMine_wins() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(9, 9, 10);
+        for (int x = 0; x < 9; x++) {
+            for (int y = 0; y < 9; y++) {
+                if (model.getFieldContent(x, y) == MineSweeperModel.MINE) {
+                    assertEquals(0, model.getGameState());
+                    model.setCoverContent(x, y, MineSweeperModel.FLAGGED);
+                    model.checkGameState();
+                }
+            }
+        }
+        assertEquals(MineSweeperModel.WIN, model.getGameState());
+    }
+
+    @Test
+    public void resetModel_clearsTallies() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(4, 4, 16);
+        model.setCoverContent(0, 0, MineSweeperModel.UNCOVERED);
+        model.checkGameState();
+        assertEquals(MineSweeperModel.mineLoss, model.getGameState());
+        model.resetModel();
+        model.checkGameState();
+        assertEquals(0, model.getGameState());
+    }
+
+    /**
+     * Works out the game state by looking at every square, as the model used to
+     */
+    private static short scanGameState(MineSweeperModel model, short gameState) {
+        int flaggedMines = 0;
+        boolean wrongFlag = false;
+        boolean uncoveredMine = false;
+        for (int x = 0; x < model.getBoardWidth(); x++) {
+            for (int y = 0; y < model.getBoardHeight(); y++) {
+                boolean mine = model.getFieldContent(x, y) == MineSweeperModel.MINE;
+                short cover = model.getCoverContent(x, y);
+                if (cover == MineSweeperModel.FLAGGED && mine) {
+                    flaggedMines++;
+                } else if (cover == MineSweeperModel.FLAGGED) {
+                    wrongFlag = true;
+                } else if (cover == MineSweeperModel.UNCOVERED && mine) {
+                    uncoveredMine = true;
+                }
+            }
+        }
+        if (wrongFlag) {
+            gameState = MineSweeperModel.flagLoss;
+        } else if (flaggedMines == model.getNumberOfMines()) {
+            gameState = MineSweeperModel.WIN;
+        }
+        if (uncoveredMine) {
+            gameState = MineSweeperModel.mineLoss;
+        }
+        return gameState;
+    }
+}
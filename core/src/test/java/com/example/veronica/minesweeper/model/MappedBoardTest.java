@@ -0,0 +1,172 @@
+package com.example.veronica.minesweeper.model;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that mapped boards share the snapshot format, play like MineSweeperModel and keep their
+ * moves across reopening. Small segments make the boards span many mappings.
+ * MappedBoardBenchmark measures opening and reading a large board.
+ */
+public class MappedBoardTest {
+    private static final int SMALL_SEGMENTS = 12;
+
+    @Test
+    public void create_writesSameFileAsSnapshotOfSeededModel() throws Exception {
+        File file = File.createTempFile("board", ".mapped");
+        try {
+            MappedBoard board = MappedBoard.create(file, 300, 200, 9000, 42L, SMALL_SEGMENTS);
+            MineSweeperModel model = new MineSweeperModel(300, 200, 9000, 42L, -1, -1);
+            for (int x = 0; x < 300; x++) {
+                for (int y = 0; y < 200; y++) {
+                    assertEquals(model.getFieldContent(x, y), board.getFieldContent(x, y));
+                }
+            }
+            board.close();
+            assertArrayEquals(new BoardSnapshot(model, 0).toBytes(),
+                    Files.readAllBytes(file.toPath()));
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void moves_matchModelAndSurviveReopening() throws Exception {
+        Random random = new Random(8);
+        File file = File.createTempFile("board", ".mapped");
+        try {
+            for (int game = 0; game < 20; game++) {
+                int width = 1 + random.nextInt(90);
+                int height = 1 + random.nextInt(90);
+                int mines = random.nextInt(width * height / 5 + 1);
+                long seed = random.nextLong();
+                MineSweeperModel model = new MineSweeperModel(width, height, mines, seed, -1, -1);
+                MappedBoard board = MappedBoard.create(file, width, height, mines, seed,
+                        SMALL_SEGMENTS);
+                for (int move = 0; move < 30 && model.getGameState() == 0; move++) {
+                    int x = random.nextInt(width);
+                    int y = random.nextInt(height);
+                    if (random.nextInt(4) == 0) {
+                        if (model.getCoverContent(x, y) == MineSweeperModel.COVERED) {
+                            model.setCoverContent(x, y, MineSweeperModel.FLAGGED);
+                            board.setCoverContent(x, y, MineSweeperModel.FLAGGED);
+                        }
+                    } else {
+                        assertEquals(model.uncover(x, y).size(), board.uncover(x, y));
+                    }
+                    model.checkGameState();
+                    assertEquals(model.getGameState(), board.getGameState());
+                }
+                board.setElapsedMillis(777);
+                board.close();
+
+                board = MappedBoard.open(file, SMALL_SEGMENTS);
+                assertEquals(model.getGameState(), board.getGameState());
+                assertEquals(777, board.getElapsedMillis());
+                assertSameCovers(model, board);
+                board.close();
+
+                BoardSnapshot restored = BoardSnapshot.readFrom(file);
+                assertEquals(model.getGameState(), restored.getModel().getGameState());
+                assertEquals(model.getFlaggedMineCount(),
+                        restored.getModel().getFlaggedMineCount());
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void open_continuesSavedGameToWin() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(40, 30, 50, 6L, -1, -1);
+        IntList mines = new IntList();
+        for (int cell = 0; cell < 40 * 30; cell++) {
+            if (model.getFieldContent(cell % 40, cell / 40) == MineSweeperModel.MINE) {
+                mines.add(cell);
+            }
+        }
+        for (int i = 0; i < 10; i++) {
+            model.setCoverContent(mines.get(i) % 40, mines.get(i) / 40, MineSweeperModel.FLAGGED);
+        }
+        File file = File.createTempFile("board", ".snapshot");
+        try {
+            new BoardSnapshot(model, 0).writeTo(file);
+            MappedBoard board = MappedBoard.open(file, SMALL_SEGMENTS);
+            assertSameCovers(model, board);
+            for (int i = 10; i < mines.size(); i++) {
+                assertEquals(0, board.getGameState());
+                board.setCoverContent(mines.get(i) % 40, mines.get(i) / 40,
+                        MineSweeperModel.FLAGGED);
+            }
+            assertEquals(MineSweeperModel.WIN, board.getGameState());
+            board.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void open_rejectsOtherData() throws Exception {
+        File file = File.createTempFile("board", ".mapped");
+        try {
+            RandomAccessFile raf = new RandomAccessFile(file, "rw");
+            raf.write(new byte[64]);
+            raf.close();
+            try {
+                MappedBoard.open(file);
+                fail("Expected a bad magic number to be rejected");
+            } catch (IllegalArgumentException expected) {
+            }
+
+            new BoardSnapshot(new MineSweeperModel(BoardTopology.hex(50, 50), 100,
+                    new Random(1), -1, -1), 0).writeTo(file);
+            try {
+                MappedBoard.open(file);
+                fail("Expected a hex board to be rejected");
+            } catch (IllegalArgumentException expected) {
+            }
+
+            MappedBoard.create(file, 50, 50, 100, 1L).close();
+            raf = new RandomAccessFile(file, "rw");
+            raf.setLength(raf.length() - 8);
+            raf.close();
+            try {
+                MappedBoard.open(file);
+                fail("Expected a truncated board to be rejected");
+            } catch (IllegalArgumentException expected) {
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void open_mapsOnlyTheSegmentsRead() throws Exception {
+        File file = File.createTempFile("board", ".mapped");
+        try {
+            MappedBoard.create(file, 300, 200, 9000, 3L, SMALL_SEGMENTS).close();
+            MappedBoard board = MappedBoard.open(file, SMALL_SEGMENTS);
+            assertEquals(0, board.getMappedSegmentCount());
+            board.getFieldContent(150, 100);
+            //one segment of mines and one of counts
+            assertTrue(board.getMappedSegmentCount() <= 2);
+            board.close();
+        } finally {
+            file.delete();
+        }
+    }
+
+    private static void assertSameCovers(MineSweeperModel model, MappedBoard board) {
+        for (int x = 0; x < model.getBoardWidth(); x++) {
+            for (int y = 0; y < model.getBoardHeight(); y++) {
+                assertEquals(model.getCoverContent(x, y), board.getCoverContent(x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.veronica.minesweeper.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that metrics are recorded only while enabled and show up in the dump.
+ */
+public class MetricsTest {
+
+    @Test
+    public void disabled_recordsNothing() throws Exception {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+        MineSweeperModel model = new MineSweeperModel(16, 16, 40);
+        model.uncover(0, 0);
+        model.checkGameState();
+        assertEquals(0, Metrics.GENERATION.getCount());
+        assertEquals(0, Metrics.MOVES.get());
+        assertEquals(0, Metrics.GAME_STATE_CHECK.getCount());
+    }
+
+    @Test
+    public void enabled_recordsGenerationMovesAndChecks() throws Exception {
+        Metrics.setEnabled(true);
+        try {
+            Metrics.reset();
+            MineSweeperModel model = new MineSweeperModel(16, 16, 40, new Random(7), 8, 8);
+            model.resetModel();
+            IntList revealed = model.uncover(8, 8);
+            model.checkGameState();
+
+            assertEquals(2, Metrics.GENERATION.getCount());
+            assertEquals(2, Metrics.BOARDS_GENERATED.get());
+            assertEquals(1, Metrics.MOVES.get());
+            assertEquals(revealed.size(), Metrics.CELLS_UNCOVERED.get());
+            assertEquals(1, Metrics.GAME_STATE_CHECK.getCount());
+
+            String dump = Metrics.dump();
+            assertTrue(dump.contains("generation count=2"));
+            assertTrue(dump.contains("game-state-check count=1"));
+            assertTrue(dump.contains("moves=1"));
+        } finally {
+            Metrics.setEnabled(false);
+        }
+    }
+
+    @Test
+    public void percentiles_boundRecordedValues() throws Exception {
+        Metrics.setEnabled(true);
+        try {
+            Metrics.reset();
+            for (int nanos = 1; nanos <= 1000; nanos++) {
+                Metrics.DRAW.record(nanos);
+            }
+            assertEquals(1000, Metrics.DRAW.getMaxNanos());
+            assertEquals(500, Metrics.DRAW.getMeanNanos());
+            //within a factor of two of the true percentile
+            long p50 = Metrics.DRAW.getPercentileNanos(50);
+            assertTrue(p50 >= 500 && p50 < 1000);
+            assertEquals(1000, Metrics.DRAW.getPercentileNanos(100));
+        } finally {
+            Metrics.setEnabled(false);
+        }
+    }
+}
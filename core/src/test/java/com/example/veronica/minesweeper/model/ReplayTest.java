@@ -0,0 +1,121 @@
+package com.example.veronica.minesweeper.model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that seeded games are reproducible and that replaying a journal rebuilds the game.
+ * ReplayBenchmark measures replay speed.
+ */
+public class ReplayTest {
+
+    @Test
+    public void sameSeed_givesSameBoard() throws Exception {
+        MineSweeperModel first = new MineSweeperModel(30, 16, 99, 1234L, 4, 4);
+        MineSweeperModel second = new MineSweeperModel(30, 16, 99, 1234L, 4, 4);
+        assertSameGame(first, second);
+
+        first.resetModel();
+        MineSweeperModel fromResetSeed = new MineSweeperModel(30, 16, 99, first.getSeed(), 4, 4);
+        assertSameGame(first, fromResetSeed);
+    }
+
+    @Test
+    public void replay_rebuildsPlayedGame() throws Exception {
+        Random random = new Random(11);
+        for (int game = 0; game < 50; game++) {
+            int width = 1 + random.nextInt(40);
+            int height = 1 + random.nextInt(40);
+            MineSweeperModel model = new MineSweeperModel(width, height,
+                    random.nextInt(width * height / 3 + 1), random.nextLong(),
+                    random.nextInt(width), random.nextInt(height));
+            play(model, random, width * height / 2);
+            model.checkGameState();
+
+            MineSweeperModel replayed = Replay.replay(model.getJournal().toByteArray());
+            assertSameGame(model, replayed);
+            assertNull(replayed.getJournal());
+        }
+    }
+
+    @Test
+    public void replay_rebuildsGamesOfOtherShapes() throws Exception {
+        Random random = new Random(5);
+        BoardTopology[] topologies = {BoardTopology.torus(20, 12), BoardTopology.hex(20, 12)};
+        for (BoardTopology topology : topologies) {
+            MineSweeperModel model = new MineSweeperModel(topology, 30, 77L, 10, 6);
+            play(model, random, 120);
+            model.checkGameState();
+
+            assertSameGame(model, Replay.replay(model.getJournal().toByteArray()));
+        }
+    }
+
+    @Test
+    public void flushedBatches_concatenateToWholeJournal() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(16, 16, 40, 99L, 8, 8);
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        Random random = new Random(2);
+        for (int batch = 0; batch < 5; batch++) {
+            play(model, random, 10);
+            model.getJournal().flushTo(file);
+        }
+        assertArrayEquals(model.getJournal().toByteArray(), file.toByteArray());
+        model.checkGameState();
+
+        Replay replay = new Replay(file.toByteArray());
+        assertEquals(model.getJournal().getMoveCount(), replay.runToEnd());
+        assertSameGame(model, replay.getModel());
+    }
+
+    @Test
+    public void replay_rejectsOtherData() throws Exception {
+        try {
+            new Replay(new byte[]{1, 2, 3, 4, 5});
+            fail("Expected a bad magic number to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+        byte[] journal = new MineSweeperModel(5, 5, 4, 1L, -1, -1).getJournal().toByteArray();
+        byte[] truncated = new byte[journal.length - 1];
+        System.arraycopy(journal, 0, truncated, 0, truncated.length);
+        try {
+            new Replay(truncated);
+            fail("Expected a truncated journal to be rejected");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void play(MineSweeperModel model, Random random, int moves) {
+        int width = model.getBoardWidth();
+        int height = model.getBoardHeight();
+        for (int move = 0; move < moves; move++) {
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            int action = random.nextInt(4);
+            if (action == 0) {
+                model.setCoverContent(x, y, MineSweeperModel.FLAGGED);
+            } else if (action == 1 && model.getCoverContent(x, y) == MineSweeperModel.FLAGGED) {
+                model.setCoverContent(x, y, MineSweeperModel.COVERED);
+            } else {
+                model.uncover(x, y);
+            }
+        }
+    }
+
+    private static void assertSameGame(MineSweeperModel expected, MineSweeperModel actual) {
+        assertEquals(expected.getBoardWidth(), actual.getBoardWidth());
+        assertEquals(expected.getBoardHeight(), actual.getBoardHeight());
+        assertEquals(expected.getTopology().kind(), actual.getTopology().kind());
+        assertEquals(expected.getGameState(), actual.getGameState());
+        for (int x = 0; x < expected.getBoardWidth(); x++) {
+            for (int y = 0; y < expected.getBoardHeight(); y++) {
+                assertEquals(expected.getFieldContent(x, y), actual.getFieldContent(x, y));
+                assertEquals(expected.getCoverContent(x, y), actual.getCoverContent(x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.veronica.minesweeper.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the cascading uncover against a straightforward recursive flood fill, and chording
+ * against uncovering each neighbour in turn. ChordBenchmark measures the largest cascade.
+ */
+public class UncoverTest {
+
+    @Test
+    public void uncover_matchesRecursiveFill() throws Exception {
+        Random random = new Random(7);
+        for (int game = 0; game < 300; game++) {
+            int width = 1 + random.nextInt(12);
+            int height = 1 + random.nextInt(12);
+            MineSweeperModel model = new MineSweeperModel(width, height,
+                    random.nextInt(width * height / 4 + 1));
+            boolean[][] expected = new boolean[width][height];
+            for (int flag = 0; flag < 3; flag++) {
+                int x = random.nextInt(width);
+                int y = random.nextInt(height);
+                model.setCoverContent(x, y, MineSweeperModel.FLAGGED);
+            }
+            int x = random.nextInt(width);
+            int y = random.nextInt(height);
+            if (model.getCoverContent(x, y) == MineSweeperModel.FLAGGED) {
+                assertTrue(model.uncover(x, y).isEmpty());
+                continue;
+            }
+            int expectedCount = fill(model, expected, x, y);
+
+            IntList revealed = model.uncover(x, y);
+            assertEquals(expectedCount, revealed.size());
+            for (int i = 0; i < revealed.size(); i++) {
+                int cell = revealed.get(i);
+                assertTrue(expected[cell % width][cell / width]);
+            }
+            for (int i = 0; i < width; i++) {
+                for (int j = 0; j < height; j++) {
+                    assertEquals(expected[i][j],
+                            model.getCoverContent(i, j) == MineSweeperModel.UNCOVERED);
+                }
+            }
+            assertTrue(model.uncover(x, y).isEmpty());
+        }
+    }
+
+    @Test
+    public void uncover_largeEmptyBoardDoesNotRecurse() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(2000, 2000, 0);
+        IntList revealed = model.uncover(1000, 1000);
+        assertEquals(2000 * 2000, revealed.size());
+        assertEquals(MineSweeperModel.UNCOVERED, model.getCoverContent(0, 1999));
+    }
+
+    @Test
+    public void chord_matchesUncoveringEachNeighbour() throws Exception {
+        Random random = new Random(11);
+        int chorded = 0;
+        for (int game = 0; game < 300; game++) {
+            int width = 3 + random.nextInt(10);
+            int height = 3 + random.nextInt(10);
+            int mines = 1 + random.nextInt(width * height / 4);
+            long seed = random.nextLong();
+            MineSweeperModel model = new MineSweeperModel(width, height, mines, seed, -1, -1);
+            MineSweeperModel twin = new MineSweeperModel(width, height, mines, seed, -1, -1);
+            int cell = random.nextInt(width * height);
+            int x = cell % width;
+            int y = cell / width;
+            short number = model.getFieldContent(x, y);
+            if (number == 0 || number == MineSweeperModel.MINE) {
+                continue;
+            }
+            model.uncover(x, y);
+            twin.uncover(x, y);
+            for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+                for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+                    if (model.getFieldContent(nx, ny) == MineSweeperModel.MINE) {
+                        model.setCoverContent(nx, ny, MineSweeperModel.FLAGGED);
+                        twin.setCoverContent(nx, ny, MineSweeperModel.FLAGGED);
+                    }
+                }
+            }
+            short[] before = covers(model);
+
+            int expectedCount = 0;
+            for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+                for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+                    expectedCount += twin.uncover(nx, ny).size();
+                }
+            }
+            IntList revealed = model.chord(x, y);
+            assertEquals(expectedCount, revealed.size());
+            assertArrayEquals(covers(twin), covers(model));
+            model.checkGameState();
+            assertTrue(model.getGameState() != MineSweeperModel.mineLoss);
+            assertArrayEquals(covers(model),
+                    covers(Replay.replay(model.getJournal().toByteArray())));
+
+            //the whole chord is taken back by one undo
+            model.undo();
+            assertArrayEquals(before, covers(model));
+            chorded++;
+        }
+        assertTrue(chorded > 50);
+    }
+
+    @Test
+    public void chord_needsMatchingFlags() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(3, 3, 0, 1L, -1, -1);
+        model.setFieldContent(0, 0, MineSweeperModel.MINE);
+        model.setFieldContent(1, 1, (short) 1);
+        model.uncover(1, 1);
+        int moves = model.getJournal().getMoveCount();
+
+        //no flags yet, then a covered square or an empty one cannot chord
+        assertTrue(model.chord(1, 1).isEmpty());
+        assertTrue(model.chord(2, 2).isEmpty());
+        model.uncover(2, 2);
+        assertTrue(model.chord(2, 2).isEmpty());
+        assertEquals(moves + 1, model.getJournal().getMoveCount());
+    }
+
+    @Test
+    public void chord_wrongFlagUncoversMine() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(3, 3, 0, 1L, -1, -1);
+        model.setFieldContent(0, 0, MineSweeperModel.MINE);
+        model.setFieldContent(1, 1, (short) 1);
+        model.setFieldContent(1, 0, (short) 1);
+        model.setFieldContent(0, 1, (short) 1);
+        model.uncover(1, 1);
+        model.setCoverContent(2, 2, MineSweeperModel.FLAGGED);
+
+        IntList revealed = model.chord(1, 1);
+        assertEquals(MineSweeperModel.UNCOVERED, model.getCoverContent(0, 0));
+        assertEquals(MineSweeperModel.FLAGGED, model.getCoverContent(2, 2));
+        assertEquals(7, revealed.size());
+        model.checkGameState();
+        assertEquals(MineSweeperModel.mineLoss, model.getGameState());
+    }
+
+    @Test
+    public void chord_largeCascadeIsOneChange() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(2000, 2000, 1, 3L, -1, -1);
+        int mine = -1;
+        for (int cell = 0; mine < 0; cell++) {
+            if (model.getFieldContent(cell % 2000, cell / 2000) == MineSweeperModel.MINE) {
+                mine = cell;
+            }
+        }
+        int mineX = mine % 2000;
+        int mineY = mine / 2000;
+        int x = mineX == 0 ? 1 : mineX - 1;
+        model.uncover(x, mineY);
+        model.setCoverContent(mineX, mineY, MineSweeperModel.FLAGGED);
+        final int[] events = new int[1];
+        model.addBoardListener(new BoardListener() {
+            @Override
+            public void onCellsChanged(BoardChange change) {
+                events[0]++;
+            }
+
+            @Override
+            public void onGameStateChanged(short oldState, short newState) {
+            }
+
+            @Override
+            public void onBoardReset() {
+            }
+        });
+
+        IntList revealed = model.chord(x, mineY);
+        assertEquals(2000 * 2000 - 2, revealed.size());
+        assertEquals(1, events[0]);
+        model.checkGameState();
+        assertEquals(MineSweeperModel.WIN, model.getGameState());
+    }
+
+    private static short[] covers(MineSweeperModel model) {
+        short[] covers = new short[model.getBoardWidth() * model.getBoardHeight()];
+        for (int i = 0; i < covers.length; i++) {
+            covers[i] = model.getCoverContent(i % model.getBoardWidth(),
+                    i / model.getBoardWidth());
+        }
+        return covers;
+    }
+
+    /**
+     * Marks the squares a cascade from (x, y) should uncover, without changing the model
+     */
+    private static int fill(MineSweeperModel model, boolean[][] seen, int x, int y) {
+        if (x < 0 || y < 0 || x >= model.getBoardWidth() || y >= model.getBoardHeight() ||
+                seen[x][y] || model.getCoverContent(x, y) != MineSweeperModel.COVERED) {
+            return 0;
+        }
+        seen[x][y] = true;
+        int count = 1;
+        if (model.getFieldContent(x, y) == 0) {
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    count += fill(model, seen, x + dx, y + dy);
+                }
+            }
+        }
+        return count;
+    }
+}
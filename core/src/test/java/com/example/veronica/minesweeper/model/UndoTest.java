@@ -0,0 +1,192 @@
+package com.example.veronica.minesweeper.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that undo and redo step exactly through the game's earlier states.
+ * UndoBenchmark measures their speed and the history kept per move.
+ */
+public class UndoTest {
+
+    @Test
+    public void undoAndRedo_walkThroughEveryState() throws Exception {
+        Random random = new Random(21);
+        for (int game = 0; game < 30; game++) {
+            int width = 1 + random.nextInt(90);
+            int height = 1 + random.nextInt(90);
+            MineSweeperModel model = new MineSweeperModel(width, height,
+                    random.nextInt(width * height / 4 + 1), random.nextLong(), -1, -1);
+            ArrayList<short[]> states = new ArrayList<short[]>();
+            ArrayList<Short> gameStates = new ArrayList<Short>();
+            states.add(coverStates(model));
+            gameStates.add(model.getGameState());
+            for (int move = 0; move < 40; move++) {
+                int x = random.nextInt(width);
+                int y = random.nextInt(height);
+                if (random.nextInt(3) == 0 &&
+                        model.getCoverContent(x, y) != MineSweeperModel.FLAGGED) {
+                    model.setCoverContent(x, y, MineSweeperModel.FLAGGED);
+                } else if (model.getCoverContent(x, y) == MineSweeperModel.COVERED) {
+                    model.uncover(x, y);
+                } else {
+                    continue;
+                }
+                model.checkGameState();
+                states.add(coverStates(model));
+                gameStates.add(model.getGameState());
+            }
+
+            for (int step = states.size() - 2; step >= 0; step--) {
+                assertTrue(model.canUndo());
+                model.undo();
+                assertArrayEquals(states.get(step), coverStates(model));
+                assertEquals((short) gameStates.get(step), model.getGameState());
+            }
+            assertFalse(model.canUndo());
+            for (int step = 1; step < states.size(); step++) {
+                assertTrue(model.canRedo());
+                model.redo();
+                assertArrayEquals(states.get(step), coverStates(model));
+                assertEquals((short) gameStates.get(step), model.getGameState());
+            }
+            assertFalse(model.canRedo());
+        }
+    }
+
+    @Test
+    public void newMove_discardsRedo() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(8, 8, 10, 4L, -1, -1);
+        model.setCoverContent(0, 0, MineSweeperModel.FLAGGED);
+        model.setCoverContent(1, 0, MineSweeperModel.FLAGGED);
+        model.undo();
+        assertTrue(model.canRedo());
+        model.setCoverContent(2, 0, MineSweeperModel.FLAGGED);
+        assertFalse(model.canRedo());
+        assertEquals(MineSweeperModel.COVERED, model.getCoverContent(1, 0));
+        model.undo();
+        model.undo();
+        assertEquals(MineSweeperModel.COVERED, model.getCoverContent(0, 0));
+        assertFalse(model.canUndo());
+    }
+
+    @Test
+    public void unchangedCover_isNotAMove() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(8, 8, 10, 4L, -1, -1);
+        model.setCoverContent(0, 0, MineSweeperModel.FLAGGED);
+        model.setCoverContent(0, 0, MineSweeperModel.FLAGGED);
+        model.setCoverContent(1, 0, MineSweeperModel.COVERED);
+        assertEquals(1, model.getJournal().getMoveCount());
+        model.undo();
+        assertEquals(MineSweeperModel.COVERED, model.getCoverContent(0, 0));
+        assertFalse(model.canUndo());
+    }
+
+    @Test
+    public void history_keepsNewestVersions() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(10, 10, 10, 5L, -1, -1);
+        int moves = BoardHistory.MAX_VERSIONS + 500;
+        for (int move = 0; move < moves; move++) {
+            model.setCoverContent(0, 0, move % 2 == 0 ?
+                    MineSweeperModel.FLAGGED : MineSweeperModel.COVERED);
+        }
+        int undone = 0;
+        while (model.canUndo()) {
+            model.undo();
+            undone++;
+        }
+        assertEquals(BoardHistory.MAX_VERSIONS - 1, undone);
+        //the oldest version left is the board after the first 501 moves
+        assertEquals(MineSweeperModel.FLAGGED, model.getCoverContent(0, 0));
+    }
+
+    @Test
+    public void undoLosingMove_continuesGame() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(9, 9, 10, 8L, 4, 4);
+        model.uncover(4, 4);
+        int mine = 0;
+        while (model.getFieldContent(mine % 9, mine / 9) != MineSweeperModel.MINE) {
+            mine++;
+        }
+        model.uncover(mine % 9, mine / 9);
+        model.revealMines();
+        model.checkGameState();
+        assertEquals(MineSweeperModel.mineLoss, model.getGameState());
+
+        model.undo();
+        assertEquals(MineSweeperModel.mineLoss, model.getGameState());
+        IntList changed = model.undo();
+        assertEquals(1, changed.size());
+        assertEquals(mine, changed.get(0));
+        assertEquals(0, model.getGameState());
+        assertEquals(MineSweeperModel.COVERED, model.getCoverContent(mine % 9, mine / 9));
+    }
+
+    @Test
+    public void replay_appliesUndoAndRedo() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(16, 16, 40, 77L, 8, 8);
+        model.uncover(8, 8);
+        model.setCoverContent(0, 0, MineSweeperModel.FLAGGED);
+        model.undo();
+        model.setCoverContent(15, 15, MineSweeperModel.FLAGGED);
+        model.undo();
+        model.redo();
+        model.checkGameState();
+
+        MineSweeperModel replayed = Replay.replay(model.getJournal().toByteArray());
+        assertArrayEquals(coverStates(model), coverStates(replayed));
+        assertEquals(model.canUndo(), replayed.canUndo());
+        assertEquals(model.canRedo(), replayed.canRedo());
+    }
+
+    @Test
+    public void replay_undoesRevealedMinesAsOneMove() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(9, 9, 10, 8L, 4, 4);
+        model.uncover(4, 4);
+        int mine = 0;
+        while (model.getFieldContent(mine % 9, mine / 9) != MineSweeperModel.MINE) {
+            mine++;
+        }
+        model.uncover(mine % 9, mine / 9);
+        model.checkGameState();
+        model.revealMines();
+        model.undo();
+
+        MineSweeperModel replayed = Replay.replay(model.getJournal().toByteArray());
+        assertArrayEquals(coverStates(model), coverStates(replayed));
+        assertEquals(model.getGameState(), replayed.getGameState());
+        model.undo();
+        replayed.undo();
+        assertArrayEquals(coverStates(model), coverStates(replayed));
+    }
+
+    @Test
+    public void undoAll_clearsLargeBoard() throws Exception {
+        //deep enough for several levels of branch nodes above the leaves
+        MineSweeperModel model = new MineSweeperModel(2000, 2000, 600000, 6L, -1, -1);
+        Random random = new Random(9);
+        for (int move = 0; move < 5000; move++) {
+            int cell = random.nextInt(2000 * 2000);
+            model.setCoverContent(cell % 2000, cell / 2000, MineSweeperModel.FLAGGED);
+        }
+        while (model.canUndo()) {
+            model.undo();
+        }
+        for (int w = 0; w < model.getBoard().flags.length; w++) {
+            assertEquals(0, model.getBoard().flags[w]);
+        }
+    }
+
+    private static short[] coverStates(MineSweeperModel model) {
+        short[] states = new short[model.getBoardWidth() * model.getBoardHeight()];
+        for (int cell = 0; cell < states.length; cell++) {
+            states[cell] = model.getCoverContent(cell % model.getBoardWidth(),
+                    cell / model.getBoardWidth());
+        }
+        return states;
+    }
+}
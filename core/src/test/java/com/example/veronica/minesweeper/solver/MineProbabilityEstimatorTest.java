@@ -0,0 +1,178 @@
+package com.example.veronica.minesweeper.solver;
+
+import com.example.veronica.minesweeper.model.BoardTopology;
+import com.example.veronica.minesweeper.model.IntList;
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks sampled mine chances against exact counts over every layout, and win chances on boards
+ * whose outcome is known. EstimatorBenchmark measures how sampling scales with workers.
+ */
+public class MineProbabilityEstimatorTest {
+
+    @Test
+    public void heatmap_matchesEveryLayoutCount() throws Exception {
+        int checked = 0;
+        for (long seed = 1; checked < 4; seed++) {
+            MineSweeperModel model = new MineSweeperModel(6, 5, 6, seed, -1, -1);
+            if (!openPartly(model)) {
+                continue;
+            }
+            checked++;
+            float[] exact = exactProbabilities(model);
+            MineProbabilityEstimator.Estimate estimate =
+                    new MineProbabilityEstimator(model, 4).estimate(seed, 0.005, 2000000, 0);
+            assertArrayEquals(exact, estimate.mineProbability, 0.03f);
+            assertTrue(estimate.maxError <= 0.005f || estimate.samples >= 2000000);
+            assertTrue(Float.isNaN(estimate.winProbability));
+        }
+    }
+
+    @Test
+    public void untouchedBoard_isUniform() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(10, 10, 20, 3L, -1, -1);
+        MineProbabilityEstimator.Estimate estimate =
+                new MineProbabilityEstimator(model, 2).estimate(1L, 0.01, 100000, 0);
+        for (float probability : estimate.mineProbability) {
+            assertEquals(0.2, probability, 1e-6);
+        }
+        assertEquals(0, estimate.samples);
+    }
+
+    @Test
+    public void estimate_dependsOnlyOnSeedAndParallelism() throws Exception {
+        MineSweeperModel model = new MineSweeperModel(16, 16, 40, 11L, 8, 8);
+        model.uncover(8, 8);
+        float[] first = new MineProbabilityEstimator(model, 3)
+                .estimate(5L, 0.02, 200000, 0).mineProbability;
+        float[] second = new MineProbabilityEstimator(model, 3)
+                .estimate(5L, 0.02, 200000, 0).mineProbability;
+        assertArrayEquals(first, second, 0f);
+    }
+
+    @Test
+    public void winProbability_matchesKnownOutcomes() throws Exception {
+        //nothing to go on: the first guess is a coin toss, and then the game is won
+        MineSweeperModel coinToss = new MineSweeperModel(2, 1, 1, 4L, -1, -1);
+        MineProbabilityEstimator.Estimate estimate =
+                new MineProbabilityEstimator(coinToss, 2).estimate(9L, 0.03, 100000, 4000);
+        assertEquals(0.5, estimate.winProbability, 0.06);
+        assertTrue(estimate.playouts >= MineProbabilityEstimator.MIN_BATCHES);
+
+        //every safe square uncovered: the mine is certain and nothing is left to lose
+        MineSweeperModel cleared = new MineSweeperModel(3, 3, 1, 2L, -1, -1);
+        int mine = -1;
+        for (int cell = 0; cell < 9; cell++) {
+            if (cleared.getFieldContent(cell % 3, cell / 3) == MineSweeperModel.MINE) {
+                mine = cell;
+            } else {
+                cleared.setCoverContent(cell % 3, cell / 3, MineSweeperModel.UNCOVERED);
+            }
+        }
+        estimate = new MineProbabilityEstimator(cleared, 2).estimate(9L, 0.03, 100000, 100);
+        assertEquals(1, estimate.mineProbability[mine], 0);
+        assertEquals(1, estimate.winProbability, 0);
+    }
+
+    @Test
+    public void hexBoard_matchesEveryLayoutCount() throws Exception {
+        for (long seed = 1; ; seed++) {
+            MineSweeperModel model = new MineSweeperModel(BoardTopology.hex(6, 5), 5,
+                    new java.util.Random(seed), -1, -1);
+            if (openPartly(model)) {
+                MineProbabilityEstimator.Estimate estimate = new MineProbabilityEstimator(model, 2)
+                        .estimate(seed, 0.005, 2000000, 0);
+                assertArrayEquals(exactProbabilities(model), estimate.mineProbability, 0.03f);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Uncovers the first safe square that leaves some of the board open to doubt
+     *
+     * @return true if the board was opened partly, false if no square does so
+     */
+    private static boolean openPartly(MineSweeperModel model) {
+        int width = model.getBoardWidth();
+        int cells = width * model.getBoardHeight();
+        for (int cell = 0; cell < cells; cell++) {
+            if (model.getFieldContent(cell % width, cell / width) == 0) {
+                int opened = model.uncover(cell % width, cell / width).size();
+                return opened < cells - model.getNumberOfMines();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts every layout of the covered squares that fits the uncovered numbers
+     */
+    private static float[] exactProbabilities(MineSweeperModel model) {
+        int width = model.getBoardWidth();
+        int cells = width * model.getBoardHeight();
+        IntList covered = new IntList();
+        for (int cell = 0; cell < cells; cell++) {
+            if (model.getCoverContent(cell % width, cell / width) != MineSweeperModel.UNCOVERED) {
+                covered.add(cell);
+            }
+        }
+        long[] mineLayouts = new long[cells];
+        long layouts = countLayouts(model, covered, 0, model.getNumberOfMines(),
+                new boolean[cells], mineLayouts);
+        float[] probability = new float[cells];
+        for (int cell = 0; cell < cells; cell++) {
+            probability[cell] = (float) mineLayouts[cell] / layouts;
+        }
+        return probability;
+    }
+
+    private static long countLayouts(MineSweeperModel model, IntList covered, int index,
+                                     int mines, boolean[] mine, long[] mineLayouts) {
+        if (mines == 0) {
+            if (!fitsNumbers(model, mine)) {
+                return 0;
+            }
+            for (int cell = 0; cell < mine.length; cell++) {
+                if (mine[cell]) {
+                    mineLayouts[cell]++;
+                }
+            }
+            return 1;
+        }
+        if (covered.size() - index < mines) {
+            return 0;
+        }
+        int cell = covered.get(index);
+        mine[cell] = true;
+        long layouts = countLayouts(model, covered, index + 1, mines - 1, mine, mineLayouts);
+        mine[cell] = false;
+        return layouts + countLayouts(model, covered, index + 1, mines, mine, mineLayouts);
+    }
+
+    private static boolean fitsNumbers(MineSweeperModel model, boolean[] mine) {
+        int width = model.getBoardWidth();
+        BoardTopology topology = model.getTopology();
+        int[] around = new int[MineSweeperModel.MAX_NEIGHBOURS];
+        for (int cell = 0; cell < mine.length; cell++) {
+            if (model.getCoverContent(cell % width, cell / width) != MineSweeperModel.UNCOVERED) {
+                continue;
+            }
+            int count = topology.neighbours(cell, around);
+            int mines = 0;
+            for (int i = 0; i < count; i++) {
+                if (mine[around[i]]) {
+                    mines++;
+                }
+            }
+            if (mines != model.getFieldContent(cell % width, cell / width)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.veronica.minesweeper.solver;
+
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks generated boards are solvable. NoGuessBenchmark measures generation by size and
+ * density.
+ */
+public class NoGuessGeneratorTest {
+
+    @Test
+    public void generatedBoard_isSolvableFromStart() throws Exception {
+        NoGuessGenerator generator = new NoGuessGenerator(16, 16, 40, 8, 8);
+        NoGuessGenerator.Result result = generator.generate(2016L, 100000);
+        assertNotNull(result.model);
+        assertEquals(0, result.model.getFieldContent(8, 8));
+        assertTrue(NoGuessGenerator.isSolvable(result.model, 8, 8, new AtomicBoolean()));
+    }
+
+    @Test
+    public void safeStart_keepsMinesAwayFromFirstMove() throws Exception {
+        for (int seed = 0; seed < 100; seed++) {
+            // 25 squares minus the 9 safe ones leaves room for exactly 16 mines
+            MineSweeperModel model = new MineSweeperModel(5, 5, 16, new Random(seed), 2, 2);
+            for (int x = 0; x < 5; x++) {
+                for (int y = 0; y < 5; y++) {
+                    boolean safe = Math.abs(x - 2) <= 1 && Math.abs(y - 2) <= 1;
+                    assertEquals(!safe, model.getFieldContent(x, y) == MineSweeperModel.MINE);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.veronica.minesweeper.solver;
+
+import com.example.veronica.minesweeper.model.IntList;
+import com.example.veronica.minesweeper.model.MineSweeperModel;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plays boards with the solver and checks every deduction against the hidden mines.
+ * SolverBenchmark times a playout.
+ */
+public class SolverTest {
+
+    @Test
+    public void deductions_areAlwaysCorrect() throws Exception {
+        int solved = 0;
+        for (int game = 0; game < 200; game++) {
+            MineSweeperModel model = new MineSweeperModel(16, 16, 40);
+            if (play(model)) {
+                solved++;
+            }
+        }
+        assertTrue("solved " + solved + " of 200", solved > 0);
+    }
+
+    @Test
+    public void subsetRule_clearsSquaresBeyondOneOnePattern() throws Exception {
+        // Two uncovered 1s on the bottom row: the left one sees (0, 0) and (1, 0), the right
+        // one sees those too, so its other neighbours (2, 0) and (2, 1) must be safe
+        MineSweeperModel model = new MineSweeperModel(3, 2, 0);
+        model.setFieldContent(0, 0, MineSweeperModel.MINE);
+        model.setFieldContent(0, 1, (short) 1);
+        model.setFieldContent(1, 1, (short) 1);
+        model.setCoverContent(0, 1, MineSweeperModel.UNCOVERED);
+        model.setCoverContent(1, 1, MineSweeperModel.UNCOVERED);
+        Solver solver = new Solver(model);
+        solver.rescan();
+        assertTrue(solver.solve());
+        assertTrue(solver.isKnownSafe(2));
+        assertTrue(solver.isKnownSafe(5));
+        assertFalse(solver.isKnownMine(0) || solver.isKnownSafe(0));
+        assertFalse(solver.isKnownMine(1) || solver.isKnownSafe(1));
+    }
+
+    @Test
+    public void largeBoard_solvesIncrementally() throws Exception {
+        play(new MineSweeperModel(1000, 1000, 100000));
+    }
+
+    /**
+     * Opens an empty square and then only plays moves the solver proves
+     *
+     * @return true if every safe square was uncovered
+     */
+    static boolean play(MineSweeperModel model) {
+        int width = model.getBoardWidth();
+        int start = -1;
+        for (int cell = 0; cell < width * model.getBoardHeight() && start < 0; cell++) {
+            if (model.getFieldContent(cell % width, cell / width) == 0) {
+                start = cell;
+            }
+        }
+        if (start < 0) {
+            return false;
+        }
+        Solver solver = new Solver(model);
+        int uncovered = 0;
+        IntList revealed = model.uncover(start % width, start / width);
+        uncovered += revealed.size();
+        solver.update(revealed);
+        while (solver.solve()) {
+            IntList safe = solver.takeSafeCells();
+            for (int i = 0; i < safe.size(); i++) {
+                int cell = safe.get(i);
+                assertNotMine(model, cell);
+                revealed = model.uncover(cell % width, cell / width);
+                uncovered += revealed.size();
+                solver.update(revealed);
+            }
+            IntList mines = solver.takeMineCells();
+            for (int i = 0; i < mines.size(); i++) {
+                int cell = mines.get(i);
+                assertEquals(MineSweeperModel.MINE,
+                        model.getFieldContent(cell % width, cell / width));
+            }
+        }
+        return uncovered == width * model.getBoardHeight() - model.getNumberOfMines();
+    }
+
+    private static void assertNotMine(MineSweeperModel model, int cell) {
+        int width = model.getBoardWidth();
+        assertFalse("solver marked mine " + cell + " as safe",
+                model.getFieldContent(cell % width, cell / width) == MineSweeperModel.MINE);
+    }
+}